@@ -0,0 +1,151 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nodinchan.parser.xml.XMLDocument;
+import com.nodinchan.parser.xml.XMLElement;
+import com.nodinchan.parser.xml.XMLHierarchical;
+import com.nodinchan.parser.xml.XMLParser;
+
+/**
+ * Measures writing each corpus out as text, incrementally after an edit, to a file, and in the binary form
+ * 
+ * @author NodinChan
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class ComposeBenchmark {
+	
+	@Param({ "deep", "wide", "attributes", "text" })
+	public String corpus;
+	
+	private XMLDocument document;
+	private XMLDocument incremental;
+	
+	private List<XMLElement> elements;
+	private List<XMLElement> incrementalElements;
+	private int edit;
+	
+	private File file;
+	
+	private final Writer writer = new Writer() {
+		
+		@Override
+		public void close() {}
+		
+		@Override
+		public void flush() {}
+		
+		@Override
+		public void write(char[] cbuf, int off, int len) {}
+	};
+	
+	private final OutputStream stream = new OutputStream() {
+		
+		@Override
+		public void write(byte[] b, int off, int len) {}
+		
+		@Override
+		public void write(int b) {}
+	};
+	
+	private static List<XMLElement> collect(XMLHierarchical node, List<XMLElement> elements) {
+		for (XMLElement element : node.getElements()) {
+			elements.add(element);
+			collect(element, elements);
+		}
+		
+		return elements;
+	}
+	
+	@Benchmark
+	public void compose() throws IOException {
+		XMLParser.compose(this.document, this.writer);
+	}
+	
+	@Benchmark
+	public void composeAfterEdit() throws IOException {
+		int edit = this.edit++ % this.elements.size();
+		
+		this.elements.get(edit).setAttribute("edit", Integer.toString(this.edit));
+		XMLParser.compose(this.document, this.writer);
+	}
+	
+	@Benchmark
+	public void composeIncrementallyAfterEdit() throws IOException {
+		int edit = this.edit++ % this.incrementalElements.size();
+		
+		this.incrementalElements.get(edit).setAttribute("edit", Integer.toString(this.edit));
+		XMLParser.compose(this.incremental, this.writer);
+	}
+	
+	@Benchmark
+	public void save() throws IOException {
+		this.document.save(this.file);
+	}
+	
+	@Setup
+	public void setUp() throws IOException {
+		byte[] bytes = XMLCorpus.get(this.corpus);
+		
+		this.document = XMLParser.parse(new ByteArrayInputStream(bytes));
+		this.elements = collect(this.document, new ArrayList<XMLElement>());
+		
+		this.incremental = XMLParser.parse(new ByteArrayInputStream(bytes)).setIncrementalCompose(true);
+		this.incrementalElements = collect(this.incremental, new ArrayList<XMLElement>());
+		
+		this.file = File.createTempFile("corpus", ".xml");
+	}
+	
+	@TearDown
+	public void tearDown() {
+		this.file.delete();
+	}
+	
+	@Benchmark
+	public void writeBinary() throws IOException {
+		this.document.writeBinary(this.stream);
+	}
+}
\ No newline at end of file
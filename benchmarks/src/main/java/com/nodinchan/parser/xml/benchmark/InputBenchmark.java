@@ -0,0 +1,114 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nodinchan.parser.xml.XMLDocument;
+import com.nodinchan.parser.xml.XMLElement;
+import com.nodinchan.parser.xml.XMLParser;
+
+/**
+ * Measures the ways of loading a document from a file: streamed, memory-mapped, lazily built, and from the binary form
+ * 
+ * @author NodinChan
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class InputBenchmark {
+	
+	@Param({ "wide", "text" })
+	public String corpus;
+	
+	private Path file;
+	
+	private byte[] binary;
+	
+	@Benchmark
+	public XMLElement parseLazilyFirstElement() throws IOException {
+		return XMLParser.parseLazily(this.file).getRoot().getElement(0);
+	}
+	
+	@Benchmark
+	public XMLElement parseMappedFirstElement() throws IOException {
+		return XMLParser.parse(this.file).getRoot().getElement(0);
+	}
+	
+	@Benchmark
+	public XMLDocument parseMapped() throws IOException {
+		return XMLParser.parse(this.file);
+	}
+	
+	@Benchmark
+	public XMLDocument parseStream() throws IOException {
+		InputStream stream = Files.newInputStream(this.file);
+		
+		try {
+			return XMLParser.parse(stream);
+			
+		} finally {
+			stream.close();
+		}
+	}
+	
+	@Benchmark
+	public XMLDocument readBinary() throws IOException {
+		return XMLParser.readBinary(new ByteArrayInputStream(this.binary));
+	}
+	
+	@Setup
+	public void setUp() throws IOException {
+		byte[] bytes = XMLCorpus.get(this.corpus);
+		
+		this.file = Files.createTempFile("corpus", ".xml");
+		Files.write(this.file, bytes);
+		
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		XMLParser.parse(new ByteArrayInputStream(bytes)).writeBinary(binary);
+		this.binary = binary.toByteArray();
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(this.file);
+	}
+}
\ No newline at end of file
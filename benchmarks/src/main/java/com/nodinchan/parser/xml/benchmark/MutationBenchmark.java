@@ -0,0 +1,102 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nodinchan.parser.xml.XMLDiff;
+import com.nodinchan.parser.xml.XMLDocument;
+import com.nodinchan.parser.xml.XMLElement;
+import com.nodinchan.parser.xml.XMLParser;
+
+/**
+ * Measures changing the children, attributes and values of a wide element, and diffing it against a copy after a change
+ * 
+ * @author NodinChan
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class MutationBenchmark {
+	
+	@Param({ "1000", "100000" })
+	public int children;
+	
+	private XMLDocument document;
+	private XMLDocument copy;
+	private XMLElement root;
+	
+	private int next;
+	
+	@Benchmark
+	public XMLDiff diffAfterEdit() {
+		int position = this.next++ % this.children;
+		String value = Integer.toString(this.next);
+		
+		this.root.getElement(position).setAttribute("edit", value);
+		
+		XMLDiff diff = this.copy.diff(this.document);
+		
+		this.copy.getRoot().getElement(position).setAttribute("edit", value);
+		return diff;
+	}
+	
+	@Benchmark
+	public XMLElement insertAndRemoveElement() {
+		XMLElement element = new XMLElement("added");
+		
+		this.root.insertElement(element, this.next++ % this.children);
+		return element.remove();
+	}
+	
+	@Benchmark
+	public XMLElement setAttribute() {
+		return this.root.getElement(this.next++ % this.children).setAttribute("id", Integer.toString(this.next));
+	}
+	
+	@Setup
+	public void setUp() {
+		byte[] bytes = XMLCorpus.wide(this.children);
+		
+		this.document = XMLParser.parse(new ByteArrayInputStream(bytes));
+		this.copy = XMLParser.parse(new ByteArrayInputStream(bytes));
+		this.root = this.document.getRoot();
+	}
+	
+	@Benchmark
+	public XMLElement setValue() {
+		return this.root.getElement(this.next++ % this.children).setValue(Integer.toString(this.next));
+	}
+}
\ No newline at end of file
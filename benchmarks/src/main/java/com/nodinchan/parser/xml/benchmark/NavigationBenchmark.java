@@ -0,0 +1,115 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nodinchan.parser.xml.XMLAttributeIndex;
+import com.nodinchan.parser.xml.XMLDocument;
+import com.nodinchan.parser.xml.XMLElement;
+import com.nodinchan.parser.xml.XMLParser;
+import com.nodinchan.parser.xml.XMLPath;
+
+/**
+ * Measures finding children of a wide element by position, by name, by path and through an attribute index
+ * 
+ * @author NodinChan
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class NavigationBenchmark {
+	
+	@Param({ "1000", "100000" })
+	public int children;
+	
+	private XMLDocument document;
+	private XMLElement root;
+	
+	private XMLAttributeIndex index;
+	private XMLPath path;
+	
+	private int[] positions;
+	private String[] names;
+	private String[] ids;
+	private int next;
+	
+	@Benchmark
+	public XMLElement getElementByAttributeIndex() {
+		return this.index.get(this.ids[this.next++ & 1023]);
+	}
+	
+	@Benchmark
+	public XMLElement getElementByName() {
+		return this.root.getElement(this.names[this.next++ & 1023]);
+	}
+	
+	@Benchmark
+	public XMLElement getElementByPosition() {
+		return this.root.getElement(this.positions[this.next++ & 1023]);
+	}
+	
+	@Benchmark
+	public List<XMLElement> getElementsByName() {
+		return this.root.getElements(this.names[this.next++ & 1023]);
+	}
+	
+	@Benchmark
+	public XMLElement selectByAttribute() {
+		return this.path.selectFirst(this.document);
+	}
+	
+	@Setup
+	public void setUp() {
+		this.document = XMLParser.parse(new ByteArrayInputStream(XMLCorpus.wide(this.children)));
+		this.root = this.document.getRoot();
+		this.index = this.document.indexBy("id");
+		this.path = XMLPath.compile("catalog/item7[@id='" + (this.children - 1) + "']");
+		
+		Random random = new Random(this.children);
+		
+		this.positions = new int[1024];
+		this.names = new String[1024];
+		this.ids = new String[1024];
+		
+		for (int lookup = 0; lookup < 1024; lookup++) {
+			this.positions[lookup] = random.nextInt(this.children);
+			this.names[lookup] = "item" + random.nextInt(8);
+			this.ids[lookup] = Integer.toString(random.nextInt(this.children));
+		}
+	}
+}
\ No newline at end of file
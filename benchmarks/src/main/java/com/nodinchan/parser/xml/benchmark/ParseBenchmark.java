@@ -0,0 +1,74 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nodinchan.parser.xml.XMLDocument;
+import com.nodinchan.parser.xml.XMLParser;
+import com.nodinchan.parser.xml.XMLParserConfig;
+import com.nodinchan.parser.xml.XMLParserEngine;
+
+/**
+ * Measures parsing each corpus from memory with each {@link XMLParserEngine}
+ * 
+ * @author NodinChan
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+	
+	@Param({ "deep", "wide", "attributes", "text" })
+	public String corpus;
+	
+	@Param({ "STAX", "TOKENIZER" })
+	public String engine;
+	
+	private byte[] bytes;
+	
+	private XMLParserConfig config;
+	
+	@Benchmark
+	public XMLDocument parse() {
+		return XMLParser.parse(new ByteArrayInputStream(this.bytes), this.config);
+	}
+	
+	@Setup
+	public void setUp() {
+		this.bytes = XMLCorpus.get(this.corpus);
+		this.config = new XMLParserConfig().setEngine(this.engine.equals("STAX") ? XMLParserEngine.STAX : XMLParserEngine.TOKENIZER);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.nodinchan.parser.xml.XMLParser;
+import com.nodinchan.parser.xml.XMLParserConfig;
+import com.nodinchan.parser.xml.XMLParserEngine;
+
+/**
+ * Measures parsing many small documents one after another, where the cost of each parse outweighs its content
+ * 
+ * @author NodinChan
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class SmallDocumentBenchmark {
+	
+	@Param({ "STAX", "TOKENIZER" })
+	public String engine;
+	
+	private List<byte[]> documents;
+	
+	private XMLParserConfig config;
+	
+	@Benchmark
+	public void parseAll(Blackhole blackhole) {
+		for (byte[] document : this.documents)
+			blackhole.consume(XMLParser.parse(new ByteArrayInputStream(document), this.config));
+	}
+	
+	@Setup
+	public void setUp() {
+		this.documents = XMLCorpus.manySmall(1000);
+		this.config = new XMLParserConfig().setEngine(this.engine.equals("STAX") ? XMLParserEngine.STAX : XMLParserEngine.TOKENIZER);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,205 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the synthetic documents measured by the benchmarks
+ * 
+ * <p>
+ * Each document is built from a fixed seed, so every run measures the same bytes.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLCorpus {
+	
+	private static final String[] WORDS = { "alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta", "iota", "kappa" };
+	
+	private XMLCorpus() {}
+	
+	/**
+	 * Generates a document of elements with many attributes each
+	 * 
+	 * @param elements The number of elements under the root
+	 * 
+	 * @param attributes The number of attributes of each element
+	 * 
+	 * @return The document
+	 */
+	public static byte[] attributeHeavy(int elements, int attributes) {
+		Random random = new Random(elements * 31 + attributes);
+		StringBuilder xml = prolog().append("<records>");
+		
+		for (int element = 0; element < elements; element++) {
+			xml.append("\n  <record id=\"").append(element).append('"');
+			
+			for (int attribute = 0; attribute < attributes; attribute++)
+				xml.append(" field").append(attribute).append("=\"").append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(1000)).append('"');
+			
+			xml.append("/>");
+		}
+		
+		return xml.append("\n</records>").toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Generates a document nested to the given depth, with a few siblings at each level
+	 * 
+	 * @param depth The depth of the deepest element
+	 * 
+	 * @return The document
+	 */
+	public static byte[] deep(int depth) {
+		StringBuilder xml = prolog();
+		
+		for (int level = 0; level < depth; level++)
+			xml.append("<level depth=\"").append(level).append("\"><note>").append(WORDS[level % WORDS.length]).append("</note>");
+		
+		xml.append("<leaf>bottom</leaf>");
+		
+		for (int level = depth - 1; level >= 0; level--)
+			xml.append("<tail>").append(level).append("</tail></level>");
+		
+		return xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Returns the named document of about a megabyte
+	 * 
+	 * @param name One of deep, wide, attributes or text
+	 * 
+	 * @return The document
+	 */
+	public static byte[] get(String name) {
+		if (name.equals("deep"))
+			return deep(2000);
+		
+		if (name.equals("wide"))
+			return wide(20000);
+		
+		if (name.equals("attributes"))
+			return attributeHeavy(4000, 16);
+		
+		if (name.equals("text"))
+			return textHeavy(500, 2000);
+		
+		throw new IllegalArgumentException("Corpus cannot be " + name);
+	}
+	
+	/**
+	 * Generates many small documents, like messages read one at a time
+	 * 
+	 * @param count The number of documents
+	 * 
+	 * @return The documents
+	 */
+	public static List<byte[]> manySmall(int count) {
+		Random random = new Random(count);
+		List<byte[]> documents = new ArrayList<byte[]>(count);
+		
+		for (int document = 0; document < count; document++) {
+			StringBuilder xml = prolog().append("<message id=\"").append(document).append("\">");
+			
+			xml.append("<from>").append(WORDS[random.nextInt(WORDS.length)]).append("</from>");
+			xml.append("<to>").append(WORDS[random.nextInt(WORDS.length)]).append("</to>");
+			xml.append("<sent>2014-0").append(1 + random.nextInt(9)).append("-1").append(random.nextInt(10)).append("</sent>");
+			xml.append("<body lang=\"en\">");
+			
+			for (int word = 0; word < 20; word++)
+				xml.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			
+			xml.append("</body></message>");
+			documents.add(xml.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		
+		return documents;
+	}
+	
+	private static StringBuilder prolog() {
+		return new StringBuilder(1 << 20).append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+	}
+	
+	/**
+	 * Generates a document of elements with long values, including references and CDATA sections
+	 * 
+	 * @param elements The number of elements under the root
+	 * 
+	 * @param length The approximate length of each value
+	 * 
+	 * @return The document
+	 */
+	public static byte[] textHeavy(int elements, int length) {
+		Random random = new Random(elements * 31 + length);
+		StringBuilder xml = prolog().append("<articles>");
+		
+		for (int element = 0; element < elements; element++) {
+			xml.append("\n  <article id=\"").append(element).append("\">");
+			
+			int start = xml.length();
+			
+			while (xml.length() - start < length) {
+				xml.append(WORDS[random.nextInt(WORDS.length)]);
+				
+				switch (random.nextInt(20)) {
+				
+				case 0:
+					xml.append(" &amp; ");
+					break;
+				
+				case 1:
+					xml.append(" <![CDATA[<raw> & text]]> ");
+					break;
+				
+				default:
+					xml.append(' ');
+					break;
+				}
+			}
+			
+			xml.append("</article>");
+		}
+		
+		return xml.append("\n</articles>").toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Generates a document whose root has many children, with a few distinct names
+	 * 
+	 * @param children The number of children of the root
+	 * 
+	 * @return The document
+	 */
+	public static byte[] wide(int children) {
+		Random random = new Random(children);
+		StringBuilder xml = prolog().append("<catalog>");
+		
+		for (int child = 0; child < children; child++) {
+			String name = "item" + (child % 8);
+			
+			xml.append("\n  <").append(name).append(" id=\"").append(child).append("\">");
+			xml.append(WORDS[random.nextInt(WORDS.length)]).append("</").append(name).append('>');
+		}
+		
+		return xml.append("\n</catalog>").toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
\ No newline at end of file
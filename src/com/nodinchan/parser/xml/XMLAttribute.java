@@ -20,6 +20,13 @@ package com.nodinchan.parser.xml;
 /**
  * Represents an attribute in an XML document
  * 
+ * <p>
+ * An attribute set on an {@link XMLElement} knows its element, so setting its value directly changes
+ * the element as {@link XMLElement#setAttribute(String, String)} would, dropping its cached composed
+ * text and structural hash and updating the attribute indexes of its document. Once removed, or replaced
+ * by setting another value under its name, the attribute is no longer part of the element and changes
+ * alone.
+ * 
  * @author NodinChan
  *
  */
@@ -27,7 +34,9 @@ public final class XMLAttribute {
 	
 	private final String name;
 	
-	private String value;
+	private volatile String value;
+	
+	private volatile XMLElement owner;
 	
 	/**
 	 * Constructs an {@link XMLAttribute} with the given name and value
@@ -62,7 +71,14 @@ public final class XMLAttribute {
 	
 	@Override
 	public boolean equals(Object object) {
-		return getClass().isInstance(object) && toString().equals(object.toString()); 
+		if (object == this)
+			return true;
+		
+		if (!(object instanceof XMLAttribute))
+			return false;
+		
+		XMLAttribute attribute = (XMLAttribute) object;
+		return this.name.equals(attribute.name) && this.value.equals(attribute.value);
 	}
 	
 	/**
@@ -74,6 +90,15 @@ public final class XMLAttribute {
 		return name;
 	}
 	
+	/**
+	 * Returns the {@link XMLElement} the {@link XMLAttribute} is set on
+	 * 
+	 * @return The element, or null if not set on one
+	 */
+	XMLElement getOwner() {
+		return this.owner;
+	}
+	
 	/**
 	 * Returns the value of the {@link XMLAttribute}
 	 * 
@@ -85,16 +110,39 @@ public final class XMLAttribute {
 	
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		return 31 * this.name.hashCode() + this.value.hashCode();
 	}
 	
 	/**
-	 * Sets the value of the {@link XMLAttribute}
+	 * Sets the {@link XMLElement} the {@link XMLAttribute} is set on
+	 * 
+	 * @param owner The element, or null once removed from it
+	 */
+	void setOwner(XMLElement owner) {
+		this.owner = owner;
+	}
+	
+	/**
+	 * Sets the value of the {@link XMLAttribute}, through its {@link XMLElement} if set on one
 	 * 
 	 * @param value The new attribute value
 	 */
 	public void setValue(String value) {
-		this.value = (value != null) ? value : "";
+		value = (value != null) ? value : "";
+		
+		XMLElement owner = this.owner;
+		
+		if (owner == null || !owner.changeAttribute(this, value))
+			this.value = value;
+	}
+	
+	/**
+	 * Sets the value of the {@link XMLAttribute} alone, for its {@link XMLElement} to call
+	 * 
+	 * @param value The new attribute value
+	 */
+	void storeValue(String value) {
+		this.value = value;
 	}
 	
 	@Override
@@ -0,0 +1,195 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Represents an index of the {@link XMLElement}s in an {@link XMLDocument} by the value of one attribute
+ * 
+ * <p>
+ * The document keeps the index up to date as elements are inserted and removed and as attributes are
+ * set and removed through {@link XMLElement}, or changed through {@link XMLAttribute#setValue(String)},
+ * so a lookup never walks the tree. Lookups never lock.
+ * 
+ * <p>
+ * The elements of each value are kept in a growable array. Adding an element writes past the
+ * count that readers see, so only removing one copies the array.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLAttributeIndex {
+	
+	private final String attributeName;
+	
+	private final ConcurrentMap<String, Bucket> elements;
+	
+	XMLAttributeIndex(String attributeName) {
+		this.attributeName = attributeName;
+		this.elements = new ConcurrentHashMap<String, Bucket>();
+	}
+	
+	/**
+	 * Adds the {@link XMLElement} under the given value
+	 * 
+	 * @param value The attribute value
+	 * 
+	 * @param element The element
+	 */
+	synchronized void add(String value, XMLElement element) {
+		Bucket bucket = this.elements.get(value);
+		
+		if (bucket == null) {
+			this.elements.put(value, new Bucket(new XMLElement[] { element }, 1));
+			return;
+		}
+		
+		XMLElement[] elements = bucket.elements;
+		int count = bucket.count;
+		
+		if (count == elements.length)
+			bucket.elements = elements = Arrays.copyOf(elements, count * 2);
+		
+		elements[count] = element;
+		bucket.count = count + 1;
+	}
+	
+	/**
+	 * Determines whether any {@link XMLElement} has the given attribute value
+	 * 
+	 * @param value The attribute value
+	 * 
+	 * @return True if found, otherwise false
+	 */
+	public boolean contains(String value) {
+		if (value == null)
+			throw new IllegalArgumentException("Value cannot be null");
+		
+		return this.elements.containsKey(value);
+	}
+	
+	/**
+	 * Returns the {@link XMLElement} with the given attribute value
+	 * 
+	 * @param value The attribute value
+	 * 
+	 * @return The element indexed first if found, otherwise null
+	 */
+	public XMLElement get(String value) {
+		if (value == null)
+			throw new IllegalArgumentException("Value cannot be null");
+		
+		Bucket bucket = this.elements.get(value);
+		return (bucket != null) ? bucket.elements[0] : null;
+	}
+	
+	/**
+	 * Returns every {@link XMLElement} with the given attribute value
+	 * 
+	 * @param value The attribute value
+	 * 
+	 * @return The unmodifiable list of elements, in the order they were indexed
+	 */
+	public List<XMLElement> getAll(String value) {
+		if (value == null)
+			throw new IllegalArgumentException("Value cannot be null");
+		
+		Bucket bucket = this.elements.get(value);
+		
+		if (bucket == null)
+			return Collections.emptyList();
+		
+		int count = bucket.count;
+		return Collections.unmodifiableList(Arrays.asList(bucket.elements).subList(0, count));
+	}
+	
+	/**
+	 * Returns the name of the attribute indexed
+	 * 
+	 * @return The attribute name
+	 */
+	public String getAttributeName() {
+		return this.attributeName;
+	}
+	
+	/**
+	 * Removes the {@link XMLElement} from the given value
+	 * 
+	 * @param value The attribute value
+	 * 
+	 * @param element The element
+	 */
+	synchronized void remove(String value, XMLElement element) {
+		Bucket bucket = this.elements.get(value);
+		
+		if (bucket == null)
+			return;
+		
+		XMLElement[] elements = bucket.elements;
+		int count = bucket.count;
+		
+		for (int index = 0; index < count; index++) {
+			if (elements[index] != element)
+				continue;
+			
+			if (count == 1) {
+				this.elements.remove(value);
+				return;
+			}
+			
+			XMLElement[] remaining = new XMLElement[count - 1];
+			
+			System.arraycopy(elements, 0, remaining, 0, index);
+			System.arraycopy(elements, index + 1, remaining, index, remaining.length - index);
+			
+			this.elements.put(value, new Bucket(remaining, remaining.length));
+			return;
+		}
+	}
+	
+	/**
+	 * Returns the number of distinct values indexed
+	 * 
+	 * @return The value count
+	 */
+	public int size() {
+		return this.elements.size();
+	}
+	
+	/**
+	 * Holds the elements of one value, of which readers see only the first count
+	 * 
+	 * @author NodinChan
+	 * 
+	 */
+	private static final class Bucket {
+		
+		private volatile XMLElement[] elements;
+		private volatile int count;
+		
+		private Bucket(XMLElement[] elements, int count) {
+			this.elements = elements;
+			this.count = count;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+/**
+ * Represents the attributes of the element being parsed
+ * 
+ * <p>
+ * Instances are reused from one element to the next, so the attributes should be read
+ * within {@link XMLHandler#startElement(String, XMLAttributes)} and not kept.
+ * 
+ * @author NodinChan
+ * 
+ */
+public interface XMLAttributes {
+	
+	/**
+	 * Returns the number of attributes
+	 * 
+	 * @return The attribute count
+	 */
+	int getCount();
+	
+	/**
+	 * Returns the name of the attribute at the given index
+	 * 
+	 * @param index The index
+	 * 
+	 * @return The attribute name
+	 */
+	String getName(int index);
+	
+	/**
+	 * Returns the value of the attribute at the given index
+	 * 
+	 * @param index The index
+	 * 
+	 * @return The attribute value
+	 */
+	String getValue(int index);
+	
+	/**
+	 * Returns the value of the attribute with the given name
+	 * 
+	 * @param name The attribute name
+	 * 
+	 * @return The value if present, otherwise null
+	 */
+	String getValue(String name);
+}
\ No newline at end of file
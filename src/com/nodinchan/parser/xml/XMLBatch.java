@@ -0,0 +1,240 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Parses a batch of files, handing out each result as it finishes
+ * 
+ * <p>
+ * Files are submitted from the thread collecting the results, only while fewer than the
+ * maximum number of files, and of bytes, are parsed or waiting to be collected. A slow
+ * consumer therefore holds back parsing instead of piling up documents.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLBatch implements Iterator<XMLParseResult>, Closeable {
+	
+	private final List<Path> files;
+	
+	private final XMLParserConfig config;
+	
+	private final int maxConcurrency;
+	
+	private final long maxInFlightBytes;
+	
+	private final ExecutorService pool;
+	
+	private final CompletionService<IndexedResult> results;
+	
+	private final long[] sizes;
+	
+	private final Future<IndexedResult>[] futures;
+	
+	private int submitted;
+	private int collected;
+	
+	private int inFlight;
+	private long inFlightBytes;
+	
+	private int lastIndex;
+	
+	XMLBatch(List<Path> files, XMLBatchConfig config) {
+		this.files = files;
+		this.config = config.getParserConfig();
+		this.maxConcurrency = config.getMaxConcurrency();
+		this.maxInFlightBytes = config.getMaxInFlightBytes();
+		this.sizes = new long[files.size()];
+		this.futures = newFutures(files.size());
+		
+		if (config.getExecutor() != null) {
+			this.pool = null;
+			this.results = new ExecutorCompletionService<IndexedResult>(config.getExecutor());
+			
+		} else {
+			this.pool = Executors.newFixedThreadPool(this.maxConcurrency, new ThreadFactory() {
+				
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "XMLParser batch");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			
+			this.results = new ExecutorCompletionService<IndexedResult>(this.pool);
+		}
+	}
+	
+	/**
+	 * Stops submitting files, cancels the files still in flight and shuts down the pool created for the batch
+	 */
+	@Override
+	public void close() {
+		this.submitted = this.files.size();
+		
+		for (int index = 0; index < this.futures.length; index++) {
+			if (this.futures[index] != null) {
+				this.futures[index].cancel(true);
+				this.futures[index] = null;
+			}
+		}
+		
+		if (this.pool != null)
+			this.pool.shutdownNow();
+	}
+	
+	/**
+	 * Returns the index in the batch of the file of the last result handed out
+	 * 
+	 * @return The index
+	 */
+	int getLastIndex() {
+		return this.lastIndex;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (this.collected < this.files.size() && (this.inFlight > 0 || this.submitted < this.files.size()))
+			return true;
+		
+		close();
+		return false;
+	}
+	
+	@Override
+	public XMLParseResult next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		
+		submit();
+		
+		Future<IndexedResult> future;
+		
+		try {
+			future = this.results.take();
+			
+		} catch (InterruptedException e) {
+			close();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while parsing", e);
+		}
+		
+		IndexedResult result;
+		
+		try {
+			result = future.get();
+			
+		} catch (InterruptedException e) {
+			close();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while parsing", e);
+			
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Parsing failed", e.getCause());
+		}
+		
+		this.futures[result.index] = null;
+		this.lastIndex = result.index;
+		this.inFlight--;
+		this.inFlightBytes -= this.sizes[result.index];
+		this.collected++;
+		return result.result;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Future<IndexedResult>[] newFutures(int length) {
+		return new Future[length];
+	}
+	
+	private void submit() {
+		while (this.submitted < this.files.size() && this.inFlight < this.maxConcurrency) {
+			final int index = this.submitted;
+			final Path file = this.files.get(index);
+			
+			long size;
+			
+			try {
+				size = Files.size(file);
+				
+			} catch (IOException e) {
+				size = 0;
+			}
+			
+			if (this.inFlight > 0 && this.inFlightBytes + size > this.maxInFlightBytes)
+				return;
+			
+			this.sizes[index] = size;
+			this.inFlight++;
+			this.inFlightBytes += size;
+			this.submitted++;
+			
+			this.futures[index] = this.results.submit(new Callable<IndexedResult>() {
+				
+				@Override
+				public IndexedResult call() {
+					try {
+						FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+						
+						try {
+							InputStream stream = new XMLChannelInputStream(channel, 0, channel.size());
+							return new IndexedResult(index, new XMLParseResult(file, XMLParser.parseStrictly(stream, config), null));
+							
+						} finally {
+							channel.close();
+						}
+						
+					} catch (Exception e) {
+						return new IndexedResult(index, new XMLParseResult(file, null, e));
+					}
+				}
+			});
+		}
+	}
+	
+	private static final class IndexedResult {
+		
+		private final int index;
+		
+		private final XMLParseResult result;
+		
+		IndexedResult(int index, XMLParseResult result) {
+			this.index = index;
+			this.result = result;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Represents the options used to parse a batch of files with the {@link XMLParser}
+ * 
+ * <p>
+ * Reading an option never locks.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLBatchConfig {
+	
+	private volatile Executor executor;
+	
+	private volatile int maxConcurrency;
+	
+	private volatile long maxInFlightBytes;
+	
+	private volatile XMLParserConfig parserConfig;
+	
+	/**
+	 * Constructs an {@link XMLBatchConfig} parsing one file per processor, with up to 256 MB of files in flight,
+	 * using the default options of the {@link XMLParser}
+	 */
+	public XMLBatchConfig() {
+		this.maxConcurrency = Runtime.getRuntime().availableProcessors();
+		this.maxInFlightBytes = 256L << 20;
+		this.parserConfig = XMLParser.DEFAULT_CONFIG;
+	}
+	
+	/**
+	 * Returns the executor to parse on
+	 * 
+	 * @return The executor, or null if a pool is created for each batch
+	 */
+	public Executor getExecutor() {
+		return this.executor;
+	}
+	
+	/**
+	 * Returns the maximum number of files parsed or awaiting collection at once
+	 * 
+	 * @return The maximum concurrency
+	 */
+	public int getMaxConcurrency() {
+		return this.maxConcurrency;
+	}
+	
+	/**
+	 * Returns the maximum total size of the files parsed or awaiting collection at once
+	 * 
+	 * @return The maximum bytes in flight
+	 */
+	public long getMaxInFlightBytes() {
+		return this.maxInFlightBytes;
+	}
+	
+	/**
+	 * Returns the options used to parse each file
+	 * 
+	 * @return The parser config
+	 */
+	public XMLParserConfig getParserConfig() {
+		return this.parserConfig;
+	}
+	
+	/**
+	 * Sets the executor to parse on, such as one starting a virtual thread per task
+	 * 
+	 * @param executor The executor, or null to create a pool for each batch
+	 * 
+	 * @return The config
+	 */
+	public XMLBatchConfig setExecutor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+	
+	/**
+	 * Sets the maximum number of files parsed or awaiting collection at once
+	 * 
+	 * @param maxConcurrency The maximum concurrency
+	 * 
+	 * @return The config
+	 */
+	public XMLBatchConfig setMaxConcurrency(int maxConcurrency) {
+		if (maxConcurrency < 1)
+			throw new IllegalArgumentException("Concurrency must be positive");
+		
+		this.maxConcurrency = maxConcurrency;
+		return this;
+	}
+	
+	/**
+	 * Sets the maximum total size of the files parsed or awaiting collection at once
+	 * 
+	 * <p>
+	 * A file larger than the limit is still parsed, but only while no other file is in flight.
+	 * 
+	 * @param maxInFlightBytes The maximum bytes in flight
+	 * 
+	 * @return The config
+	 */
+	public XMLBatchConfig setMaxInFlightBytes(long maxInFlightBytes) {
+		if (maxInFlightBytes < 1)
+			throw new IllegalArgumentException("Bytes must be positive");
+		
+		this.maxInFlightBytes = maxInFlightBytes;
+		return this;
+	}
+	
+	/**
+	 * Sets the options used to parse each file
+	 * 
+	 * @param parserConfig The parser config
+	 * 
+	 * @return The config
+	 */
+	public XMLBatchConfig setParserConfig(XMLParserConfig parserConfig) {
+		if (parserConfig == null)
+			throw new IllegalArgumentException("Config cannot be null");
+		
+		this.parserConfig = parserConfig;
+		return this;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,426 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes and reads {@link XMLDocument}s in a compact binary form
+ * 
+ * <p>
+ * The form starts with the magic bytes {@code XMLB} and a version, then the document properties and a table
+ * of every element and attribute name. The elements follow in document order, each as its name number,
+ * its attributes, its child count and then either its value or its children. Numbers and lengths are
+ * written as unsigned variable-length integers, and strings as UTF-8.
+ * 
+ * <p>
+ * Both directions walk the tree with an explicit stack, so the depth of a document is not limited by
+ * the thread stack, and reading pulls the stream through one buffer rather than copying it whole first.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLBinary {
+	
+	private static final byte[] MAGIC = { 'X', 'M', 'L', 'B' };
+	
+	private static final int VERSION = 1;
+	
+	private static final XMLElement[] NO_ELEMENTS = new XMLElement[0];
+	
+	private static final int STANDALONE = 1;
+	private static final int ROOT = 2;
+	
+	private final InputStream stream;
+	
+	private final byte[] buffer;
+	private int position;
+	private int limit;
+	
+	private XMLBinary(InputStream stream) {
+		this.stream = stream;
+		this.buffer = new byte[1 << 16];
+	}
+	
+	private static void collect(XMLElement root, Map<String, Integer> names) {
+		XMLElement[] pending = { root };
+		int count = 1;
+		
+		while (count > 0) {
+			XMLElement element = pending[--count];
+			pending[count] = null;
+			
+			name(names, element.getName());
+			
+			for (XMLAttribute attribute : element.getAttributes())
+				name(names, attribute.getName());
+			
+			XMLElement[] children = element.getElements().toArray(NO_ELEMENTS);
+			
+			if (count + children.length > pending.length)
+				pending = Arrays.copyOf(pending, Math.max(pending.length * 2, count + children.length));
+			
+			for (int index = children.length - 1; index >= 0; index--)
+				pending[count++] = children[index];
+		}
+	}
+	
+	private boolean fill() throws IOException {
+		int remaining = this.limit - this.position;
+		
+		System.arraycopy(this.buffer, this.position, this.buffer, 0, remaining);
+		
+		this.position = 0;
+		this.limit = remaining;
+		
+		int count = this.stream.read(this.buffer, remaining, this.buffer.length - remaining);
+		
+		if (count <= 0)
+			return false;
+		
+		this.limit += count;
+		return true;
+	}
+	
+	private static IOException malformed() {
+		return new IOException("Binary document is malformed");
+	}
+	
+	private static void name(Map<String, Integer> names, String name) {
+		if (!names.containsKey(name))
+			names.put(name, names.size());
+	}
+	
+	/**
+	 * Reads an {@link XMLDocument} from the binary form in the given stream
+	 * 
+	 * @param stream The stream to read from
+	 * 
+	 * @param symbols The table to share names through
+	 * 
+	 * @return The document
+	 * 
+	 * @throws IOException
+	 */
+	static XMLDocument read(InputStream stream, XMLSymbolTable symbols) throws IOException {
+		return new XMLBinary(stream).readDocument(symbols);
+	}
+	
+	private XMLDocument readDocument(XMLSymbolTable symbols) throws IOException {
+		while (this.limit <= MAGIC.length) {
+			if (!fill())
+				throw new IOException("Stream is not a binary document");
+		}
+		
+		if (!Arrays.equals(Arrays.copyOf(this.buffer, MAGIC.length), MAGIC))
+			throw new IOException("Stream is not a binary document");
+		
+		this.position = MAGIC.length;
+		
+		int version = readByte();
+		
+		if (version != VERSION)
+			throw new IOException("Binary document version " + version + " is not supported");
+		
+		int flags = readByte();
+		
+		XMLDocument document = new XMLDocument(readString(), readString(), readString(), (flags & STANDALONE) != 0);
+		
+		String[] names = new String[readNumber()];
+		
+		for (int index = 0; index < names.length; index++) {
+			String name = readString();
+			
+			if (name == null)
+				throw malformed();
+			
+			names[index] = symbols.intern(name);
+		}
+		
+		if ((flags & ROOT) == 0)
+			return document;
+		
+		XMLElement[] open = new XMLElement[16];
+		int[] remaining = new int[16];
+		int depth = 0;
+		
+		XMLElement root = null;
+		
+		do {
+			XMLElement element = new XMLElement(readName(names));
+			
+			for (int count = readNumber(); count > 0; count--) {
+				String name = readName(names);
+				String value = readString();
+				
+				if (value == null)
+					throw malformed();
+				
+				element.setAttribute(name, value);
+			}
+			
+			int children = readNumber();
+			
+			if (children == 0)
+				element.setValue(readString());
+			
+			if (depth > 0) {
+				open[depth - 1].appendElement(element);
+				remaining[depth - 1]--;
+				
+			} else {
+				root = element;
+			}
+			
+			if (children > 0) {
+				if (depth == open.length) {
+					open = Arrays.copyOf(open, depth * 2);
+					remaining = Arrays.copyOf(remaining, depth * 2);
+				}
+				
+				open[depth] = element;
+				remaining[depth++] = children;
+			}
+			
+			while (depth > 0 && remaining[depth - 1] == 0)
+				open[--depth] = null;
+			
+		} while (depth > 0);
+		
+		if (this.position != this.limit || fill())
+			throw malformed();
+		
+		return document.setRoot(root);
+	}
+	
+	private int readByte() throws IOException {
+		if (this.position == this.limit && !fill())
+			throw new EOFException();
+		
+		return this.buffer[this.position++] & 0xFF;
+	}
+	
+	private String readName(String[] names) throws IOException {
+		int index = readNumber();
+		
+		if (index >= names.length)
+			throw malformed();
+		
+		return names[index];
+	}
+	
+	private int readNumber() throws IOException {
+		int number = 0;
+		
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = readByte();
+			number |= (b & 0x7F) << shift;
+			
+			if ((b & 0x80) == 0) {
+				if (number < 0)
+					throw malformed();
+				
+				return number;
+			}
+		}
+		
+		throw malformed();
+	}
+	
+	private String readString() throws IOException {
+		int length = readNumber() - 1;
+		
+		if (length < 0)
+			return null;
+		
+		if (length > this.buffer.length) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(this.buffer.length);
+			
+			while (bytes.size() < length) {
+				if (this.position == this.limit && !fill())
+					throw new EOFException();
+				
+				int count = Math.min(length - bytes.size(), this.limit - this.position);
+				
+				bytes.write(this.buffer, this.position, count);
+				this.position += count;
+			}
+			
+			return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		}
+		
+		while (this.limit - this.position < length) {
+			if (!fill())
+				throw new EOFException();
+		}
+		
+		String string = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+		this.position += length;
+		
+		return string;
+	}
+	
+	/**
+	 * Writes the {@link XMLDocument} in binary form to the given stream
+	 * 
+	 * @param document The document to write
+	 * 
+	 * @param stream The stream to write to
+	 * 
+	 * @throws IOException
+	 */
+	static void write(XMLDocument document, OutputStream stream) throws IOException {
+		Map<String, Integer> names = new HashMap<String, Integer>();
+		XMLElement root = document.hasElements() ? document.getRoot() : null;
+		
+		if (root != null)
+			collect(root, names);
+		
+		Writer writer = new Writer(stream);
+		
+		writer.write(MAGIC);
+		writer.writeByte(VERSION);
+		writer.writeByte((document.isStandalone() ? STANDALONE : 0) | ((root != null) ? ROOT : 0));
+		writer.writeString(document.getEncoding());
+		writer.writeString(document.getVersion());
+		writer.writeString(document.getSystemId());
+		
+		List<String> table = new ArrayList<String>(names.keySet());
+		
+		for (Map.Entry<String, Integer> entry : names.entrySet())
+			table.set(entry.getValue(), entry.getKey());
+		
+		writer.writeNumber(table.size());
+		
+		for (String name : table)
+			writer.writeString(name);
+		
+		if (root != null)
+			writeElements(writer, root, names);
+		
+		writer.flush();
+	}
+	
+	private static void writeElements(Writer writer, XMLElement root, Map<String, Integer> names) throws IOException {
+		XMLElement[] pending = { root };
+		int count = 1;
+		
+		while (count > 0) {
+			XMLElement element = pending[--count];
+			pending[count] = null;
+			
+			writer.writeNumber(names.get(element.getName()));
+			
+			List<XMLAttribute> attributes = element.getAttributes();
+			writer.writeNumber(attributes.size());
+			
+			for (XMLAttribute attribute : attributes) {
+				writer.writeNumber(names.get(attribute.getName()));
+				writer.writeString(attribute.getValue());
+			}
+			
+			XMLElement[] children = element.getElements().toArray(NO_ELEMENTS);
+			writer.writeNumber(children.length);
+			
+			if (children.length == 0) {
+				writer.writeString(element.getValue());
+				continue;
+			}
+			
+			if (count + children.length > pending.length)
+				pending = Arrays.copyOf(pending, Math.max(pending.length * 2, count + children.length));
+			
+			for (int index = children.length - 1; index >= 0; index--)
+				pending[count++] = children[index];
+		}
+	}
+	
+	private static final class Writer {
+		
+		private final OutputStream stream;
+		
+		private final byte[] buffer;
+		private int position;
+		
+		Writer(OutputStream stream) {
+			this.stream = stream;
+			this.buffer = new byte[1 << 16];
+		}
+		
+		void flush() throws IOException {
+			this.stream.write(this.buffer, 0, this.position);
+			this.stream.flush();
+			this.position = 0;
+		}
+		
+		void write(byte[] bytes) throws IOException {
+			if (bytes.length > this.buffer.length - this.position) {
+				this.stream.write(this.buffer, 0, this.position);
+				this.position = 0;
+				
+				if (bytes.length > this.buffer.length) {
+					this.stream.write(bytes);
+					return;
+				}
+			}
+			
+			System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+			this.position += bytes.length;
+		}
+		
+		void writeByte(int b) throws IOException {
+			if (this.position == this.buffer.length) {
+				this.stream.write(this.buffer, 0, this.position);
+				this.position = 0;
+			}
+			
+			this.buffer[this.position++] = (byte) b;
+		}
+		
+		void writeNumber(int number) throws IOException {
+			while ((number & ~0x7F) != 0) {
+				writeByte((number & 0x7F) | 0x80);
+				number >>>= 7;
+			}
+			
+			writeByte(number);
+		}
+		
+		void writeString(String string) throws IOException {
+			if (string == null) {
+				writeNumber(0);
+				return;
+			}
+			
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			
+			writeNumber(bytes.length + 1);
+			write(bytes);
+		}
+	}
+}
\ No newline at end of file
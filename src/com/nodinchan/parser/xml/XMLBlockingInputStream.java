@@ -0,0 +1,136 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Reads another InputStream in large blocks, letting a ForkJoinPool know when a read may block
+ * 
+ * <p>
+ * Reads made on a {@link ForkJoinWorkerThread} go through {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)},
+ * so the pool can start another worker while the thread waits on the file, and the parallelism of the
+ * pool is kept for parsing. Reads on other threads go straight to the stream.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLBlockingInputStream extends InputStream implements ForkJoinPool.ManagedBlocker {
+	
+	private static final int BLOCK_SIZE = 1 << 16;
+	
+	private final InputStream stream;
+	
+	private final byte[] block;
+	
+	private int position;
+	private int limit;
+	
+	private boolean ended;
+	private boolean filled;
+	
+	private IOException failure;
+	
+	XMLBlockingInputStream(InputStream stream) {
+		this.stream = stream;
+		this.block = new byte[BLOCK_SIZE];
+	}
+	
+	@Override
+	public int available() {
+		return this.limit - this.position;
+	}
+	
+	@Override
+	public boolean block() {
+		try {
+			int count = this.stream.read(this.block, 0, this.block.length);
+			
+			this.ended = count < 0;
+			this.limit = Math.max(count, 0);
+			
+		} catch (IOException e) {
+			this.failure = e;
+		}
+		
+		this.position = 0;
+		this.filled = true;
+		return true;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.stream.close();
+	}
+	
+	private boolean fill() throws IOException {
+		while (this.position == this.limit && !this.ended) {
+			this.filled = false;
+			
+			if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+				try {
+					ForkJoinPool.managedBlock(this);
+					
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+				
+			} else {
+				block();
+			}
+			
+			if (this.failure != null)
+				throw this.failure;
+		}
+		
+		return this.position < this.limit;
+	}
+	
+	@Override
+	public boolean isReleasable() {
+		return this.filled;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		if (this.position == this.limit && !fill())
+			return -1;
+		
+		return this.block[this.position++] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		
+		if (this.position == this.limit && !fill())
+			return -1;
+		
+		int count = Math.min(length, this.limit - this.position);
+		
+		System.arraycopy(this.block, this.position, buffer, offset, count);
+		this.position += count;
+		return count;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,242 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the boundaries between the children of the root element in a file, without parsing it
+ * 
+ * <p>
+ * Only markup is tracked, so the scan is far cheaper than a parse. Documents the scan cannot
+ * split safely, such as those with a document type declaration or an encoding that is not
+ * ASCII-compatible, are rejected so they can be parsed sequentially.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLBoundaryScanner implements XMLMarkupScanner.Handler {
+	
+	private static final Pattern ENCODING = Pattern.compile("^<\\?xml[^>]*\\sencoding\\s*=\\s*[\"']([A-Za-z0-9._-]+)[\"']");
+	
+	private final FileChannel channel;
+	
+	private final long chunkSize;
+	
+	private final List<Long> boundaries;
+	
+	private long rootStart = -1;
+	private long rootNameEnd = -1;
+	private long rootContentStart = -1;
+	private long rootEnd = -1;
+	
+	private long previous = -1;
+	
+	private int depth;
+	
+	private boolean complete;
+	
+	XMLBoundaryScanner(FileChannel channel, long chunkSize) {
+		this.channel = channel;
+		this.chunkSize = chunkSize;
+		this.boundaries = new ArrayList<Long>();
+	}
+	
+	@Override
+	public boolean endTag(long start, long end) {
+		if (--this.depth == 1) {
+			split(end);
+			return true;
+		}
+		
+		if (this.depth > 0)
+			return true;
+		
+		this.rootEnd = start;
+		this.complete = true;
+		
+		if (!this.boundaries.isEmpty() && this.boundaries.get(this.boundaries.size() - 1) >= start)
+			this.boundaries.remove(this.boundaries.size() - 1);
+		
+		return false;
+	}
+	
+	/**
+	 * Returns the positions after the children at which the root content is split
+	 * 
+	 * @return The boundaries, in order
+	 */
+	List<Long> getBoundaries() {
+		return this.boundaries;
+	}
+	
+	/**
+	 * Returns the charset of a document from its first bytes, if markup can be found in it byte by byte
+	 * 
+	 * @param head The first bytes of the document
+	 * 
+	 * @param length The number of bytes to look at
+	 * 
+	 * @return The charset if ASCII-compatible, otherwise null
+	 */
+	static Charset getCharset(ByteBuffer head, int length) {
+		int start = 0;
+		
+		if (length >= 3 && (head.get(0) & 0xFF) == 0xEF && (head.get(1) & 0xFF) == 0xBB && (head.get(2) & 0xFF) == 0xBF)
+			start = 3;
+		
+		if (length <= start || head.get(start) != '<')
+			return null;
+		
+		byte[] bytes = new byte[length - start];
+		
+		for (int index = 0; index < bytes.length; index++)
+			bytes[index] = head.get(start + index);
+		
+		Matcher matcher = ENCODING.matcher(new String(bytes, StandardCharsets.ISO_8859_1));
+		
+		if (!matcher.find())
+			return StandardCharsets.UTF_8;
+		
+		String encoding = matcher.group(1).toUpperCase();
+		
+		if (!encoding.equals("UTF-8") && !encoding.equals("US-ASCII") && !encoding.equals("ASCII") && !encoding.startsWith("ISO-8859-"))
+			return null;
+		
+		try {
+			return Charset.forName(encoding);
+			
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the position just after the start tag of the root element
+	 * 
+	 * @return The root content position
+	 */
+	long getRootContentStart() {
+		return this.rootContentStart;
+	}
+	
+	/**
+	 * Returns the position of the end tag of the root element
+	 * 
+	 * @return The root end position
+	 */
+	long getRootEnd() {
+		return this.rootEnd;
+	}
+	
+	/**
+	 * Returns the position just after the root element name
+	 * 
+	 * @return The root name end position
+	 */
+	long getRootNameEnd() {
+		return this.rootNameEnd;
+	}
+	
+	/**
+	 * Returns the position of the first character of the root element name
+	 * 
+	 * @return The root name position
+	 */
+	long getRootNameStart() {
+		return this.rootStart + 1;
+	}
+	
+	/**
+	 * Scans the file for the root element and the boundaries between its children
+	 * 
+	 * @return True if the document can be split, otherwise false
+	 * 
+	 * @throws IOException
+	 */
+	boolean scan() throws IOException {
+		XMLMarkupScanner scanner = new XMLMarkupScanner(this);
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+		
+		long position = 0;
+		int count;
+		
+		while ((count = this.channel.read(buffer, position)) > 0) {
+			if (position == 0 && getCharset(buffer, Math.min(buffer.position(), 256)) == null)
+				return false;
+			
+			if (!scanner.scan(buffer.array(), 0, buffer.position(), position))
+				return this.complete;
+			
+			position += count;
+			buffer.clear();
+		}
+		
+		return false;
+	}
+	
+	private void split(long position) {
+		if (position - this.previous < this.chunkSize)
+			return;
+		
+		this.boundaries.add(position);
+		this.previous = position;
+	}
+	
+	@Override
+	public boolean startTag(long start) {
+		if (this.depth == 0)
+			this.rootStart = start;
+		
+		return true;
+	}
+	
+	@Override
+	public boolean startTagEnd(long end, boolean empty) {
+		if (!empty) {
+			if (++this.depth == 1) {
+				this.rootContentStart = end;
+				this.previous = end;
+			}
+			
+			return true;
+		}
+		
+		if (this.depth == 0)
+			return false;
+		
+		if (this.depth == 1)
+			split(end);
+		
+		return true;
+	}
+	
+	@Override
+	public void startTagName(long end) {
+		if (this.depth == 0 && this.rootNameEnd < 0)
+			this.rootNameEnd = end;
+	}
+}
\ No newline at end of file
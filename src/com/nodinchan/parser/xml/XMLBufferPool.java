@@ -0,0 +1,90 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the buffers of finished parses for the next ones, so that parsing many small documents
+ * does not allocate a buffer for each
+ * 
+ * <p>
+ * Taking and returning buffers never locks. Buffers that have grown past the limit are dropped
+ * rather than kept.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLBufferPool {
+	
+	private static final int INITIAL_SIZE = 1 << 13;
+	
+	private static final int MAX_KEPT_SIZE = 1 << 20;
+	
+	private final AtomicReferenceArray<Buffers> slots;
+	
+	XMLBufferPool(int size) {
+		this.slots = new AtomicReferenceArray<Buffers>(size);
+	}
+	
+	/**
+	 * Takes a set of buffers from the pool, creating one if none is free
+	 * 
+	 * @return The buffers
+	 */
+	Buffers acquire() {
+		for (int slot = 0; slot < this.slots.length(); slot++) {
+			Buffers buffers = this.slots.get(slot);
+			
+			if (buffers != null && this.slots.compareAndSet(slot, buffers, null))
+				return buffers;
+		}
+		
+		return new Buffers();
+	}
+	
+	/**
+	 * Returns a set of buffers to the pool once no longer used
+	 * 
+	 * @param buffers The buffers
+	 */
+	void release(Buffers buffers) {
+		if (buffers.characters.length > MAX_KEPT_SIZE || buffers.bytes.length > MAX_KEPT_SIZE)
+			return;
+		
+		for (int slot = 0; slot < this.slots.length(); slot++) {
+			if (this.slots.get(slot) == null && this.slots.compareAndSet(slot, null, buffers))
+				return;
+		}
+	}
+	
+	/**
+	 * Holds the character and byte buffers of one parse
+	 */
+	static final class Buffers {
+		
+		char[] characters;
+		
+		byte[] bytes;
+		
+		private Buffers() {
+			this.characters = new char[INITIAL_SIZE];
+			this.bytes = new byte[INITIAL_SIZE];
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a range of a FileChannel, so several streams can share one channel
+ * 
+ * <p>
+ * Large ranges are read through a memory-mapped window that slides along the range, which also
+ * covers files beyond the 2 GB a single mapping can hold. Small ranges use positional reads,
+ * where mapping would cost more than it saves.
+ * 
+ * <p>
+ * A mapping cannot be unmapped directly, and stays until the window is garbage collected.
+ * Closing the stream drops the window, so its mapping can be released without waiting for
+ * the stream itself to become unreachable. The channel is left open for the other streams.
+ * 
+ * @author NodinChan
+ *
+ */
+final class XMLChannelInputStream extends InputStream {
+	
+	private static final long MAP_THRESHOLD = 1 << 20;
+	
+	private static final long WINDOW_SIZE = 1 << 26;
+	
+	private final FileChannel channel;
+	
+	private final long end;
+	
+	private final boolean mapped;
+	
+	private final byte[] single;
+	
+	private boolean closed;
+	
+	private long position;
+	
+	private MappedByteBuffer window;
+	
+	XMLChannelInputStream(FileChannel channel, long start, long end) {
+		this.channel = channel;
+		this.position = start;
+		this.end = end;
+		this.mapped = end - start >= MAP_THRESHOLD;
+		this.single = new byte[1];
+	}
+	
+	@Override
+	public int available() {
+		if (this.closed)
+			return 0;
+		
+		return (int) Math.min(Integer.MAX_VALUE, this.end - this.position);
+	}
+	
+	/**
+	 * Closes the stream and drops its window, leaving the channel open
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		this.window = null;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		return (read(this.single, 0, 1) < 0) ? -1 : this.single[0] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (this.closed)
+			throw new IOException("Stream is closed");
+		
+		if (length == 0)
+			return 0;
+		
+		if (this.position >= this.end)
+			return -1;
+		
+		int count = (int) Math.min(length, this.end - this.position);
+		
+		if (this.mapped) {
+			if (this.window == null || !this.window.hasRemaining())
+				this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, Math.min(WINDOW_SIZE, this.end - this.position));
+			
+			count = Math.min(count, this.window.remaining());
+			this.window.get(buffer, offset, count);
+			
+		} else {
+			count = this.channel.read(ByteBuffer.wrap(buffer, offset, count), this.position);
+			
+			if (count < 0)
+				return -1;
+		}
+		
+		this.position += count;
+		return count;
+	}
+	
+	@Override
+	public long skip(long count) {
+		long skipped = Math.max(0, Math.min(count, this.end - this.position));
+		
+		this.position += skipped;
+		this.window = null;
+		return skipped;
+	}
+}
\ No newline at end of file
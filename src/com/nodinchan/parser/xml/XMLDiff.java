@@ -0,0 +1,277 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the edits that turn one XML node into another
+ * 
+ * <p>
+ * Children are compared by {@link XMLElement#getStructuralHash()}, so a subtree equal in both nodes is
+ * passed over without being walked, and only the parts that differ are compared further. Any change to
+ * an element drops the hashes of it and its ancestors, so a node can be compared again after being
+ * changed, however it was changed. The names of the two nodes themselves are not compared.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLDiff {
+	
+	private final List<XMLEdit> edits;
+	
+	private int[] path;
+	
+	private XMLDiff() {
+		this.edits = new ArrayList<XMLEdit>();
+		this.path = new int[16];
+	}
+	
+	private void add(XMLEditType type, int depth, int position, String name, String value, XMLElement element) {
+		this.edits.add(new XMLEdit(type, Arrays.copyOf(this.path, depth), position, name, value, element));
+	}
+	
+	/**
+	 * Applies the edits to the given node, which must be equal to the node compared from
+	 * 
+	 * <p>
+	 * The edits are applied in order, so a node that is not equal to the node compared from
+	 * may be left partly changed.
+	 * 
+	 * @param node The node to change
+	 * 
+	 * @return The node changed
+	 */
+	public XMLHierarchical apply(XMLHierarchical node) {
+		if (node == null)
+			throw new IllegalArgumentException("Node cannot be null");
+		
+		for (XMLEdit edit : this.edits)
+			edit.apply(node);
+		
+		return node;
+	}
+	
+	/**
+	 * Compares two nodes, finding the edits that turn the first into the second
+	 * 
+	 * @param from The node to compare from
+	 * 
+	 * @param to The node to compare to
+	 * 
+	 * @return The diff
+	 */
+	public static XMLDiff compare(XMLHierarchical from, XMLHierarchical to) {
+		if (from == null || to == null)
+			throw new IllegalArgumentException("Node cannot be null");
+		
+		XMLDiff diff = new XMLDiff();
+		
+		if (from instanceof XMLElement && to instanceof XMLElement)
+			diff.compareElements((XMLElement) from, (XMLElement) to, 0);
+		else
+			diff.compareChildren(from, to, 0);
+		
+		diff.path = null;
+		return diff;
+	}
+	
+	private void compareAttributes(XMLElement from, XMLElement to, int depth) {
+		List<XMLAttribute> fromAttributes = from.getAttributes();
+		List<XMLAttribute> toAttributes = to.getAttributes();
+		
+		List<String> names = new ArrayList<String>(toAttributes.size());
+		
+		for (XMLAttribute attribute : fromAttributes) {
+			if (to.hasAttribute(attribute.getName()))
+				names.add(attribute.getName());
+		}
+		
+		for (XMLAttribute attribute : toAttributes) {
+			if (!from.hasAttribute(attribute.getName()))
+				names.add(attribute.getName());
+		}
+		
+		boolean ordered = true;
+		
+		for (int index = 0; index < names.size() && ordered; index++)
+			ordered = names.get(index).equals(toAttributes.get(index).getName());
+		
+		for (XMLAttribute attribute : fromAttributes) {
+			if (!ordered || !to.hasAttribute(attribute.getName()))
+				add(XMLEditType.ATTRIBUTE, depth, -1, attribute.getName(), null, null);
+		}
+		
+		for (XMLAttribute attribute : toAttributes) {
+			if (!ordered || !attribute.getValue().equals(from.getAttributeValue(attribute.getName())))
+				add(XMLEditType.ATTRIBUTE, depth, -1, attribute.getName(), attribute.getValue(), null);
+		}
+	}
+	
+	private void compareChildren(XMLHierarchical from, XMLHierarchical to, int depth) {
+		List<XMLElement> fromElements = from.getElements();
+		List<XMLElement> toElements = to.getElements();
+		
+		int start = 0;
+		int fromEnd = fromElements.size();
+		int toEnd = toElements.size();
+		
+		while (start < fromEnd && start < toEnd && fromElements.get(start).getStructuralHash() == toElements.get(start).getStructuralHash())
+			start++;
+		
+		while (fromEnd > start && toEnd > start && fromElements.get(fromEnd - 1).getStructuralHash() == toElements.get(toEnd - 1).getStructuralHash()) {
+			fromEnd--;
+			toEnd--;
+		}
+		
+		if (start == fromEnd && start == toEnd)
+			return;
+		
+		Map<Long, Integer> fromRemaining = count(fromElements, start, fromEnd);
+		Map<Long, Integer> toRemaining = count(toElements, start, toEnd);
+		
+		int position = start;
+		int fromIndex = start;
+		int toIndex = start;
+		
+		if (depth == this.path.length)
+			this.path = Arrays.copyOf(this.path, depth * 2);
+		
+		while (fromIndex < fromEnd || toIndex < toEnd) {
+			XMLElement fromElement = (fromIndex < fromEnd) ? fromElements.get(fromIndex) : null;
+			XMLElement toElement = (toIndex < toEnd) ? toElements.get(toIndex) : null;
+			
+			long fromHash = (fromElement != null) ? fromElement.getStructuralHash() : 0;
+			long toHash = (toElement != null) ? toElement.getStructuralHash() : 0;
+			
+			boolean removing = toElement == null;
+			boolean inserting = fromElement == null;
+			
+			if (fromElement != null && toElement != null) {
+				if (fromHash == toHash) {
+					take(fromRemaining, fromHash);
+					take(toRemaining, toHash);
+					
+					fromIndex++;
+					toIndex++;
+					position++;
+					continue;
+				}
+				
+				boolean fromLater = toRemaining.containsKey(fromHash);
+				boolean toLater = fromRemaining.containsKey(toHash);
+				
+				if (toLater && !fromLater) {
+					removing = true;
+					
+				} else if (fromLater && !toLater) {
+					inserting = true;
+					
+				} else if (fromElement.getName().equals(toElement.getName())) {
+					this.path[depth] = position;
+					compareElements(fromElement, toElement, depth + 1);
+					
+					take(fromRemaining, fromHash);
+					take(toRemaining, toHash);
+					
+					fromIndex++;
+					toIndex++;
+					position++;
+					continue;
+					
+				} else {
+					removing = true;
+					inserting = true;
+				}
+			}
+			
+			if (removing) {
+				add(XMLEditType.REMOVE, depth, position, null, null, null);
+				take(fromRemaining, fromHash);
+				fromIndex++;
+			}
+			
+			if (inserting) {
+				add(XMLEditType.INSERT, depth, position, null, null, toElement.copy());
+				take(toRemaining, toHash);
+				toIndex++;
+				position++;
+			}
+		}
+	}
+	
+	private void compareElements(XMLElement from, XMLElement to, int depth) {
+		if (from.getStructuralHash() == to.getStructuralHash())
+			return;
+		
+		compareAttributes(from, to, depth);
+		
+		if (to.hasElements()) {
+			compareChildren(from, to, depth);
+			return;
+		}
+		
+		String value = (to.getValue() != null) ? to.getValue() : "";
+		
+		if (from.hasElements() || !value.equals((from.getValue() != null) ? from.getValue() : ""))
+			add(XMLEditType.VALUE, depth, -1, null, value, null);
+	}
+	
+	private static Map<Long, Integer> count(List<XMLElement> elements, int start, int end) {
+		Map<Long, Integer> counts = new HashMap<Long, Integer>();
+		
+		for (int index = start; index < end; index++) {
+			Long hash = elements.get(index).getStructuralHash();
+			Integer count = counts.get(hash);
+			
+			counts.put(hash, (count != null) ? count + 1 : 1);
+		}
+		
+		return counts;
+	}
+	
+	/**
+	 * Returns the edits in the order they are applied
+	 * 
+	 * @return The list of edits
+	 */
+	public List<XMLEdit> getEdits() {
+		return Collections.unmodifiableList(this.edits);
+	}
+	
+	/**
+	 * Indicates whether the nodes compared are equal
+	 * 
+	 * @return True if there are no edits, otherwise false
+	 */
+	public boolean isEmpty() {
+		return this.edits.isEmpty();
+	}
+	
+	private static void take(Map<Long, Integer> counts, long hash) {
+		Integer count = counts.remove(hash);
+		
+		if (count != null && count > 1)
+			counts.put(hash, count - 1);
+	}
+}
\ No newline at end of file
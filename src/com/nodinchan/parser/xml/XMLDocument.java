@@ -17,10 +17,13 @@
 
 package com.nodinchan.parser.xml;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents an XML document
@@ -36,6 +39,12 @@ public final class XMLDocument extends XMLHierarchical {
 	
 	private final boolean standalone;
 	
+	private volatile ConcurrentMap<String, XMLAttributeIndex> indexes;
+	
+	private volatile boolean incrementalCompose;
+	
+	private volatile XMLMetricsListener metricsListener;
+	
 	/**
 	 * Constructs an {@link XMLDocument} with the given encoding, version, system ID, and standalone value
 	 * 
@@ -95,6 +104,18 @@ public final class XMLDocument extends XMLHierarchical {
 		this("UTF-8", "1.0", "", false);
 	}
 	
+	/**
+	 * Sets the listener told of each compose and save of the {@link XMLDocument}
+	 * 
+	 * @param metricsListener The metrics listener, or null to measure nothing
+	 * 
+	 * @return The document
+	 */
+	public XMLDocument setMetricsListener(XMLMetricsListener metricsListener) {
+		this.metricsListener = metricsListener;
+		return this;
+	}
+	
 	/**
 	 * Sets the {@link XMLElement} as the root of the {@link XMLDocument}
 	 * 
@@ -121,6 +142,26 @@ public final class XMLDocument extends XMLHierarchical {
 		return setRoot(element);
 	}
 	
+	private static void dropFragments(XMLElement element) {
+		if (element.hasFragment()) {
+			element.setFragment(null, 0, null);
+			return;
+		}
+		
+		for (XMLElement child : element.getElements())
+			dropFragments(child);
+	}
+	
+	/**
+	 * Copies the {@link XMLDocument} into an {@link XMLFrozenDocument}, which cannot change
+	 * and takes far less memory
+	 * 
+	 * @return The frozen document
+	 */
+	public XMLFrozenDocument freeze() {
+		return new XMLFrozenDocument(this);
+	}
+	
 	/**
 	 * Returns the encoding used for the XML document
 	 * 
@@ -130,6 +171,20 @@ public final class XMLDocument extends XMLHierarchical {
 		return encoding;
 	}
 	
+	@Override
+	XMLDocument getIndexedDocument() {
+		return (this.indexes != null) ? this : null;
+	}
+	
+	/**
+	 * Returns the listener told of each compose and save of the {@link XMLDocument}
+	 * 
+	 * @return The metrics listener, or null if none
+	 */
+	public XMLMetricsListener getMetricsListener() {
+		return this.metricsListener;
+	}
+	
 	/**
 	 * Returns the root {@link XMLElement} of of the XML document
 	 * 
@@ -139,7 +194,7 @@ public final class XMLDocument extends XMLHierarchical {
 		if (getElementCount() < 1)
 			throw new IllegalStateException("Document must have a root");
 		
-		return getElements().get(0);
+		return getElement(0);
 	}
 	
 	/**
@@ -160,6 +215,68 @@ public final class XMLDocument extends XMLHierarchical {
 		return version;
 	}
 	
+	/**
+	 * Returns the index of the {@link XMLElement}s in the {@link XMLDocument} by the value of the given attribute,
+	 * creating it if needed
+	 * 
+	 * <p>
+	 * Creating an index walks the document once, building any unbuilt elements, so it should be done before
+	 * the document is changed from other threads. The index is then kept up to date by every change.
+	 * 
+	 * @param attributeName The attribute name
+	 * 
+	 * @return The index
+	 */
+	public synchronized XMLAttributeIndex indexBy(String attributeName) {
+		if (attributeName == null || attributeName.isEmpty())
+			throw new IllegalArgumentException("Attribute name cannot be empty");
+		
+		ConcurrentMap<String, XMLAttributeIndex> indexes = this.indexes;
+		
+		if (indexes == null)
+			this.indexes = indexes = new ConcurrentHashMap<String, XMLAttributeIndex>();
+		
+		XMLAttributeIndex index = indexes.get(attributeName);
+		
+		if (index != null)
+			return index;
+		
+		index = new XMLAttributeIndex(attributeName);
+		
+		for (XMLElement element : getElements())
+			index(this, index, element);
+		
+		indexes.put(attributeName, index);
+		return index;
+	}
+	
+	private static void index(XMLDocument document, XMLAttributeIndex index, XMLElement element) {
+		String value = element.getAttributeValue(index.getAttributeName());
+		
+		if (value != null)
+			index.add(value, element);
+		
+		element.setIndexedDocument(document);
+		
+		for (XMLElement child : element.getElements())
+			index(document, index, child);
+	}
+	
+	/**
+	 * Adds the {@link XMLElement} and its descendants to every index, once attached to the document
+	 * 
+	 * @param element The element attached
+	 */
+	void indexElements(XMLElement element) {
+		ConcurrentMap<String, XMLAttributeIndex> indexes = this.indexes;
+		
+		if (indexes == null)
+			return;
+		
+		for (XMLAttributeIndex index : indexes.values())
+			index(this, index, element);
+	}
+	
 	/**
 	 * Sets the {@link XMLElement} as the root of the {@link XMLDocument}
 	 * 
@@ -174,6 +291,15 @@ public final class XMLDocument extends XMLHierarchical {
 		return setRoot(element);
 	}
 	
+	/**
+	 * Indicates whether composing reuses the text of elements unchanged since last composed
+	 * 
+	 * @return True if composing incrementally, otherwise false
+	 */
+	public boolean isIncrementalCompose() {
+		return this.incrementalCompose;
+	}
+	
 	/**
 	 * Returns whether the XML document has an internal DTD or is linked to an external DTD,
 	 * or any external entity references
@@ -184,6 +310,24 @@ public final class XMLDocument extends XMLHierarchical {
 		return standalone;
 	}
 	
+	/**
+	 * Makes the {@link XMLDocument} safe to read and change from many threads at once
+	 * 
+	 * <p>
+	 * Reads never lock, and each sees a change to an element either whole or not at all. A change locks
+	 * only the element it changes, so threads changing different elements do not wait on each other.
+	 * This cannot be undone, and must be done before the document is shared. Children are no longer
+	 * indexed by name, and each change copies the children or attributes it changes, so the mode suits
+	 * documents that are read far more often than changed.
+	 * 
+	 * @return The document
+	 */
+	@Override
+	public XMLDocument makeConcurrent() {
+		super.makeConcurrent();
+		return this;
+	}
+	
 	/**
 	 * Sets the {@link XMLElement} as the root of the {@link XMLDocument}
 	 * 
@@ -210,6 +354,35 @@ public final class XMLDocument extends XMLHierarchical {
 		return setRoot(element);
 	}
 	
+	/**
+	 * Moves the {@link XMLElement} in the index of the given attribute from one value to another
+	 * 
+	 * @param element The element changed
+	 * 
+	 * @param name The attribute name
+	 * 
+	 * @param previous The previous value, or null if the attribute is added
+	 * 
+	 * @param value The new value, or null if the attribute is removed
+	 */
+	void reindexAttribute(XMLElement element, String name, String previous, String value) {
+		ConcurrentMap<String, XMLAttributeIndex> indexes = this.indexes;
+		
+		if (indexes == null)
+			return;
+		
+		XMLAttributeIndex index = indexes.get(name);
+		
+		if (index == null)
+			return;
+		
+		if (previous != null)
+			index.remove(previous, element);
+		
+		if (value != null)
+			index.add(value, element);
+	}
+	
 	@Override
 	public XMLDocument removeElement(XMLElement element) {
 		super.removeElement(element);
@@ -242,10 +415,37 @@ public final class XMLDocument extends XMLHierarchical {
 		if (!file.getName().endsWith(".xml"))
 			throw new IllegalArgumentException("File extension cannot be other than .xml");
 		
-		BufferedWriter writer = new BufferedWriter(new FileWriter(file, false));
+		OutputStream stream = new FileOutputStream(file, false);
+		
+		try {
+			XMLParser.compose(this, stream);
+			
+		} finally {
+			stream.close();
+		}
+	}
+	
+	/**
+	 * Sets whether composing reuses the text of elements unchanged since last composed
+	 * 
+	 * <p>
+	 * Each element of up to 64K characters keeps its composed text, taking about as much memory as the
+	 * composed document, and a change drops the text of the element and its ancestors only. Saving a large
+	 * document after a few changes then composes only the changed elements. A concurrent document is always
+	 * composed whole.
+	 * 
+	 * @param incrementalCompose True to compose incrementally
+	 * 
+	 * @return The document
+	 */
+	public synchronized XMLDocument setIncrementalCompose(boolean incrementalCompose) {
+		if (this.incrementalCompose && !incrementalCompose) {
+			for (XMLElement element : getElements())
+				dropFragments(element);
+		}
 		
-		writer.write(XMLParser.compose(this));
-		writer.close();
+		this.incrementalCompose = incrementalCompose;
+		return this;
 	}
 	
 	/**
@@ -259,9 +459,62 @@ public final class XMLDocument extends XMLHierarchical {
 		if (element == null)
 			throw new IllegalArgumentException("Root cannot be null");
 		
+		if (element.getParent() == this)
+			return this;
+		
+		if (getElementCount() == 1) {
+			setElement(0, element);
+			return this;
+		}
+		
 		removeElements();
 		
 		super.insertElement(element, 0);
 		return this;
 	}
+	
+	private static void unindex(XMLAttributeIndex index, XMLElement element) {
+		String value = element.getAttributeValue(index.getAttributeName());
+		
+		if (value != null)
+			index.remove(value, element);
+		
+		element.setIndexedDocument(null);
+		
+		for (XMLElement child : element.getElements())
+			unindex(index, child);
+	}
+	
+	/**
+	 * Removes the {@link XMLElement} and its descendants from every index, once detached from the document
+	 * 
+	 * @param element The element detached
+	 */
+	void unindexElements(XMLElement element) {
+		ConcurrentMap<String, XMLAttributeIndex> indexes = this.indexes;
+		
+		if (indexes == null)
+			return;
+		
+		for (XMLAttributeIndex index : indexes.values())
+			unindex(index, element);
+	}
+	
+	/**
+	 * Writes the {@link XMLDocument} in a compact binary form, to be read back by {@link XMLParser#readBinary(InputStream)}
+	 * 
+	 * <p>
+	 * Names are written once in a table and referenced by number, and lengths are written as
+	 * variable-length integers, so the form is smaller than the text and loads without tokenizing.
+	 * 
+	 * @param stream The stream to write to
+	 * 
+	 * @throws IOException
+	 */
+	public void writeBinary(OutputStream stream) throws IOException {
+		if (stream == null)
+			throw new IllegalArgumentException("Stream cannot be null");
+		
+		XMLBinary.write(this, stream);
+	}
 }
\ No newline at end of file
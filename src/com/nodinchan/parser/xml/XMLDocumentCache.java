@@ -0,0 +1,435 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents a cache of parsed XML files, shared between threads
+ * 
+ * <p>
+ * Each file is kept as an {@link XMLFrozenDocument}, so one copy can be read by every caller,
+ * and is parsed again once its modification time or size changes, or its content when hashing.
+ * Once their estimated memory exceeds the budget, documents are evicted by a clock that passes over
+ * them in the order they were cached, sparing each once if it was used since it was last passed.
+ * Callers asking for a file that is being parsed wait for that parse instead of starting another.
+ * 
+ * <p>
+ * A lookup that finds its document only marks it as used, without locking. Files are
+ * parsed strictly, so a file that is not well-formed throws and is not cached.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLDocumentCache {
+	
+	private final ConcurrentMap<Path, Entry> entries;
+	
+	private final Queue<Entry> clock;
+	
+	private long budget;
+	private long size;
+	
+	private volatile boolean hashingContent;
+	
+	private volatile XMLParserConfig parserConfig;
+	
+	private long evictionCount;
+	private final LongAdder hitCount;
+	private long missCount;
+	
+	/**
+	 * Constructs an {@link XMLDocumentCache} keeping up to the given estimated bytes of documents
+	 * 
+	 * @param budget The maximum estimated size of the cached documents
+	 */
+	public XMLDocumentCache(long budget) {
+		if (budget <= 0)
+			throw new IllegalArgumentException("Budget must be positive");
+		
+		this.entries = new ConcurrentHashMap<Path, Entry>();
+		this.clock = new ArrayDeque<Entry>();
+		this.hitCount = new LongAdder();
+		this.budget = budget;
+		this.parserConfig = XMLParser.DEFAULT_CONFIG;
+	}
+	
+	/**
+	 * Removes every document from the cache
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.clock.clear();
+		this.size = 0;
+	}
+	
+	private void enqueue(Entry entry) {
+		if (this.clock.size() >= this.entries.size() * 2) {
+			for (Iterator<Entry> iterator = this.clock.iterator(); iterator.hasNext();) {
+				Entry queued = iterator.next();
+				
+				if (this.entries.get(queued.key) != queued)
+					iterator.remove();
+			}
+		}
+		
+		this.clock.add(entry);
+	}
+	
+	private void evict() {
+		for (int passes = this.clock.size() * 2; this.size > this.budget && passes > 0; passes--) {
+			Entry entry = this.clock.poll();
+			
+			if (this.entries.get(entry.key) != entry)
+				continue;
+			
+			if (entry.referenced || !entry.task.isDone()) {
+				entry.referenced = false;
+				this.clock.add(entry);
+				continue;
+			}
+			
+			this.entries.remove(entry.key, entry);
+			this.size -= entry.size;
+			this.evictionCount++;
+		}
+	}
+	
+	/**
+	 * Returns the shared {@link XMLFrozenDocument} parsed from the given file, parsing it if not cached or changed
+	 * 
+	 * @param file The file to get
+	 * 
+	 * @return The cached document
+	 * 
+	 * @throws IOException
+	 */
+	public XMLFrozenDocument get(Path file) throws IOException {
+		if (file == null)
+			throw new IllegalArgumentException("File cannot be null");
+		
+		final Path key = file.toAbsolutePath().normalize();
+		final XMLParserConfig config = this.parserConfig;
+		boolean hashing = this.hashingContent;
+		
+		BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+		
+		final byte[] content = hashing ? Files.readAllBytes(key) : null;
+		byte[] digest = hashing ? hash(content) : null;
+		
+		long modified = attributes.lastModifiedTime().toMillis();
+		long length = attributes.size();
+		
+		Entry entry = this.entries.get(key);
+		boolean loading = false;
+		
+		if (entry != null && entry.matches(modified, length, digest)) {
+			this.hitCount.increment();
+			
+			if (!entry.referenced)
+				entry.referenced = true;
+			
+		} else {
+			synchronized (this) {
+				entry = this.entries.get(key);
+				
+				if (entry != null && !entry.matches(modified, length, digest)) {
+					this.entries.remove(key);
+					this.size -= entry.size;
+					entry = null;
+				}
+				
+				loading = entry == null;
+				
+				if (loading) {
+					entry = new Entry(key, modified, length, digest, new FutureTask<XMLFrozenDocument>(new Callable<XMLFrozenDocument>() {
+						
+						@Override
+						public XMLFrozenDocument call() throws Exception {
+							if (content != null)
+								return XMLParser.parseStrictly(new ByteArrayInputStream(content), config).freeze();
+							
+							FileChannel channel = FileChannel.open(key, StandardOpenOption.READ);
+							
+							try {
+								return XMLParser.parseStrictly(new XMLChannelInputStream(channel, 0, channel.size()), config).freeze();
+								
+							} finally {
+								channel.close();
+							}
+						}
+					}));
+					
+					this.entries.put(key, entry);
+					enqueue(entry);
+					this.missCount++;
+					
+				} else {
+					this.hitCount.increment();
+					entry.referenced = true;
+				}
+			}
+		}
+		
+		if (loading) {
+			entry.task.run();
+			
+			synchronized (this) {
+				if (this.entries.get(key) == entry) {
+					try {
+						entry.size = entry.task.get().getEstimatedSize();
+						
+						this.size += entry.size;
+						evict();
+						
+					} catch (Exception e) {
+						this.entries.remove(key);
+					}
+				}
+			}
+		}
+		
+		try {
+			return entry.task.get();
+			
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for " + key);
+			
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			
+			if (cause instanceof Error)
+				throw (Error) cause;
+			
+			throw new IOException(cause);
+		}
+	}
+	
+	/**
+	 * Returns the maximum estimated size of the cached documents
+	 * 
+	 * @return The budget in bytes
+	 */
+	public synchronized long getBudget() {
+		return this.budget;
+	}
+	
+	/**
+	 * Returns an {@link XMLDocument} that can be changed, copied from the cached document of the given file
+	 * 
+	 * @param file The file to get
+	 * 
+	 * @return The copied document
+	 * 
+	 * @throws IOException
+	 */
+	public XMLDocument getCopy(Path file) throws IOException {
+		return get(file).thaw();
+	}
+	
+	/**
+	 * Returns the number of documents cached or being parsed
+	 * 
+	 * @return The entry count
+	 */
+	public synchronized int getEntryCount() {
+		return this.entries.size();
+	}
+	
+	/**
+	 * Returns the number of documents evicted to stay within the budget
+	 * 
+	 * @return The eviction count
+	 */
+	public synchronized long getEvictionCount() {
+		return this.evictionCount;
+	}
+	
+	/**
+	 * Returns the number of lookups answered without parsing
+	 * 
+	 * @return The hit count
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+	
+	/**
+	 * Returns the number of lookups that parsed the file
+	 * 
+	 * @return The miss count
+	 */
+	public synchronized long getMissCount() {
+		return this.missCount;
+	}
+	
+	/**
+	 * Returns the options used to parse each file
+	 * 
+	 * @return The parser config
+	 */
+	public XMLParserConfig getParserConfig() {
+		return this.parserConfig;
+	}
+	
+	/**
+	 * Returns the estimated size of the cached documents
+	 * 
+	 * @return The size in bytes
+	 */
+	public synchronized long getSize() {
+		return this.size;
+	}
+	
+	private static byte[] hash(byte[] content) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(content);
+			
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Removes the document of the given file from the cache
+	 * 
+	 * @param file The file to remove
+	 */
+	public synchronized void invalidate(Path file) {
+		if (file == null)
+			throw new IllegalArgumentException("File cannot be null");
+		
+		Entry entry = this.entries.remove(file.toAbsolutePath().normalize());
+		
+		if (entry != null)
+			this.size -= entry.size;
+	}
+	
+	/**
+	 * Indicates whether files are checked for changes by hashing their content
+	 * 
+	 * @return True if hashing content, otherwise false
+	 */
+	public boolean isHashingContent() {
+		return this.hashingContent;
+	}
+	
+	/**
+	 * Sets the maximum estimated size of the cached documents, evicting documents to fit
+	 * 
+	 * @param budget The budget in bytes
+	 * 
+	 * @return The cache
+	 */
+	public synchronized XMLDocumentCache setBudget(long budget) {
+		if (budget <= 0)
+			throw new IllegalArgumentException("Budget must be positive");
+		
+		this.budget = budget;
+		evict();
+		return this;
+	}
+	
+	/**
+	 * Sets whether files are checked for changes by hashing their content, instead of by modification time and size
+	 * 
+	 * <p>
+	 * Hashing reads the whole file on every lookup, but catches changes that keep the modification time and size,
+	 * and keeps documents whose files were only touched.
+	 * 
+	 * @param hashingContent True to hash content
+	 * 
+	 * @return The cache
+	 */
+	public XMLDocumentCache setHashingContent(boolean hashingContent) {
+		this.hashingContent = hashingContent;
+		return this;
+	}
+	
+	/**
+	 * Sets the options used to parse each file, applied to files parsed from then on
+	 * 
+	 * @param parserConfig The parser config
+	 * 
+	 * @return The cache
+	 */
+	public XMLDocumentCache setParserConfig(XMLParserConfig parserConfig) {
+		if (parserConfig == null)
+			throw new IllegalArgumentException("Config cannot be null");
+		
+		this.parserConfig = parserConfig;
+		return this;
+	}
+	
+	private static final class Entry {
+		
+		private final Path key;
+		
+		private final long modified;
+		private final long length;
+		
+		private final byte[] digest;
+		
+		private final FutureTask<XMLFrozenDocument> task;
+		
+		private long size;
+		
+		private volatile boolean referenced;
+		
+		Entry(Path key, long modified, long length, byte[] digest, FutureTask<XMLFrozenDocument> task) {
+			this.key = key;
+			this.modified = modified;
+			this.length = length;
+			this.digest = digest;
+			this.task = task;
+		}
+		
+		boolean matches(long modified, long length, byte[] digest) {
+			if (digest != null || this.digest != null)
+				return Arrays.equals(digest, this.digest);
+			
+			return modified == this.modified && length == this.length;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.util.Arrays;
+
+/**
+ * Represents one change in an {@link XMLDiff}
+ * 
+ * <p>
+ * The node changed is found from the node the diff is applied to by the child positions of the path,
+ * as they are once the edits before it have been applied.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLEdit {
+	
+	private final XMLEditType type;
+	
+	private final int[] path;
+	private final int position;
+	
+	private final String name;
+	private final String value;
+	
+	private final XMLElement element;
+	
+	/**
+	 * Constructs an {@link XMLEdit} with the given type and details
+	 * 
+	 * @param type The type of the edit
+	 * 
+	 * @param path The child positions leading to the node changed
+	 * 
+	 * @param position The position of the child inserted or removed, otherwise -1
+	 * 
+	 * @param name The name of the attribute set or removed, otherwise null
+	 * 
+	 * @param value The value set, or null if an attribute is removed
+	 * 
+	 * @param element The element inserted, otherwise null
+	 */
+	XMLEdit(XMLEditType type, int[] path, int position, String name, String value, XMLElement element) {
+		this.type = type;
+		this.path = path;
+		this.position = position;
+		this.name = name;
+		this.value = value;
+		this.element = element;
+	}
+	
+	/**
+	 * Applies the edit to the node at its path
+	 * 
+	 * @param node The node the diff is applied to
+	 */
+	void apply(XMLHierarchical node) {
+		for (int position : this.path) {
+			if (position >= node.getElementCount())
+				throw new IllegalArgumentException("Edit cannot be applied to the node");
+			
+			node = node.getElement(position);
+		}
+		
+		switch (this.type) {
+		
+		case INSERT:
+			node.insertElement(this.element.copy(), this.position);
+			break;
+		
+		case REMOVE:
+			node.removeElement(this.position);
+			break;
+		
+		case VALUE:
+			if (!(node instanceof XMLElement))
+				throw new IllegalArgumentException("Edit cannot be applied to the node");
+			
+			((XMLElement) node).setValue(this.value);
+			break;
+		
+		case ATTRIBUTE:
+			if (!(node instanceof XMLElement))
+				throw new IllegalArgumentException("Edit cannot be applied to the node");
+			
+			if (this.value != null)
+				((XMLElement) node).setAttribute(this.name, this.value);
+			else
+				((XMLElement) node).removeAttribute(this.name);
+			
+			break;
+		}
+	}
+	
+	/**
+	 * Returns the name of the {@link XMLAttribute} set or removed
+	 * 
+	 * @return The attribute name, or null if not an attribute edit
+	 */
+	public String getAttributeName() {
+		return this.name;
+	}
+	
+	/**
+	 * Returns a copy of the {@link XMLElement} inserted
+	 * 
+	 * @return The element, or null if not an insert
+	 */
+	public XMLElement getElement() {
+		return (this.element != null) ? this.element.copy() : null;
+	}
+	
+	/**
+	 * Returns the child positions leading from the node the diff is applied to, to the node changed
+	 * 
+	 * @return A copy of the path
+	 */
+	public int[] getPath() {
+		return this.path.clone();
+	}
+	
+	/**
+	 * Returns the position of the child inserted or removed
+	 * 
+	 * @return The position, or -1 if not an insert or remove
+	 */
+	public int getPosition() {
+		return this.position;
+	}
+	
+	/**
+	 * Returns the type of the edit
+	 * 
+	 * @return The edit type
+	 */
+	public XMLEditType getType() {
+		return this.type;
+	}
+	
+	/**
+	 * Returns the value set
+	 * 
+	 * @return The value, or null if an attribute is removed, or if not a value or attribute edit
+	 */
+	public String getValue() {
+		return this.value;
+	}
+	
+	@Override
+	public String toString() {
+		return this.type + " " + Arrays.toString(this.path) + ((this.position >= 0) ? " at " + this.position : "") + ((this.name != null) ? " " + this.name : "") + ((this.value != null) ? " = \"" + this.value + "\"" : "") + ((this.element != null) ? " <" + this.element.getName() + ">" : "");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+/**
+ * Represents the kinds of {@link XMLEdit} in an {@link XMLDiff}
+ * 
+ * @author NodinChan
+ * 
+ */
+public enum XMLEditType {
+	
+	/**
+	 * Sets or removes an attribute of the element at the path
+	 */
+	ATTRIBUTE,
+	
+	/**
+	 * Inserts an element among the children of the node at the path
+	 */
+	INSERT,
+	
+	/**
+	 * Removes an element from the children of the node at the path
+	 */
+	REMOVE,
+	
+	/**
+	 * Sets the value of the element at the path, removing its children
+	 */
+	VALUE
+}
\ No newline at end of file
@@ -17,10 +17,16 @@
 
 package com.nodinchan.parser.xml;
 
-import java.util.LinkedList;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Represents an element in an XML document
@@ -30,13 +36,38 @@ import java.util.TreeMap;
  */
 public final class XMLElement extends XMLHierarchical {
 	
+	private static final XMLAttribute[] NO_ATTRIBUTES = new XMLAttribute[0];
+	
+	private static final int ATTRIBUTE_INDEX_THRESHOLD = 8;
+	
+	private static final long HASH_OFFSET = 0xCBF29CE484222325L;
+	private static final long HASH_PRIME = 0x100000001B3L;
+	
 	private final String name;
 	
-	private String value;
+	private volatile String value;
+	
+	private volatile XMLHierarchical parent;
+	
+	private volatile XMLAttribute[] attributes;
+	private int attributeCount;
+	
+	private volatile Map<String, XMLAttribute> attributeIndex;
+	
+	private List<XMLAttribute> attributesView;
+	
+	private volatile XMLStructure structure;
+	private int structureIndex;
+	private boolean materializing;
 	
-	private XMLHierarchical parent;
+	private volatile String fragment;
+	private int fragmentLayer;
+	private XMLMetrics fragmentMetrics;
+	private volatile boolean composed;
 	
-	private final Map<String, XMLAttribute> attributes;
+	private volatile long structuralHash;
+	
+	private volatile XMLDocument indexedDocument;
 	
 	/**
 	 * Constructs an {@link XMLElement} with the given name
@@ -46,12 +77,15 @@ public final class XMLElement extends XMLHierarchical {
 	public XMLElement(String name) {
 		this.name = name;
 		this.value = "";
-		this.attributes = new TreeMap<String, XMLAttribute>();
+		this.attributes = NO_ATTRIBUTES;
 	}
 	
 	@Override
 	public XMLElement appendElement(XMLElement element) {
-		return insertElement(element, getElementCount());
+		super.appendElement(element);
+		
+		this.value = null;
+		return this;
 	}
 	
 	@Override
@@ -59,6 +93,149 @@ public final class XMLElement extends XMLHierarchical {
 		return insertElement(element, getElementIndex(relative) + 1);
 	}
 	
+	/**
+	 * Links the {@link XMLElement} to the parent whose list of elements it has been added to or removed from
+	 * 
+	 * @param parent The parent of the element, or null if removed
+	 */
+	void attach(XMLHierarchical parent) {
+		XMLHierarchical previous = this.parent;
+		
+		if (previous == parent)
+			return;
+		
+		XMLDocument from = this.indexedDocument;
+		XMLDocument to = (parent != null) ? parent.getIndexedDocument() : null;
+		
+		if (from != null && from != to)
+			from.unindexElements(this);
+		
+		this.parent = parent;
+		
+		if (to != null && to != from)
+			to.indexElements(this);
+	}
+	
+	/**
+	 * Copies the {@link XMLElement} with its attributes and descendants, without a parent
+	 * 
+	 * @return The copy
+	 */
+	public XMLElement copy() {
+		materialize();
+		
+		XMLElement copy = new XMLElement(this.name);
+		
+		for (XMLAttribute attribute : getAttributes())
+			copy.setAttribute(attribute.getName(), attribute.getValue());
+		
+		for (XMLElement element : getElements())
+			copy.appendElement(element.copy());
+		
+		if (!copy.hasElements())
+			copy.value = this.value;
+		
+		copy.structuralHash = this.structuralHash;
+		return copy;
+	}
+	
+	/**
+	 * Sets the value of the {@link XMLAttribute} set on the {@link XMLElement}, as if set by name
+	 * 
+	 * @param attribute The attribute
+	 * 
+	 * @param value The new value
+	 * 
+	 * @return True if the attribute is still set on the element, otherwise false
+	 */
+	boolean changeAttribute(XMLAttribute attribute, String value) {
+		if (!isConcurrent())
+			return updateAttribute(attribute, value);
+		
+		synchronized (this) {
+			return updateAttribute(attribute, value);
+		}
+	}
+	
+	/**
+	 * Returns a copy of the list of {@link XMLAttribute}s
+	 * 
+	 * @return The copy of the list of attributes
+	 */
+	public List<XMLAttribute> copyAttributes() {
+		materialize();
+		
+		XMLAttribute[] attributes = this.attributes;
+		return new ArrayList<XMLAttribute>(Arrays.asList(attributes).subList(0, getAttributeCount(attributes)));
+	}
+	
+	/**
+	 * Leaves the children of the {@link XMLElement} to be built from the given structure on first use
+	 * 
+	 * @param structure The structure of the source document
+	 * 
+	 * @param index The index of the element in the structure
+	 * 
+	 * @return The element
+	 */
+	XMLElement defer(XMLStructure structure, int index) {
+		this.structure = structure;
+		this.structureIndex = index;
+		return this;
+	}
+	
+	private XMLElement detachAttribute(String name) {
+		XMLAttribute[] attributes = this.attributes;
+		int count = getAttributeCount(attributes);
+		int index = indexOfAttribute(attributes, name);
+		
+		if (index < 0)
+			return this;
+		
+		String value = attributes[index].getValue();
+		attributes[index].setOwner(null);
+		
+		if (isConcurrent()) {
+			XMLAttribute[] remaining = new XMLAttribute[count - 1];
+			
+			System.arraycopy(attributes, 0, remaining, 0, index);
+			System.arraycopy(attributes, index + 1, remaining, index, count - index - 1);
+			
+			this.attributes = remaining;
+			this.attributeCount = remaining.length;
+			
+		} else {
+			System.arraycopy(attributes, index + 1, attributes, index, count - index - 1);
+			attributes[--this.attributeCount] = null;
+		}
+		
+		if (this.attributeCount <= ATTRIBUTE_INDEX_THRESHOLD)
+			this.attributeIndex = null;
+		else if (this.attributeIndex != null)
+			this.attributeIndex.remove(name);
+		
+		invalidate();
+		reindexAttribute(name, value, null);
+		return this;
+	}
+	
+	/**
+	 * Performs the given action for each {@link XMLAttribute}, in order
+	 * 
+	 * @param action The action to perform
+	 */
+	public void forEachAttribute(Consumer<? super XMLAttribute> action) {
+		if (action == null)
+			throw new IllegalArgumentException("Action cannot be null");
+		
+		materialize();
+		
+		XMLAttribute[] attributes = this.attributes;
+		
+		for (int index = 0; index < getAttributeCount(attributes); index++)
+			action.accept(attributes[index]);
+	}
+	
 	/**
 	 * Returns the {@link XMLAttribute} with the given name
 	 * 
@@ -70,23 +247,91 @@ public final class XMLElement extends XMLHierarchical {
 		if (name == null || name.isEmpty())
 			throw new IllegalArgumentException("Name cannot be empty");
 		
-		for (XMLAttribute attribute : getAttributes()) {
-			if (!attribute.getName().equals(name))
-				continue;
-			
-			return attribute;
-		}
+		materialize();
+		
+		Map<String, XMLAttribute> attributeIndex = this.attributeIndex;
 		
-		return null;
+		if (attributeIndex != null)
+			return attributeIndex.get(name);
+		
+		XMLAttribute[] attributes = this.attributes;
+		int index = indexOfAttribute(attributes, name);
+		return (index >= 0) ? attributes[index] : null;
+	}
+	
+	/**
+	 * Returns the number of {@link XMLAttribute}s in use in the given array of attributes
+	 * 
+	 * <p>
+	 * A concurrent element replaces its array on every change, so the array is always full.
+	 * 
+	 * @param attributes The array of attributes
+	 * 
+	 * @return The attribute count
+	 */
+	private int getAttributeCount(XMLAttribute[] attributes) {
+		return isConcurrent() ? attributes.length : this.attributeCount;
 	}
 	
 	/**
 	 * Returns a list of {@link XMLAttribute}s
 	 * 
-	 * @return The copy of the list of attributes
+	 * <p>
+	 * The list is a read-only view in order of setting, which reflects later changes to the attributes.
+	 * An iteration sees the attributes as they were when it began.
+	 * Use {@link #copyAttributes()} to modify the element while iterating.
+	 * 
+	 * @return The unmodifiable list of attributes
 	 */
 	public List<XMLAttribute> getAttributes() {
-		return new LinkedList<XMLAttribute>(this.attributes.values());
+		materialize();
+		
+		if (this.attributesView == null) {
+			this.attributesView = new AbstractList<XMLAttribute>() {
+				
+				@Override
+				public XMLAttribute get(int index) {
+					XMLAttribute[] attributes = XMLElement.this.attributes;
+					int count = getAttributeCount(attributes);
+					
+					if (index < 0 || index >= count)
+						throw new IndexOutOfBoundsException("Index cannot be beyond 0 to " + (count - 1));
+					
+					return attributes[index];
+				}
+				
+				@Override
+				public Iterator<XMLAttribute> iterator() {
+					final XMLAttribute[] attributes = XMLElement.this.attributes;
+					final int count = getAttributeCount(attributes);
+					
+					return new Iterator<XMLAttribute>() {
+						
+						private int index;
+						
+						@Override
+						public boolean hasNext() {
+							return this.index < count;
+						}
+						
+						@Override
+						public XMLAttribute next() {
+							if (this.index >= count)
+								throw new NoSuchElementException();
+							
+							return attributes[this.index++];
+						}
+					};
+				}
+				
+				@Override
+				public int size() {
+					return getAttributeCount(XMLElement.this.attributes);
+				}
+			};
+		}
+		
+		return this.attributesView;
 	}
 	
 	/**
@@ -97,7 +342,34 @@ public final class XMLElement extends XMLHierarchical {
 	 * @return The value if present, otherwise null
 	 */
 	public String getAttributeValue(String name) {
-		return (hasAttribute(name)) ? getAttribute(name).getValue() : null;
+		XMLAttribute attribute = getAttribute(name);
+		return (attribute != null) ? attribute.getValue() : null;
+	}
+	
+	/**
+	 * Returns the composed text cached for the {@link XMLElement} at the given layer
+	 * 
+	 * @param layer The depth the element is composed at
+	 * 
+	 * @return The cached text, or null if changed since composed or composed at another layer
+	 */
+	String getFragment(int layer) {
+		String fragment = this.fragment;
+		return (fragment != null && this.fragmentLayer == layer) ? fragment : null;
+	}
+	
+	/**
+	 * Returns the counts taken while composing the cached text of the {@link XMLElement}
+	 * 
+	 * @return The counts, or null if no text was cached or it was composed without a metrics listener
+	 */
+	XMLMetrics getFragmentMetrics() {
+		return this.fragmentMetrics;
+	}
+	
+	@Override
+	XMLDocument getIndexedDocument() {
+		return this.indexedDocument;
 	}
 	
 	/**
@@ -118,13 +390,69 @@ public final class XMLElement extends XMLHierarchical {
 		return this.parent;
 	}
 	
+	/**
+	 * Returns a hash of the name, attributes, value and descendants of the {@link XMLElement}
+	 * 
+	 * <p>
+	 * The hash of each element is built from the hashes of its children and kept until the element
+	 * or a descendant changes, so equal subtrees can be told apart from changed ones without walking them.
+	 * Setting the value of one of its attributes through {@link XMLAttribute#setValue(String)} counts as a
+	 * change. Elements of a concurrent document do not keep their hash.
+	 * 
+	 * @return The structural hash, never 0
+	 */
+	public long getStructuralHash() {
+		long hash = this.structuralHash;
+		
+		if (hash != 0)
+			return hash;
+		
+		materialize();
+		
+		hash = hash(HASH_OFFSET, this.name);
+		
+		XMLAttribute[] attributes = this.attributes;
+		int count = getAttributeCount(attributes);
+		
+		hash = (hash ^ count) * HASH_PRIME;
+		
+		for (int index = 0; index < count; index++)
+			hash = hash(hash(hash, attributes[index].getName()), attributes[index].getValue());
+		
+		List<XMLElement> elements = getElements();
+		
+		hash = (hash ^ elements.size()) * HASH_PRIME;
+		
+		for (XMLElement element : elements)
+			hash = (hash ^ element.getStructuralHash()) * HASH_PRIME;
+		
+		if (elements.isEmpty())
+			hash = hash(hash, (this.value != null) ? this.value : "");
+		
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		
+		if (hash == 0)
+			hash = 1;
+		
+		if (!isConcurrent())
+			this.structuralHash = hash;
+		
+		return hash;
+	}
+	
 	/**
 	 * Returns the value of the {@link XMLElement}
 	 * 
 	 * @return The value if no elements are present, otherwise null
 	 */
 	public String getValue() {
-		return value;
+		materialize();
+		
+		return this.value;
 	}
 	
 	/**
@@ -138,7 +466,7 @@ public final class XMLElement extends XMLHierarchical {
 		if (name == null || name.isEmpty())
 			throw new IllegalArgumentException("Name cannot be empty");
 		
-		return this.attributes.containsKey(name);
+		return getAttribute(name) != null;
 	}
 	
 	/**
@@ -147,7 +475,38 @@ public final class XMLElement extends XMLHierarchical {
 	 * @return True if any is present, otherwise false
 	 */
 	public boolean hasAttributes() {
-		return !this.attributes.isEmpty();
+		materialize();
+		
+		return getAttributeCount(this.attributes) > 0;
+	}
+	
+	/**
+	 * Indicates whether composed text is cached for the {@link XMLElement}
+	 * 
+	 * @return True if cached, otherwise false
+	 */
+	boolean hasFragment() {
+		return this.fragment != null;
+	}
+	
+	private static long hash(long hash, String string) {
+		int length = string.length();
+		
+		hash = (hash ^ length) * HASH_PRIME;
+		
+		for (int index = 0; index < length; index++)
+			hash = (hash ^ string.charAt(index)) * HASH_PRIME;
+		
+		return hash;
+	}
+	
+	private int indexOfAttribute(XMLAttribute[] attributes, String name) {
+		for (int index = 0; index < getAttributeCount(attributes); index++) {
+			if (attributes[index].getName().equals(name))
+				return index;
+		}
+		
+		return -1;
 	}
 	
 	@Override
@@ -158,6 +517,63 @@ public final class XMLElement extends XMLHierarchical {
 		return this;
 	}
 	
+	@Override
+	void invalidate() {
+		XMLHierarchical node = this;
+		
+		while (node instanceof XMLElement) {
+			XMLElement element = (XMLElement) node;
+			
+			if (element.structuralHash == 0 && !element.composed)
+				return;
+			
+			element.structuralHash = 0;
+			element.composed = false;
+			element.fragment = null;
+			
+			node = element.parent;
+		}
+	}
+	
+	@Override
+	XMLElement makeConcurrent() {
+		if (isConcurrent())
+			return this;
+		
+		materialize();
+		
+		this.attributes = Arrays.copyOf(this.attributes, this.attributeCount);
+		
+		if (this.attributeIndex != null)
+			this.attributeIndex = new ConcurrentHashMap<String, XMLAttribute>(this.attributeIndex);
+		
+		super.makeConcurrent();
+		return this;
+	}
+	
+	@Override
+	void materialize() {
+		if (this.structure == null)
+			return;
+		
+		synchronized (this) {
+			XMLStructure structure = this.structure;
+			
+			if (structure == null || this.materializing)
+				return;
+			
+			this.materializing = true;
+			
+			try {
+				structure.materialize(this, this.structureIndex);
+				this.structure = null;
+				
+			} finally {
+				this.materializing = false;
+			}
+		}
+	}
+	
 	@Override
 	public XMLElement prependElement(XMLElement element) {
 		return insertElement(element, 0);
@@ -168,6 +584,51 @@ public final class XMLElement extends XMLHierarchical {
 		return insertElement(element, getElementIndex(relative));
 	}
 	
+	private XMLElement putAttribute(String name, String value) {
+		XMLAttribute attribute = new XMLAttribute(name, value);
+		attribute.setOwner(this);
+		
+		int existing = indexOfAttribute(this.attributes, name);
+		
+		if (existing >= 0)
+			return replaceAttribute(existing, attribute);
+		
+		if (isConcurrent()) {
+			XMLAttribute[] attributes = Arrays.copyOf(this.attributes, this.attributeCount + 1);
+			attributes[this.attributeCount++] = attribute;
+			this.attributes = attributes;
+			
+		} else {
+			if (this.attributeCount == this.attributes.length)
+				this.attributes = Arrays.copyOf(this.attributes, Math.max(4, this.attributeCount * 2));
+			
+			this.attributes[this.attributeCount++] = attribute;
+		}
+		
+		if (this.attributeIndex != null) {
+			this.attributeIndex.put(name, attribute);
+			
+		} else if (this.attributeCount > ATTRIBUTE_INDEX_THRESHOLD) {
+			Map<String, XMLAttribute> attributeIndex = isConcurrent() ? new ConcurrentHashMap<String, XMLAttribute>() : new HashMap<String, XMLAttribute>();
+			
+			for (int index = 0; index < this.attributeCount; index++)
+				attributeIndex.put(this.attributes[index].getName(), this.attributes[index]);
+			
+			this.attributeIndex = attributeIndex;
+		}
+		
+		invalidate();
+		reindexAttribute(name, null, value);
+		return this;
+	}
+	
+	private void reindexAttribute(String name, String previous, String value) {
+		XMLDocument document = this.indexedDocument;
+		
+		if (document != null)
+			document.reindexAttribute(this, name, previous, value);
+	}
+	
 	/**
 	 * Removes the {@link XMLElement} from its parent
 	 * 
@@ -191,8 +652,14 @@ public final class XMLElement extends XMLHierarchical {
 		if (name == null || name.isEmpty())
 			throw new IllegalArgumentException("Name cannot be empty");
 		
-		this.attributes.remove(name);
-		return this;
+		materialize();
+		
+		if (!isConcurrent())
+			return detachAttribute(name);
+		
+		synchronized (this) {
+			return detachAttribute(name);
+		}
 	}
 	
 	@Override
@@ -213,6 +680,22 @@ public final class XMLElement extends XMLHierarchical {
 		return this;
 	}
 	
+	private XMLElement replaceAttribute(int index, XMLAttribute attribute) {
+		XMLAttribute[] attributes = isConcurrent() ? this.attributes.clone() : this.attributes;
+		XMLAttribute replaced = attributes[index];
+		
+		replaced.setOwner(null);
+		attributes[index] = attribute;
+		this.attributes = attributes;
+		
+		if (this.attributeIndex != null)
+			this.attributeIndex.put(attribute.getName(), attribute);
+		
+		invalidate();
+		reindexAttribute(attribute.getName(), replaced.getValue(), attribute.getValue());
+		return this;
+	}
+	
 	/**
 	 * Sets the {@link XMLAttribute} value, replacing any existing attributes of the same given name
 	 * 
@@ -224,8 +707,7 @@ public final class XMLElement extends XMLHierarchical {
 		if (attribute == null)
 			throw new IllegalArgumentException("Attribute cannot be null");
 		
-		this.attributes.put(attribute.getName(), attribute.copy());
-		return this;
+		return setAttribute(attribute.getName(), attribute.getValue());
 	}
 	
 	/**
@@ -238,7 +720,56 @@ public final class XMLElement extends XMLHierarchical {
 	 * @return The {@link XMLElement} that the attribute is set on
 	 */
 	public XMLElement setAttribute(String name, String value) {
-		return setAttribute(new XMLAttribute(name, value));
+		if (name == null || name.isEmpty())
+			throw new IllegalArgumentException("Name cannot be empty");
+		
+		if (value == null)
+			throw new IllegalArgumentException("Value cannot be null");
+		
+		materialize();
+		
+		if (!isConcurrent())
+			return putAttribute(name, value);
+		
+		synchronized (this) {
+			return putAttribute(name, value);
+		}
+	}
+	
+	/**
+	 * Caches the composed text of the {@link XMLElement}, dropping the text cached for its children
+	 * 
+	 * <p>
+	 * An element and its ancestors never hold text at once. Every element within cached text is marked as composed,
+	 * so a change walks up only as far as the composed or hashed elements, dropping at most one cached text.
+	 * 
+	 * @param fragment The composed text, or null to drop it
+	 * 
+	 * @param layer The depth the element is composed at
+	 * 
+	 * @param metrics The counts of the composed text, with the height of the element as its depth,
+	 *                or null if it was composed without a metrics listener
+	 */
+	void setFragment(String fragment, int layer, XMLMetrics metrics) {
+		if (fragment != null) {
+			for (XMLElement element : getElements())
+				element.fragment = null;
+			
+			this.composed = true;
+		}
+		
+		this.fragmentLayer = layer;
+		this.fragmentMetrics = metrics;
+		this.fragment = fragment;
+	}
+	
+	/**
+	 * Sets the {@link XMLDocument} whose attribute indexes hold the {@link XMLElement}
+	 * 
+	 * @param document The document, or null once removed from its indexes
+	 */
+	void setIndexedDocument(XMLDocument document) {
+		this.indexedDocument = document;
 	}
 	
 	/**
@@ -250,10 +781,10 @@ public final class XMLElement extends XMLHierarchical {
 		if (this.parent == parent)
 			return;
 		
-		if (!parent.hasElement(remove()))
+		if (parent != null)
 			parent.appendElement(this);
-		
-		this.parent = parent;
+		else
+			remove();
 	}
 	
 	/**
@@ -264,7 +795,32 @@ public final class XMLElement extends XMLHierarchical {
 	 * @return The element that the value is set on
 	 */
 	public XMLElement setValue(String value) {
-		this.value = (value != null) ? value : "";
-		return removeElements();
+		materialize();
+		
+		if (!isConcurrent()) {
+			this.value = (value != null) ? value : "";
+			
+			invalidate();
+			return removeElements();
+		}
+		
+		synchronized (this) {
+			this.value = (value != null) ? value : "";
+			
+			invalidate();
+			return removeElements();
+		}
+	}
+	
+	private boolean updateAttribute(XMLAttribute attribute, String value) {
+		if (attribute.getOwner() != this)
+			return false;
+		
+		String previous = attribute.getValue();
+		attribute.storeValue(value);
+		
+		invalidate();
+		reindexAttribute(attribute.getName(), previous, value);
+		return true;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes composed text through to another Writer, keeping the most recent text so that the
+ * text of each {@link XMLElement} can be cached as it is composed
+ * 
+ * <p>
+ * Only the last {@link #LIMIT} characters, plus what has been written since, are kept, so text
+ * can be captured from a position only while no more than that many characters follow it.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLFragmentWriter extends Writer {
+	
+	/**
+	 * The maximum length of the text captured for an element
+	 */
+	static final int LIMIT = 1 << 16;
+	
+	private final Writer writer;
+	
+	private final StringBuilder buffer;
+	private long base;
+	
+	/**
+	 * Constructs an {@link XMLFragmentWriter} writing through to the given Writer
+	 * 
+	 * @param writer The writer to write to
+	 */
+	XMLFragmentWriter(Writer writer) {
+		this.writer = writer;
+		this.buffer = new StringBuilder(LIMIT * 2);
+	}
+	
+	@Override
+	public Writer append(char c) throws IOException {
+		this.writer.write(c);
+		this.buffer.append(c);
+		trim();
+		return this;
+	}
+	
+	@Override
+	public Writer append(CharSequence csq) throws IOException {
+		String string = String.valueOf(csq);
+		
+		this.writer.write(string);
+		this.buffer.append(string);
+		trim();
+		return this;
+	}
+	
+	/**
+	 * Returns the text written since the given position, if it is kept and no longer than {@link #LIMIT}
+	 * 
+	 * @param position The position from {@link #getPosition()}
+	 * 
+	 * @return The text, or null if it cannot be captured
+	 */
+	String capture(long position) {
+		if (position < this.base || getPosition() - position > LIMIT)
+			return null;
+		
+		return this.buffer.substring((int) (position - this.base));
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.writer.close();
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		this.writer.flush();
+	}
+	
+	/**
+	 * Returns the number of characters written
+	 * 
+	 * @return The position
+	 */
+	long getPosition() {
+		return this.base + this.buffer.length();
+	}
+	
+	private void trim() {
+		int excess = this.buffer.length() - LIMIT;
+		
+		if (excess < LIMIT)
+			return;
+		
+		this.buffer.delete(0, excess);
+		this.base += excess;
+	}
+	
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		this.writer.write(cbuf, off, len);
+		this.buffer.append(cbuf, off, len);
+		trim();
+	}
+	
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		this.writer.write(str, off, len);
+		this.buffer.append(str, off, off + len);
+		trim();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,365 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents an XML document that cannot change, stored compactly for reading
+ * 
+ * <p>
+ * Elements are numbered breadth first, so the children of an element have consecutive numbers
+ * and the whole tree fits in a few flat int arrays. Names are kept once each in a shared pool,
+ * and values in one string. Every field is final, so the document can be read from any number
+ * of threads without locking.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLFrozenDocument {
+	
+	private final String encoding;
+	private final String version;
+	private final String systemId;
+	
+	private final boolean standalone;
+	
+	private final String[] names;
+	
+	private final int[] parents;
+	private final int[] children;
+	private final int[] elementNames;
+	
+	private final String values;
+	private final int[] valueOffsets;
+	
+	private final int[] attributes;
+	private final int[] attributeNames;
+	
+	private final String attributeValues;
+	private final int[] attributeValueOffsets;
+	
+	/**
+	 * Constructs an {@link XMLFrozenDocument} with the contents of the given {@link XMLDocument}
+	 * 
+	 * @param document The document to copy
+	 */
+	XMLFrozenDocument(XMLDocument document) {
+		this.encoding = document.getEncoding();
+		this.version = document.getVersion();
+		this.systemId = document.getSystemId();
+		this.standalone = document.isStandalone();
+		
+		List<XMLElement> elements = new ArrayList<XMLElement>();
+		
+		if (document.hasElements())
+			elements.add(document.getRoot());
+		
+		int attributeCount = 0;
+		
+		for (int index = 0; index < elements.size(); index++) {
+			XMLElement element = elements.get(index);
+			
+			elements.addAll(element.getElements());
+			attributeCount += element.getAttributes().size();
+		}
+		
+		int count = elements.size();
+		
+		this.parents = new int[count];
+		this.children = new int[count + 1];
+		this.elementNames = new int[count];
+		this.valueOffsets = new int[count + 1];
+		this.attributes = new int[count + 1];
+		this.attributeNames = new int[attributeCount];
+		this.attributeValueOffsets = new int[attributeCount + 1];
+		
+		Map<String, Integer> pool = new HashMap<String, Integer>();
+		List<String> names = new ArrayList<String>();
+		
+		StringBuilder values = new StringBuilder();
+		StringBuilder attributeValues = new StringBuilder();
+		
+		int next = 1;
+		int attribute = 0;
+		
+		if (count > 0)
+			this.parents[0] = -1;
+		
+		for (int index = 0; index < count; index++) {
+			XMLElement element = elements.get(index);
+			int childCount = element.getElementCount();
+			
+			for (int child = next; child < next + childCount; child++)
+				this.parents[child] = index;
+			
+			this.children[index] = next;
+			this.elementNames[index] = pool(pool, names, element.getName());
+			this.valueOffsets[index] = values.length();
+			this.attributes[index] = attribute;
+			
+			next += childCount;
+			
+			if (childCount == 0 && element.getValue() != null)
+				values.append(element.getValue());
+			
+			for (XMLAttribute entry : element.getAttributes()) {
+				this.attributeNames[attribute] = pool(pool, names, entry.getName());
+				this.attributeValueOffsets[attribute++] = attributeValues.length();
+				attributeValues.append(entry.getValue());
+			}
+		}
+		
+		this.children[count] = next;
+		this.valueOffsets[count] = values.length();
+		this.attributes[count] = attribute;
+		this.attributeValueOffsets[attribute] = attributeValues.length();
+		
+		this.names = names.toArray(new String[names.size()]);
+		this.values = values.toString();
+		this.attributeValues = attributeValues.toString();
+	}
+	
+	/**
+	 * Returns the number of attributes of the element at the given index
+	 * 
+	 * @param index The index of the element
+	 * 
+	 * @return The attribute count
+	 */
+	int getAttributeCount(int index) {
+		return this.attributes[index + 1] - this.attributes[index];
+	}
+	
+	/**
+	 * Returns the name of an attribute of the element at the given index
+	 * 
+	 * @param index The index of the element
+	 * 
+	 * @param position The position of the attribute
+	 * 
+	 * @return The attribute name
+	 */
+	String getAttributeName(int index, int position) {
+		return this.names[this.attributeNames[this.attributes[index] + position]];
+	}
+	
+	/**
+	 * Returns the value of an attribute of the element at the given index
+	 * 
+	 * @param index The index of the element
+	 * 
+	 * @param position The position of the attribute
+	 * 
+	 * @return The attribute value
+	 */
+	String getAttributeValue(int index, int position) {
+		int attribute = this.attributes[index] + position;
+		return this.attributeValues.substring(this.attributeValueOffsets[attribute], this.attributeValueOffsets[attribute + 1]);
+	}
+	
+	/**
+	 * Returns the index of a child of the element at the given index
+	 * 
+	 * @param index The index of the element
+	 * 
+	 * @param position The position of the child
+	 * 
+	 * @return The index of the child
+	 */
+	int getChild(int index, int position) {
+		return this.children[index] + position;
+	}
+	
+	/**
+	 * Returns the number of children of the element at the given index
+	 * 
+	 * @param index The index of the element
+	 * 
+	 * @return The child count
+	 */
+	int getChildCount(int index) {
+		return this.children[index + 1] - this.children[index];
+	}
+	
+	/**
+	 * Returns the number of {@link XMLFrozenElement}s in the document
+	 * 
+	 * @return The element count
+	 */
+	public int getElementCount() {
+		return this.parents.length;
+	}
+	
+	/**
+	 * Returns the encoding used for the XML document
+	 * 
+	 * @return The encoding
+	 */
+	public String getEncoding() {
+		return this.encoding;
+	}
+	
+	/**
+	 * Returns an estimate of the bytes of memory held by the document
+	 * 
+	 * @return The estimated size
+	 */
+	long getEstimatedSize() {
+		long size = 128;
+		
+		for (String name : this.names)
+			size += 48 + 2L * name.length();
+		
+		size += 16 + 4L * this.names.length;
+		size += 16 + 4L * this.parents.length;
+		size += 16 + 4L * this.children.length;
+		size += 16 + 4L * this.elementNames.length;
+		size += 40 + 2L * this.values.length();
+		size += 16 + 4L * this.valueOffsets.length;
+		size += 16 + 4L * this.attributes.length;
+		size += 16 + 4L * this.attributeNames.length;
+		size += 40 + 2L * this.attributeValues.length();
+		size += 16 + 4L * this.attributeValueOffsets.length;
+		
+		return size;
+	}
+	
+	/**
+	 * Returns the name of the element at the given index
+	 * 
+	 * @param index The index of the element
+	 * 
+	 * @return The element name
+	 */
+	String getName(int index) {
+		return this.names[this.elementNames[index]];
+	}
+	
+	/**
+	 * Returns the index of the parent of the element at the given index
+	 * 
+	 * @param index The index of the element
+	 * 
+	 * @return The index of the parent, or -1 for the root
+	 */
+	int getParent(int index) {
+		return this.parents[index];
+	}
+	
+	/**
+	 * Returns the root {@link XMLFrozenElement} of the XML document
+	 * 
+	 * @return The root element
+	 */
+	public XMLFrozenElement getRoot() {
+		if (this.parents.length < 1)
+			throw new IllegalStateException("Document must have a root");
+		
+		return new XMLFrozenElement(this, 0);
+	}
+	
+	/**
+	 * Returns the system ID of the XML document
+	 * 
+	 * @return The system ID
+	 */
+	public String getSystemId() {
+		return this.systemId;
+	}
+	
+	/**
+	 * Returns the value of the element at the given index
+	 * 
+	 * @param index The index of the element
+	 * 
+	 * @return The value if no children are present, otherwise null
+	 */
+	String getValue(int index) {
+		if (getChildCount(index) > 0)
+			return null;
+		
+		return this.values.substring(this.valueOffsets[index], this.valueOffsets[index + 1]);
+	}
+	
+	/**
+	 * Returns the version of the XML standard that the XML document conforms to
+	 * 
+	 * @return The XML standard version
+	 */
+	public String getVersion() {
+		return this.version;
+	}
+	
+	/**
+	 * Returns whether the XML document has an internal DTD or is linked to an external DTD,
+	 * or any external entity references
+	 * 
+	 * @return True if the XML document has an internal DTD, otherwise false
+	 */
+	public boolean isStandalone() {
+		return this.standalone;
+	}
+	
+	private static int pool(Map<String, Integer> pool, List<String> names, String name) {
+		Integer id = pool.get(name);
+		
+		if (id == null) {
+			pool.put(name, id = names.size());
+			names.add(name);
+		}
+		
+		return id;
+	}
+	
+	/**
+	 * Copies the {@link XMLFrozenDocument} into an {@link XMLDocument} that can be changed
+	 * 
+	 * @return The document
+	 */
+	public XMLDocument thaw() {
+		XMLDocument document = new XMLDocument(this.encoding, this.version, this.systemId, this.standalone);
+		
+		if (this.parents.length < 1)
+			return document;
+		
+		XMLElement[] elements = new XMLElement[this.parents.length];
+		
+		for (int index = 0; index < elements.length; index++) {
+			XMLElement element = new XMLElement(getName(index));
+			
+			for (int position = 0; position < getAttributeCount(index); position++)
+				element.setAttribute(getAttributeName(index, position), getAttributeValue(index, position));
+			
+			if (getChildCount(index) == 0)
+				element.setValue(getValue(index));
+			
+			if (index > 0)
+				elements[this.parents[index]].appendElement(element);
+			else
+				document.setRoot(element);
+			
+			elements[index] = element;
+		}
+		
+		return document;
+	}
+}
\ No newline at end of file
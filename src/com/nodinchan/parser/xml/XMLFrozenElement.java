@@ -0,0 +1,326 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Represents an element in an {@link XMLFrozenDocument}
+ * 
+ * <p>
+ * The element is only a reference into the arrays of its document, so two instances for the same
+ * element are equal. Attributes are returned as copies, since the element cannot change.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLFrozenElement {
+	
+	private final XMLFrozenDocument document;
+	
+	private final int index;
+	
+	XMLFrozenElement(XMLFrozenDocument document, int index) {
+		this.document = document;
+		this.index = index;
+	}
+	
+	@Override
+	public boolean equals(Object object) {
+		if (!(object instanceof XMLFrozenElement))
+			return false;
+		
+		XMLFrozenElement element = (XMLFrozenElement) object;
+		return this.document == element.document && this.index == element.index;
+	}
+	
+	/**
+	 * Performs the given action for each {@link XMLAttribute}, in order
+	 * 
+	 * @param action The action to perform
+	 */
+	public void forEachAttribute(Consumer<? super XMLAttribute> action) {
+		if (action == null)
+			throw new IllegalArgumentException("Action cannot be null");
+		
+		for (int position = 0; position < this.document.getAttributeCount(this.index); position++)
+			action.accept(new XMLAttribute(this.document.getAttributeName(this.index, position), this.document.getAttributeValue(this.index, position)));
+	}
+	
+	/**
+	 * Performs the given action for each {@link XMLFrozenElement}, in order
+	 * 
+	 * @param action The action to perform
+	 */
+	public void forEachElement(Consumer<? super XMLFrozenElement> action) {
+		if (action == null)
+			throw new IllegalArgumentException("Action cannot be null");
+		
+		for (int position = 0; position < this.document.getChildCount(this.index); position++)
+			action.accept(new XMLFrozenElement(this.document, this.document.getChild(this.index, position)));
+	}
+	
+	/**
+	 * Returns a copy of the {@link XMLAttribute} with the given name
+	 * 
+	 * @param name The attribute name
+	 * 
+	 * @return The attribute if found, otherwise null
+	 */
+	public XMLAttribute getAttribute(String name) {
+		int position = indexOfAttribute(name);
+		return (position >= 0) ? new XMLAttribute(name, this.document.getAttributeValue(this.index, position)) : null;
+	}
+	
+	/**
+	 * Returns a list of copies of the {@link XMLAttribute}s
+	 * 
+	 * @return The list of attributes
+	 */
+	public List<XMLAttribute> getAttributes() {
+		List<XMLAttribute> attributes = new ArrayList<XMLAttribute>(this.document.getAttributeCount(this.index));
+		
+		for (int position = 0; position < this.document.getAttributeCount(this.index); position++)
+			attributes.add(new XMLAttribute(this.document.getAttributeName(this.index, position), this.document.getAttributeValue(this.index, position)));
+		
+		return attributes;
+	}
+	
+	/**
+	 * Returns the value of the {@link XMLAttribute} with the given name
+	 * 
+	 * @param name The attribute name
+	 * 
+	 * @return The value if present, otherwise null
+	 */
+	public String getAttributeValue(String name) {
+		int position = indexOfAttribute(name);
+		return (position >= 0) ? this.document.getAttributeValue(this.index, position) : null;
+	}
+	
+	/**
+	 * Returns the {@link XMLFrozenDocument} of the {@link XMLFrozenElement}
+	 * 
+	 * @return The document
+	 */
+	public XMLFrozenDocument getDocument() {
+		return this.document;
+	}
+	
+	/**
+	 * Returns the first {@link XMLFrozenElement} with the given name
+	 * 
+	 * @param name The element name
+	 * 
+	 * @return The element if found, otherwise null
+	 */
+	public XMLFrozenElement getElement(String name) {
+		if (name == null || name.isEmpty())
+			throw new IllegalArgumentException("Name cannot be empty");
+		
+		for (int position = 0; position < this.document.getChildCount(this.index); position++) {
+			int child = this.document.getChild(this.index, position);
+			
+			if (name.equals(this.document.getName(child)))
+				return new XMLFrozenElement(this.document, child);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Returns the {@link XMLFrozenElement} at the given position
+	 * 
+	 * @param position The position
+	 * 
+	 * @return The element found
+	 */
+	public XMLFrozenElement getElement(int position) {
+		int count = this.document.getChildCount(this.index);
+		
+		if (position < 0 || position >= count)
+			throw new IndexOutOfBoundsException("Position cannot be beyond 0 to " + (count - 1));
+		
+		return new XMLFrozenElement(this.document, this.document.getChild(this.index, position));
+	}
+	
+	/**
+	 * Returns the number of {@link XMLFrozenElement}s
+	 * 
+	 * @return The element count
+	 */
+	public int getElementCount() {
+		return this.document.getChildCount(this.index);
+	}
+	
+	/**
+	 * Returns the index of the given {@link XMLFrozenElement}
+	 * 
+	 * @param element The element to find
+	 * 
+	 * @return The index if found, otherwise -1
+	 */
+	public int getElementIndex(XMLFrozenElement element) {
+		if (element == null)
+			throw new IllegalArgumentException("Element cannot be null");
+		
+		return hasElement(element) ? element.index - this.document.getChild(this.index, 0) : -1;
+	}
+	
+	/**
+	 * Returns a list of {@link XMLFrozenElement}s
+	 * 
+	 * @return The unmodifiable list of elements
+	 */
+	public List<XMLFrozenElement> getElements() {
+		return new AbstractList<XMLFrozenElement>() {
+			
+			@Override
+			public XMLFrozenElement get(int position) {
+				return getElement(position);
+			}
+			
+			@Override
+			public int size() {
+				return getElementCount();
+			}
+		};
+	}
+	
+	/**
+	 * Returns a list of {@link XMLFrozenElement}s with the given name
+	 * 
+	 * @param name The element name
+	 * 
+	 * @return The list of elements found
+	 */
+	public List<XMLFrozenElement> getElements(String name) {
+		if (name == null || name.isEmpty())
+			throw new IllegalArgumentException("Name cannot be empty");
+		
+		List<XMLFrozenElement> elements = new ArrayList<XMLFrozenElement>();
+		
+		for (int position = 0; position < this.document.getChildCount(this.index); position++) {
+			int child = this.document.getChild(this.index, position);
+			
+			if (name.equals(this.document.getName(child)))
+				elements.add(new XMLFrozenElement(this.document, child));
+		}
+		
+		return elements;
+	}
+	
+	/**
+	 * Returns the name of the {@link XMLFrozenElement}
+	 * 
+	 * @return The element name
+	 */
+	public String getName() {
+		return this.document.getName(this.index);
+	}
+	
+	/**
+	 * Returns the parent of the {@link XMLFrozenElement}
+	 * 
+	 * @return The parent if one exists, otherwise null for the root
+	 */
+	public XMLFrozenElement getParent() {
+		int parent = this.document.getParent(this.index);
+		return (parent >= 0) ? new XMLFrozenElement(this.document, parent) : null;
+	}
+	
+	/**
+	 * Returns the value of the {@link XMLFrozenElement}
+	 * 
+	 * @return The value if no elements are present, otherwise null
+	 */
+	public String getValue() {
+		return this.document.getValue(this.index);
+	}
+	
+	/**
+	 * Determines whether an {@link XMLAttribute} with the given name is present
+	 * 
+	 * @param name The attribute name
+	 * 
+	 * @return True if present, otherwise false
+	 */
+	public boolean hasAttribute(String name) {
+		return indexOfAttribute(name) >= 0;
+	}
+	
+	/**
+	 * Indicates whether any {@link XMLAttribute}s are present
+	 * 
+	 * @return True if any is present, otherwise false
+	 */
+	public boolean hasAttributes() {
+		return this.document.getAttributeCount(this.index) > 0;
+	}
+	
+	/**
+	 * Determines whether the {@link XMLFrozenElement} is one of the children
+	 * 
+	 * @param element The element to determine
+	 * 
+	 * @return True if found, otherwise false
+	 */
+	public boolean hasElement(XMLFrozenElement element) {
+		return element != null && element.document == this.document && this.document.getParent(element.index) == this.index;
+	}
+	
+	/**
+	 * Determines whether an {@link XMLFrozenElement} with the given name is one of the children
+	 * 
+	 * @param name The element name
+	 * 
+	 * @return True if found, otherwise false
+	 */
+	public boolean hasElement(String name) {
+		return getElement(name) != null;
+	}
+	
+	/**
+	 * Indicates whether any {@link XMLFrozenElement}s are present
+	 * 
+	 * @return True if any is present, otherwise false
+	 */
+	public boolean hasElements() {
+		return this.document.getChildCount(this.index) > 0;
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * System.identityHashCode(this.document) + this.index;
+	}
+	
+	private int indexOfAttribute(String name) {
+		if (name == null || name.isEmpty())
+			throw new IllegalArgumentException("Name cannot be empty");
+		
+		for (int position = 0; position < this.document.getAttributeCount(this.index); position++) {
+			if (name.equals(this.document.getAttributeName(this.index, position)))
+				return position;
+		}
+		
+		return -1;
+	}
+}
\ No newline at end of file
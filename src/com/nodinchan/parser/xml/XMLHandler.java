@@ -0,0 +1,72 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+/**
+ * Receives the parts of an XML document as they are parsed, without building {@link XMLElement}s
+ * 
+ * @author NodinChan
+ * 
+ */
+public interface XMLHandler {
+	
+	/**
+	 * Called once before anything else in the document
+	 * 
+	 * @param encoding The encoding used for the XML document
+	 * 
+	 * @param version The version of the XML standard that the XML document conforms to
+	 * 
+	 * @param systemId The system ID of the XML document
+	 * 
+	 * @param standalone If the XML document is standalone
+	 */
+	default void startDocument(String encoding, String version, String systemId, boolean standalone) {}
+	
+	/**
+	 * Called at the start tag of an element
+	 * 
+	 * @param name The element name
+	 * 
+	 * @param attributes The attributes of the element, only valid until this method returns
+	 */
+	void startElement(String name, XMLAttributes attributes);
+	
+	/**
+	 * Called with a run of text, which may be one of several in the same element
+	 * 
+	 * @param characters The buffer holding the text, only valid until this method returns
+	 * 
+	 * @param start The index of the first character
+	 * 
+	 * @param length The number of characters
+	 */
+	void text(char[] characters, int start, int length);
+	
+	/**
+	 * Called at the end tag of an element
+	 * 
+	 * @param name The element name
+	 */
+	void endElement(String name);
+	
+	/**
+	 * Called once after everything else in the document
+	 */
+	default void endDocument() {}
+}
\ No newline at end of file
@@ -17,20 +17,43 @@
 
 package com.nodinchan.parser.xml;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
+ * Represents a node in an XML document that holds {@link XMLElement}s
+ * 
+ * <p>
+ * Once made concurrent, the children are kept in a copy-on-write list, so reads never lock
+ * and see each change whole. A change locks only the node it changes, so changes to
+ * different parts of the tree do not wait on each other. Moving an element from another
+ * parent locks both parents, always in the same order.
  * 
  * @author NodinChan
- *
+ * 
  */
 public abstract class XMLHierarchical {
 	
-	private final List<XMLElement> elements;
+	private static final int INDEX_THRESHOLD = 8;
+	
+	private static final Object TIE_LOCK = new Object();
+	
+	private volatile List<XMLElement> elements;
+	
+	private List<XMLElement> elementsView;
+	
+	private Map<String, List<XMLElement>> index;
+	
+	private volatile boolean concurrent;
 	
 	public XMLHierarchical() {
-		this.elements = new LinkedList<XMLElement>();
+		this.elements = new ArrayList<XMLElement>();
 	}
 	
 	/**
@@ -41,7 +64,10 @@ public abstract class XMLHierarchical {
 	 * @return The parent of the element appended
 	 */
 	public XMLHierarchical appendElement(XMLElement element) {
-		return insertElement(element, getElementCount());
+		if (element == null)
+			throw new IllegalArgumentException("Element cannot be null");
+		
+		return placeElement(element, -1);
 	}
 	
 	/**
@@ -60,6 +86,132 @@ public abstract class XMLHierarchical {
 		return insertElement(element, getElementIndex(relative) + 1);
 	}
 	
+	private XMLHierarchical attachElement(XMLElement element, int position, XMLHierarchical parent) {
+		if (element.getParent() != parent)
+			return null;
+		
+		int size = this.elements.size();
+		
+		if (position > size)
+			throw new IndexOutOfBoundsException("Position cannot be beyond 0 to " + (size - 1));
+		
+		if (position < 0)
+			position = size;
+		
+		if (parent == this) {
+			moveElement(element, position);
+			return this;
+		}
+		
+		if (parent != null)
+			parent.dropElement(element);
+		
+		this.elements.add(position, element);
+		
+		if (this.index != null) {
+			if (position == this.elements.size() - 1)
+				index(this.index, element);
+			else if (position == 0 && this.index.containsKey(element.getName()))
+				this.index.get(element.getName()).add(0, element);
+			else if (position == 0)
+				index(this.index, element);
+			else
+				this.index = null;
+		}
+		
+		element.attach(this);
+		
+		invalidate();
+		return this;
+	}
+	
+	/**
+	 * Returns a copy of the list of {@link XMLElement}s
+	 * 
+	 * @return The copy of the list of elements
+	 */
+	public List<XMLElement> copyElements() {
+		materialize();
+		
+		return new ArrayList<XMLElement>(this.elements);
+	}
+	
+	private XMLHierarchical detachElement(XMLElement element) {
+		if (!hasElement(element))
+			throw new IllegalArgumentException("No such element");
+		
+		dropElement(element);
+		
+		element.attach(null);
+		return this;
+	}
+	
+	private XMLHierarchical detachElement(int position) {
+		if (position < 0 || position >= this.elements.size())
+			throw new IndexOutOfBoundsException("Position cannot be beyond 0 to " + (this.elements.size() - 1));
+		
+		XMLElement element = this.elements.remove(position);
+		unindex(element);
+		
+		element.attach(null);
+		
+		invalidate();
+		return this;
+	}
+	
+	private XMLHierarchical detachElements() {
+		List<XMLElement> elements = new ArrayList<XMLElement>(this.elements);
+		
+		this.elements.clear();
+		this.index = null;
+		
+		for (XMLElement element : elements)
+			element.attach(null);
+		
+		invalidate();
+		return this;
+	}
+	
+	/**
+	 * Takes the {@link XMLElement} out of the children, leaving its parent set so it can be handed straight to another
+	 * 
+	 * @param element The element to take out
+	 */
+	private void dropElement(XMLElement element) {
+		this.elements.remove(element);
+		unindex(element);
+		
+		invalidate();
+	}
+	
+	/**
+	 * Compares the {@link XMLHierarchical} to the given node, finding the edits that turn it into that node
+	 * 
+	 * @param node The node to compare to
+	 * 
+	 * @return The diff
+	 * 
+	 * @see XMLDiff#compare(XMLHierarchical, XMLHierarchical)
+	 */
+	public XMLDiff diff(XMLHierarchical node) {
+		return XMLDiff.compare(this, node);
+	}
+	
+	/**
+	 * Performs the given action for each {@link XMLElement}, in order
+	 * 
+	 * @param action The action to perform
+	 */
+	public void forEachElement(Consumer<? super XMLElement> action) {
+		if (action == null)
+			throw new IllegalArgumentException("Action cannot be null");
+		
+		materialize();
+		
+		for (XMLElement element : this.elements)
+			action.accept(element);
+	}
+	
 	/**
 	 * Returns the first {@link XMLElement} with the given name
 	 * 
@@ -71,7 +223,16 @@ public abstract class XMLHierarchical {
 		if (name == null || name.isEmpty())
 			throw new IllegalArgumentException("Name cannot be empty");
 		
-		for (XMLElement e : getElements()) {
+		materialize();
+		
+		Map<String, List<XMLElement>> index = getIndex();
+		
+		if (index != null) {
+			List<XMLElement> named = index.get(name);
+			return (named != null) ? named.get(0) : null;
+		}
+		
+		for (XMLElement e : this.elements) {
 			if (!name.equals(e.getName()))
 				continue;
 			
@@ -89,10 +250,14 @@ public abstract class XMLHierarchical {
 	 * @return The element found
 	 */
 	public XMLElement getElement(int position) {
-		if (position < 0 || position > this.elements.size())
-			throw new IndexOutOfBoundsException("Position cannot be beyond 0 to " + (this.elements.size() - 1));
+		materialize();
 		
-		return this.elements.get(position);
+		List<XMLElement> elements = this.elements;
+		
+		if (position < 0 || position >= elements.size())
+			throw new IndexOutOfBoundsException("Position cannot be beyond 0 to " + (elements.size() - 1));
+		
+		return elements.get(position);
 	}
 	
 	/**
@@ -101,6 +266,8 @@ public abstract class XMLHierarchical {
 	 * @return The element count
 	 */
 	public int getElementCount() {
+		materialize();
+		
 		return this.elements.size();
 	}
 	
@@ -115,16 +282,27 @@ public abstract class XMLHierarchical {
 		if (element == null)
 			throw new IllegalArgumentException("Element cannot be null");
 		
+		materialize();
+		
 		return this.elements.indexOf(element);
 	}
 	
 	/**
 	 * Returns a list of {@link XMLElement}s
 	 * 
-	 * @return The copy of the list of elements
+	 * <p>
+	 * The list is a read-only view that reflects later changes to the elements.
+	 * Use {@link #copyElements()} to modify the children while iterating.
+	 * 
+	 * @return The unmodifiable list of elements
 	 */
 	public List<XMLElement> getElements() {
-		return new LinkedList<XMLElement>(this.elements);
+		materialize();
+		
+		if (this.elementsView == null)
+			this.elementsView = Collections.unmodifiableList(this.elements);
+		
+		return this.elementsView;
 	}
 	
 	/**
@@ -138,9 +316,18 @@ public abstract class XMLHierarchical {
 		if (name == null || name.isEmpty())
 			throw new IllegalArgumentException("Name cannot be empty");
 		
-		List<XMLElement> elements = new LinkedList<XMLElement>();
+		materialize();
+		
+		Map<String, List<XMLElement>> index = getIndex();
+		
+		if (index != null) {
+			List<XMLElement> named = index.get(name);
+			return (named != null) ? new ArrayList<XMLElement>(named) : new ArrayList<XMLElement>();
+		}
 		
-		for (XMLElement e : getElements()) {
+		List<XMLElement> elements = new ArrayList<XMLElement>();
+		
+		for (XMLElement e : this.elements) {
 			if (!name.equals(e.getName()))
 				continue;
 			
@@ -150,6 +337,84 @@ public abstract class XMLHierarchical {
 		return elements;
 	}
 	
+	/**
+	 * Returns the {@link XMLDocument} whose attribute indexes hold the node
+	 * 
+	 * @return The document if indexed, otherwise null
+	 */
+	XMLDocument getIndexedDocument() {
+		return null;
+	}
+	
+	/**
+	 * Returns the children with the given name from the index by name, without copying them
+	 * 
+	 * @param name The element name
+	 * 
+	 * @return The read-only list of elements if indexed, otherwise null
+	 */
+	List<XMLElement> getIndexedElements(String name) {
+		materialize();
+		
+		Map<String, List<XMLElement>> index = getIndex();
+		
+		if (index == null)
+			return null;
+		
+		List<XMLElement> named = index.get(name);
+		return (named != null) ? named : Collections.<XMLElement>emptyList();
+	}
+	
+	/**
+	 * Returns the index of children by name, building it if the children are numerous enough
+	 * 
+	 * <p>
+	 * Concurrent nodes are not indexed, since the index changes apart from the children.
+	 * 
+	 * @return The index if used, otherwise null
+	 */
+	private Map<String, List<XMLElement>> getIndex() {
+		if (this.index != null)
+			return this.index;
+		
+		if (this.concurrent || this.elements.size() < INDEX_THRESHOLD)
+			return null;
+		
+		Map<String, List<XMLElement>> index = new HashMap<String, List<XMLElement>>();
+		
+		for (XMLElement element : this.elements)
+			index(index, element);
+		
+		return this.index = index;
+	}
+	
+	private static void index(Map<String, List<XMLElement>> index, XMLElement element) {
+		List<XMLElement> named = index.get(element.getName());
+		
+		if (named == null)
+			index.put(element.getName(), named = new ArrayList<XMLElement>(1));
+		
+		named.add(element);
+	}
+	
+	private void unindex(XMLElement element) {
+		if (this.index == null)
+			return;
+		
+		List<XMLElement> named = this.index.get(element.getName());
+		
+		for (int position = named.size() - 1; position >= 0; position--) {
+			if (named.get(position) != element)
+				continue;
+			
+			named.remove(position);
+			break;
+		}
+		
+		if (named.isEmpty())
+			this.index.remove(element.getName());
+	}
+	
 	/**
 	 * Determines whether the {@link XMLElement} is one of the children
 	 * 
@@ -158,7 +423,7 @@ public abstract class XMLHierarchical {
 	 * @return True if found, otherwise false
 	 */
 	public boolean hasElement(XMLElement element) {
-		return this.elements.contains(element);
+		return element != null && element.getParent() == this;
 	}
 	
 	/**
@@ -172,14 +437,7 @@ public abstract class XMLHierarchical {
 		if (name == null || name.isEmpty())
 			throw new IllegalArgumentException("Name cannot be empty");
 		
-		for (XMLElement element : getElements()) {
-			if (!name.equals(element.getName()))
-				continue;
-			
-			return true;
-		}
-		
-		return false;
+		return getElement(name) != null;
 	}
 	
 	/**
@@ -188,6 +446,8 @@ public abstract class XMLHierarchical {
 	 * @return True if any is present, otherwise false
 	 */
 	public boolean hasElements() {
+		materialize();
+		
 		return !this.elements.isEmpty();
 	}
 	
@@ -204,15 +464,168 @@ public abstract class XMLHierarchical {
 		if (element == null)
 			throw new IllegalArgumentException("Element cannot be null");
 		
-		if (position < 0 || position > this.elements.size())
-			throw new IndexOutOfBoundsException("Position cannot be beyond 0 to " + (this.elements.size() - 1));
+		if (position < 0)
+			throw new IndexOutOfBoundsException("Position cannot be negative");
 		
-		this.elements.add(position, element);
+		return placeElement(element, position);
+	}
+	
+	/**
+	 * Drops the composed text cached for the node or its nearest ancestor holding any, once its contents change
+	 */
+	void invalidate() {}
+	
+	/**
+	 * Indicates whether the {@link XMLHierarchical} can be read and changed from many threads at once
+	 * 
+	 * @return True if concurrent, otherwise false
+	 */
+	public boolean isConcurrent() {
+		return this.concurrent;
+	}
+	
+	/**
+	 * Makes the {@link XMLHierarchical} and all of its descendants safe to read and change from many threads at once
+	 * 
+	 * <p>
+	 * This cannot be undone, and must be done before the node is shared. Unbuilt elements are built first.
+	 * 
+	 * @return The node
+	 */
+	XMLHierarchical makeConcurrent() {
+		if (this.concurrent)
+			return this;
+		
+		materialize();
+		
+		this.elements = new CopyOnWriteArrayList<XMLElement>(this.elements);
+		this.elementsView = null;
+		this.index = null;
+		this.concurrent = true;
+		
+		for (XMLElement element : this.elements)
+			element.makeConcurrent();
 		
-		element.setParent(this);
 		return this;
 	}
 	
+	/**
+	 * Builds the children from the source document, if they have not been built yet
+	 */
+	void materialize() {}
+	
+	/**
+	 * Moves the {@link XMLElement} to the given position among its siblings, publishing the new order in one step
+	 * 
+	 * @param element The element to move
+	 * 
+	 * @param position The position before the element is taken out
+	 */
+	private void moveElement(XMLElement element, int position) {
+		int current = this.elements.indexOf(element);
+		
+		if (current < position)
+			position--;
+		
+		if (current == position)
+			return;
+		
+		final XMLElement[] elements = this.elements.toArray(new XMLElement[this.elements.size()]);
+		
+		if (current < position)
+			System.arraycopy(elements, current + 1, elements, current, position - current);
+		else
+			System.arraycopy(elements, position, elements, position + 1, current - position);
+		
+		elements[position] = element;
+		
+		this.elements.replaceAll(new UnaryOperator<XMLElement>() {
+			
+			private int next;
+			
+			@Override
+			public XMLElement apply(XMLElement previous) {
+				return elements[this.next++];
+			}
+		});
+		
+		this.index = null;
+		
+		invalidate();
+	}
+	
+	/**
+	 * Applies the edits of the given {@link XMLDiff}, which must have been compared from a node equal to this one
+	 * 
+	 * @param diff The diff to apply
+	 * 
+	 * @return The node changed
+	 */
+	public XMLHierarchical patch(XMLDiff diff) {
+		if (diff == null)
+			throw new IllegalArgumentException("Diff cannot be null");
+		
+		return diff.apply(this);
+	}
+	
+	/**
+	 * Inserts the {@link XMLElement} at the given position, or at the end if negative, taking it from its parent first
+	 * 
+	 * <p>
+	 * The parent is checked, the position found and the element moved while holding the locks of both
+	 * nodes, taken in order of identity hash so that opposite moves cannot deadlock.
+	 * 
+	 * @param element The element to insert
+	 * 
+	 * @param position The position, or -1 for the end
+	 * 
+	 * @return The parent of the element inserted
+	 */
+	private XMLHierarchical placeElement(XMLElement element, int position) {
+		materialize();
+		
+		if (this.concurrent)
+			element.makeConcurrent();
+		
+		while (true) {
+			XMLHierarchical parent = element.getParent();
+			XMLHierarchical other = (parent != null && parent != this && parent.concurrent) ? parent : null;
+			XMLHierarchical attached;
+			
+			if (other == null && !this.concurrent)
+				return attachElement(element, position, parent);
+			
+			if (other == null) {
+				synchronized (this) {
+					attached = attachElement(element, position, parent);
+				}
+				
+			} else if (!this.concurrent) {
+				synchronized (other) {
+					attached = attachElement(element, position, parent);
+				}
+				
+			} else {
+				int hash = System.identityHashCode(this);
+				int otherHash = System.identityHashCode(other);
+				
+				XMLHierarchical first = (hash < otherHash) ? this : other;
+				XMLHierarchical second = (first == this) ? other : this;
+				
+				synchronized ((hash == otherHash) ? TIE_LOCK : first) {
+					synchronized (first) {
+						synchronized (second) {
+							attached = attachElement(element, position, parent);
+						}
+					}
+				}
+			}
+			
+			if (attached != null)
+				return attached;
+		}
+	}
+	
 	/**
 	 * Prepends the {@link XMLElement} to the start
 	 * 
@@ -240,6 +653,16 @@ public abstract class XMLHierarchical {
 		return insertElement(element, getElementIndex(relative));
 	}
 	
+	private void replaceElement(int position, XMLElement element) {
+		XMLElement previous = this.elements.set(position, element);
+		this.index = null;
+		
+		previous.attach(null);
+		element.attach(this);
+		
+		invalidate();
+	}
+	
 	/**
 	 * Removes the {@link XMLElement}
 	 * 
@@ -251,13 +674,12 @@ public abstract class XMLHierarchical {
 		if (element == null)
 			throw new IllegalArgumentException("Element cannot be null");
 		
-		if (!hasElement(element))
-			throw new IllegalArgumentException("No such element");
+		if (!this.concurrent)
+			return detachElement(element);
 		
-		this.elements.remove(element);
-		
-		element.setParent(null);
-		return this;
+		synchronized (this) {
+			return detachElement(element);
+		}
 	}
 	
 	/**
@@ -268,11 +690,14 @@ public abstract class XMLHierarchical {
 	 * @return The parent that the element is removed from
 	 */
 	public XMLHierarchical removeElement(int position) {
-		if (position < 0 || position > this.elements.size())
-			throw new IndexOutOfBoundsException("Position cannot be beyond 0 to " + (this.elements.size() - 1));
+		materialize();
 		
-		this.elements.remove(position).setParent(null);
-		return this;
+		if (!this.concurrent)
+			return detachElement(position);
+		
+		synchronized (this) {
+			return detachElement(position);
+		}
 	}
 	
 	/**
@@ -281,9 +706,58 @@ public abstract class XMLHierarchical {
 	 * @return The parent that the elements are removed from
 	 */
 	public XMLHierarchical removeElements() {
-		for (XMLElement element : getElements())
-			removeElement(element);
+		materialize();
 		
-		return this;
+		if (!this.concurrent)
+			return detachElements();
+		
+		synchronized (this) {
+			return detachElements();
+		}
+	}
+	
+	/**
+	 * Returns the {@link XMLElement}s selected by the given path, in document order
+	 * 
+	 * @param path The path, as described by {@link XMLPath}
+	 * 
+	 * @return The list of elements selected
+	 */
+	public List<XMLElement> select(String path) {
+		return XMLPath.compile(path).select(this);
+	}
+	
+	/**
+	 * Returns the first {@link XMLElement} selected by the given path, in document order
+	 * 
+	 * @param path The path, as described by {@link XMLPath}
+	 * 
+	 * @return The element if found, otherwise null
+	 */
+	public XMLElement selectFirst(String path) {
+		return XMLPath.compile(path).selectFirst(this);
+	}
+	
+	/**
+	 * Replaces the {@link XMLElement} at the given position in one step
+	 * 
+	 * @param position The position
+	 * 
+	 * @param element The element to put in its place
+	 */
+	void setElement(int position, XMLElement element) {
+		if (element.getParent() != this)
+			element.remove();
+		
+		if (!this.concurrent) {
+			replaceElement(position, element);
+			return;
+		}
+		
+		element.makeConcurrent();
+		
+		synchronized (this) {
+			replaceElement(position, element);
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,295 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tracks the markup in the bytes of a document, telling a {@link Handler} of each tag without parsing it
+ * 
+ * <p>
+ * Only whether each byte is in text, a tag, an attribute value, an instruction, a comment or a CDATA
+ * section is tracked, which is enough to find tags byte by byte in an ASCII-compatible encoding. The
+ * scan can be fed in pieces, and stops at a declaration other than a comment or CDATA section.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLMarkupScanner {
+	
+	private static final int TEXT = 0;
+	private static final int MARKUP = 1;
+	private static final int START_TAG = 2;
+	private static final int QUOTED = 3;
+	private static final int END_TAG = 4;
+	private static final int INSTRUCTION = 5;
+	private static final int INSTRUCTION_END = 6;
+	private static final int DECLARATION = 7;
+	private static final int COMMENT_OPEN = 8;
+	private static final int COMMENT = 9;
+	private static final int COMMENT_DASH = 10;
+	private static final int COMMENT_END = 11;
+	private static final int CDATA_OPEN = 12;
+	private static final int CDATA = 13;
+	private static final int CDATA_BRACKET = 14;
+	private static final int CDATA_END = 15;
+	
+	private static final byte[] CDATA_START = "[CDATA[".getBytes(StandardCharsets.US_ASCII);
+	
+	private final Handler handler;
+	
+	private int state = TEXT;
+	private int matched;
+	
+	private long tag;
+	
+	private byte quote;
+	
+	private boolean named;
+	private boolean slash;
+	
+	XMLMarkupScanner(Handler handler) {
+		this.handler = handler;
+	}
+	
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+	
+	/**
+	 * Scans the next bytes of the document, carrying on from where the last bytes ended
+	 * 
+	 * @param bytes The bytes to scan
+	 * 
+	 * @param start The index of the first byte
+	 * 
+	 * @param end The index after the last byte
+	 * 
+	 * @param offset The position in the document of the first byte
+	 * 
+	 * @return True if more bytes can be scanned, or false if the handler or the markup stopped the scan
+	 */
+	boolean scan(byte[] bytes, int start, int end, long offset) {
+		Handler handler = this.handler;
+		
+		for (int index = start; index < end; index++) {
+			byte b = bytes[index];
+			long position = offset + index - start;
+			
+			switch (this.state) {
+			
+			case TEXT:
+				if (b == '<') {
+					this.state = MARKUP;
+					this.tag = position;
+				}
+				
+				break;
+			
+			case MARKUP:
+				if (b == '/') {
+					this.state = END_TAG;
+					
+				} else if (b == '?') {
+					this.state = INSTRUCTION;
+					
+				} else if (b == '!') {
+					this.state = DECLARATION;
+					
+				} else {
+					this.state = START_TAG;
+					this.named = false;
+					this.slash = false;
+					
+					if (!handler.startTag(this.tag))
+						return false;
+				}
+				
+				break;
+			
+			case START_TAG:
+				if (!this.named && (b == '>' || b == '/' || isWhitespace(b))) {
+					this.named = true;
+					handler.startTagName(position);
+				}
+				
+				if (b == '"' || b == '\'') {
+					this.state = QUOTED;
+					this.quote = b;
+					
+				} else if (b == '>') {
+					this.state = TEXT;
+					
+					if (!handler.startTagEnd(position + 1, this.slash))
+						return false;
+					
+				} else if (!isWhitespace(b)) {
+					this.slash = b == '/';
+				}
+				
+				break;
+			
+			case QUOTED:
+				if (b == this.quote)
+					this.state = START_TAG;
+				
+				break;
+			
+			case END_TAG:
+				if (b != '>')
+					break;
+				
+				this.state = TEXT;
+				
+				if (!handler.endTag(this.tag, position + 1))
+					return false;
+				
+				break;
+			
+			case INSTRUCTION:
+				if (b == '?')
+					this.state = INSTRUCTION_END;
+				
+				break;
+			
+			case INSTRUCTION_END:
+				if (b == '>')
+					this.state = TEXT;
+				else if (b != '?')
+					this.state = INSTRUCTION;
+				
+				break;
+			
+			case DECLARATION:
+				if (b == '-') {
+					this.state = COMMENT_OPEN;
+					
+				} else if (b == '[') {
+					this.state = CDATA_OPEN;
+					this.matched = 1;
+					
+				} else {
+					return false;
+				}
+				
+				break;
+			
+			case COMMENT_OPEN:
+				if (b != '-')
+					return false;
+				
+				this.state = COMMENT;
+				break;
+			
+			case COMMENT:
+				if (b == '-')
+					this.state = COMMENT_DASH;
+				
+				break;
+			
+			case COMMENT_DASH:
+				this.state = (b == '-') ? COMMENT_END : COMMENT;
+				break;
+			
+			case COMMENT_END:
+				if (b == '>')
+					this.state = TEXT;
+				else if (b != '-')
+					this.state = COMMENT;
+				
+				break;
+			
+			case CDATA_OPEN:
+				if (b != CDATA_START[this.matched++])
+					return false;
+				
+				if (this.matched == CDATA_START.length)
+					this.state = CDATA;
+				
+				break;
+			
+			case CDATA:
+				if (b == ']')
+					this.state = CDATA_BRACKET;
+				
+				break;
+			
+			case CDATA_BRACKET:
+				this.state = (b == ']') ? CDATA_END : CDATA;
+				break;
+			
+			case CDATA_END:
+				if (b == '>')
+					this.state = TEXT;
+				else if (b != ']')
+					this.state = CDATA;
+				
+				break;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Told of the tags found by an {@link XMLMarkupScanner}
+	 * 
+	 * @author NodinChan
+	 * 
+	 */
+	interface Handler {
+		
+		/**
+		 * Called at the end of an end tag
+		 * 
+		 * @param start The position of the {@code <} of the tag
+		 * 
+		 * @param end The position after the {@code >} of the tag
+		 * 
+		 * @return True to carry on scanning, or false to stop
+		 */
+		boolean endTag(long start, long end);
+		
+		/**
+		 * Called at the start of a start tag, once its first character after {@code <} is read
+		 * 
+		 * @param start The position of the {@code <} of the tag
+		 * 
+		 * @return True to carry on scanning, or false to stop
+		 */
+		boolean startTag(long start);
+		
+		/**
+		 * Called at the end of a start tag
+		 * 
+		 * @param end The position after the {@code >} of the tag
+		 * 
+		 * @param empty True if the tag ends with {@code />}, otherwise false
+		 * 
+		 * @return True to carry on scanning, or false to stop
+		 */
+		boolean startTagEnd(long end, boolean empty);
+		
+		/**
+		 * Called at the end of the name of a start tag
+		 * 
+		 * @param end The position after the name
+		 */
+		void startTagName(long end);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+/**
+ * Represents the measurements of one parse or compose, as reported to an {@link XMLMetricsListener}
+ * 
+ * <p>
+ * A count that could not be taken without extra work, such as the bytes composed to a Writer,
+ * is -1.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLMetrics {
+	
+	private final long bytes;
+	
+	private final int elements;
+	private final int attributes;
+	private final int maxDepth;
+	
+	private final long textLength;
+	
+	private final long time;
+	
+	private final boolean successful;
+	
+	/**
+	 * Constructs an {@link XMLMetrics} with the given measurements
+	 * 
+	 * @param bytes The number of bytes read or written
+	 * 
+	 * @param elements The number of elements
+	 * 
+	 * @param attributes The number of attributes
+	 * 
+	 * @param maxDepth The depth of the deepest element
+	 * 
+	 * @param textLength The number of characters of text
+	 * 
+	 * @param time The nanoseconds taken
+	 * 
+	 * @param successful If the operation completed
+	 */
+	XMLMetrics(long bytes, int elements, int attributes, int maxDepth, long textLength, long time, boolean successful) {
+		this.bytes = bytes;
+		this.elements = elements;
+		this.attributes = attributes;
+		this.maxDepth = maxDepth;
+		this.textLength = textLength;
+		this.time = time;
+		this.successful = successful;
+	}
+	
+	/**
+	 * Returns the number of attributes read or written
+	 * 
+	 * @return The attribute count, or -1 if not counted
+	 */
+	public int getAttributeCount() {
+		return this.attributes;
+	}
+	
+	/**
+	 * Returns the number of bytes read or written
+	 * 
+	 * @return The byte count, or -1 if not counted
+	 */
+	public long getBytes() {
+		return this.bytes;
+	}
+	
+	/**
+	 * Returns the number of elements read or written
+	 * 
+	 * @return The element count, or -1 if not counted
+	 */
+	public int getElementCount() {
+		return this.elements;
+	}
+	
+	/**
+	 * Returns the depth of the deepest element, where the root element is at depth 1
+	 * 
+	 * @return The maximum depth, or -1 if not counted
+	 */
+	public int getMaxDepth() {
+		return this.maxDepth;
+	}
+	
+	/**
+	 * Returns the number of characters of text read or written, which when parsing from a stream
+	 * includes any whitespace between elements
+	 * 
+	 * <p>
+	 * Text is counted in UTF-16 chars, not in encoded bytes, so it does not depend on the encoding
+	 * of the document. The encoded size is only counted as a whole, by {@link #getBytes()}.
+	 * 
+	 * @return The text length, or -1 if not counted
+	 */
+	public long getTextLength() {
+		return this.textLength;
+	}
+	
+	/**
+	 * Returns the wall clock time taken
+	 * 
+	 * @return The time in nanoseconds
+	 */
+	public long getTime() {
+		return this.time;
+	}
+	
+	/**
+	 * Indicates whether the operation completed, rather than failing part way
+	 * 
+	 * @return True if successful, otherwise false
+	 */
+	public boolean isSuccessful() {
+		return this.successful;
+	}
+	
+	@Override
+	public String toString() {
+		return "XMLMetrics[bytes=" + bytes + ", elements=" + elements + ", attributes=" + attributes + ", maxDepth=" + maxDepth
+				+ ", textLength=" + textLength + ", time=" + time + "ns, successful=" + successful + "]";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,329 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Takes the {@link XMLMetrics} of one parse or compose
+ * 
+ * <p>
+ * When parsing, the counter sits between the engine and the {@link XMLHandler} building the
+ * document. When composing, each element is counted as it is written, and cached text adds the
+ * counts taken when it was composed. When a document is built without a handler, the counts are
+ * taken from the finished tree instead.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLMetricsCounter implements XMLHandler {
+	
+	private final XMLHandler handler;
+	
+	private final long start;
+	
+	private long bytes;
+	
+	private int elements;
+	private int attributes;
+	private int depth;
+	private int maxDepth;
+	
+	private long textLength;
+	
+	XMLMetricsCounter(XMLHandler handler) {
+		this.handler = handler;
+		this.start = System.nanoTime();
+		this.bytes = -1;
+	}
+	
+	XMLMetricsCounter() {
+		this(null);
+	}
+	
+	/**
+	 * Counts an {@link XMLElement} as it is composed, without its children
+	 * 
+	 * @param element The element to count
+	 * 
+	 * @param depth The depth of the element, from 1 for the root
+	 */
+	void count(XMLElement element, int depth) {
+		this.elements++;
+		this.attributes += element.getAttributes().size();
+		
+		if (depth > this.maxDepth)
+			this.maxDepth = depth;
+		
+		if (!element.hasElements() && element.getValue() != null)
+			this.textLength += element.getValue().length();
+	}
+	
+	/**
+	 * Counts the elements, attributes and text of the tree under the given parent
+	 * 
+	 * @param parent The parent to count from
+	 */
+	void count(XMLHierarchical parent) {
+		XMLElement[] open = new XMLElement[16];
+		int[] depths = new int[16];
+		int size = 0;
+		
+		for (XMLElement element : parent.getElements()) {
+			if (size == open.length) {
+				open = Arrays.copyOf(open, size * 2);
+				depths = Arrays.copyOf(depths, size * 2);
+			}
+			
+			open[size] = element;
+			depths[size++] = 1;
+		}
+		
+		while (size > 0) {
+			XMLElement element = open[--size];
+			int depth = depths[size];
+			
+			open[size] = null;
+			count(element, depth);
+			
+			for (XMLElement child : element.getElements()) {
+				if (size == open.length) {
+					open = Arrays.copyOf(open, size * 2);
+					depths = Arrays.copyOf(depths, size * 2);
+				}
+				
+				open[size] = child;
+				depths[size++] = depth + 1;
+			}
+		}
+	}
+	
+	/**
+	 * Counts composed text cached for an {@link XMLElement}
+	 * 
+	 * @param fragment The counts taken while composing the text, with the height of the element as its depth
+	 * 
+	 * @param layer The depth the text is composed at, from 0 for the root
+	 */
+	void count(XMLMetrics fragment, int layer) {
+		this.elements += fragment.getElementCount();
+		this.attributes += fragment.getAttributeCount();
+		this.textLength += fragment.getTextLength();
+		
+		if (layer + fragment.getMaxDepth() > this.maxDepth)
+			this.maxDepth = layer + fragment.getMaxDepth();
+	}
+	
+	/**
+	 * Wraps an InputStream to count the bytes read from it
+	 * 
+	 * @param stream The stream to count
+	 * 
+	 * @return The counting stream
+	 */
+	InputStream count(InputStream stream) {
+		this.bytes = 0;
+		
+		return new FilterInputStream(stream) {
+			
+			@Override
+			public int read() throws IOException {
+				int read = super.read();
+				
+				if (read >= 0)
+					bytes++;
+				
+				return read;
+			}
+			
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+				int read = super.read(buffer, offset, length);
+				
+				if (read > 0)
+					bytes += read;
+				
+				return read;
+			}
+			
+			@Override
+			public long skip(long length) throws IOException {
+				long skipped = super.skip(length);
+				bytes += skipped;
+				return skipped;
+			}
+		};
+	}
+	
+	/**
+	 * Wraps an OutputStream to count the bytes written to it
+	 * 
+	 * @param stream The stream to count
+	 * 
+	 * @return The counting stream
+	 */
+	OutputStream count(OutputStream stream) {
+		this.bytes = 0;
+		
+		return new FilterOutputStream(stream) {
+			
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				bytes++;
+			}
+			
+			@Override
+			public void write(byte[] buffer, int offset, int length) throws IOException {
+				out.write(buffer, offset, length);
+				bytes += length;
+			}
+		};
+	}
+	
+	/**
+	 * Wraps a WritableByteChannel to count the bytes written to it
+	 * 
+	 * @param channel The channel to count
+	 * 
+	 * @return The counting channel
+	 */
+	WritableByteChannel count(final WritableByteChannel channel) {
+		this.bytes = 0;
+		
+		return new WritableByteChannel() {
+			
+			@Override
+			public void close() throws IOException {
+				channel.close();
+			}
+			
+			@Override
+			public boolean isOpen() {
+				return channel.isOpen();
+			}
+			
+			@Override
+			public int write(ByteBuffer buffer) throws IOException {
+				int written = channel.write(buffer);
+				bytes += written;
+				return written;
+			}
+		};
+	}
+	
+	@Override
+	public void endDocument() {
+		this.handler.endDocument();
+	}
+	
+	@Override
+	public void endElement(String name) {
+		this.depth--;
+		this.handler.endElement(name);
+	}
+	
+	/**
+	 * Returns the {@link XMLMetrics} taken so far
+	 * 
+	 * @param successful If the operation completed
+	 * 
+	 * @return The metrics
+	 */
+	XMLMetrics finish(boolean successful) {
+		return new XMLMetrics(this.bytes, this.elements, this.attributes, this.maxDepth, this.textLength, System.nanoTime() - this.start, successful);
+	}
+	
+	/**
+	 * Returns the {@link XMLMetrics} of an operation that only counted bytes
+	 * 
+	 * @param bytes The number of bytes read or written
+	 * 
+	 * @param successful If the operation completed
+	 * 
+	 * @return The metrics
+	 */
+	XMLMetrics finishBytes(long bytes, boolean successful) {
+		return new XMLMetrics(bytes, -1, -1, -1, -1, System.nanoTime() - this.start, successful);
+	}
+	
+	/**
+	 * Returns the number of attributes counted so far
+	 * 
+	 * @return The attribute count
+	 */
+	int getAttributeCount() {
+		return this.attributes;
+	}
+	
+	/**
+	 * Returns the number of elements counted so far
+	 * 
+	 * @return The element count
+	 */
+	int getElementCount() {
+		return this.elements;
+	}
+	
+	/**
+	 * Returns the length of the text counted so far
+	 * 
+	 * @return The text length
+	 */
+	long getTextLength() {
+		return this.textLength;
+	}
+	
+	/**
+	 * Sets the number of bytes read or written, when known without counting
+	 * 
+	 * @param bytes The byte count
+	 */
+	void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+	
+	@Override
+	public void startDocument(String encoding, String version, String systemId, boolean standalone) {
+		this.handler.startDocument(encoding, version, systemId, standalone);
+	}
+	
+	@Override
+	public void startElement(String name, XMLAttributes attributes) {
+		this.elements++;
+		this.attributes += attributes.getCount();
+		
+		if (++this.depth > this.maxDepth)
+			this.maxDepth = this.depth;
+		
+		this.handler.startElement(name, attributes);
+	}
+	
+	@Override
+	public void text(char[] characters, int start, int length) {
+		this.textLength += length;
+		this.handler.text(characters, start, length);
+	}
+}
\ No newline at end of file
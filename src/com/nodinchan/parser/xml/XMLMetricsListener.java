@@ -0,0 +1,47 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+/**
+ * Receives the {@link XMLMetrics} of each parse and compose
+ * 
+ * <p>
+ * A listener is set on an {@link XMLParserConfig} for parsing, and on an {@link XMLDocument} for composing
+ * and saving. Documents parsed with a listener are given the same listener. Nothing is measured when no
+ * listener is set. Listeners are called on the thread that parsed or composed, so they should be quick
+ * and safe to call from several threads, such as by adding to counters or committing an event to a recorder.
+ * 
+ * @author NodinChan
+ * 
+ */
+public interface XMLMetricsListener {
+	
+	/**
+	 * Called after a document has been composed, whether or not composing succeeded
+	 * 
+	 * @param metrics The measurements of the compose
+	 */
+	default void composed(XMLMetrics metrics) {}
+	
+	/**
+	 * Called after a document has been parsed, whether or not parsing succeeded
+	 * 
+	 * @param metrics The measurements of the parse
+	 */
+	default void parsed(XMLMetrics metrics) {}
+}
\ No newline at end of file
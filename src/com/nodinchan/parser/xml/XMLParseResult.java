@@ -0,0 +1,86 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.nio.file.Path;
+
+/**
+ * Represents the outcome of parsing one file of a batch
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLParseResult {
+	
+	private final Path file;
+	
+	private final XMLDocument document;
+	
+	private final Exception error;
+	
+	/**
+	 * Constructs an {@link XMLParseResult} with the given file, document, and error
+	 * 
+	 * @param file The file parsed
+	 * 
+	 * @param document The parsed document, or null if parsing failed
+	 * 
+	 * @param error The reason parsing failed, or null if it succeeded
+	 */
+	XMLParseResult(Path file, XMLDocument document, Exception error) {
+		this.file = file;
+		this.document = document;
+		this.error = error;
+	}
+	
+	/**
+	 * Returns the parsed {@link XMLDocument}
+	 * 
+	 * @return The document if parsed, otherwise null
+	 */
+	public XMLDocument getDocument() {
+		return this.document;
+	}
+	
+	/**
+	 * Returns the reason the file could not be parsed
+	 * 
+	 * @return The error if parsing failed, otherwise null
+	 */
+	public Exception getError() {
+		return this.error;
+	}
+	
+	/**
+	 * Returns the file parsed
+	 * 
+	 * @return The file
+	 */
+	public Path getFile() {
+		return this.file;
+	}
+	
+	/**
+	 * Indicates whether the file was parsed
+	 * 
+	 * @return True if parsed, otherwise false
+	 */
+	public boolean isParsed() {
+		return this.error == null;
+	}
+}
\ No newline at end of file
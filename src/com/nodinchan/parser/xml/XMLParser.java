@@ -17,13 +17,40 @@
 
 package com.nodinchan.parser.xml;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.SequenceInputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.*;
 
 /**
  * The XML parser
@@ -33,6 +60,10 @@ import javax.xml.stream.events.*;
  */
 public class XMLParser {
 	
+	static final XMLParserConfig DEFAULT_CONFIG = new XMLParserConfig();
+	
+	private static final long PARALLEL_CHUNK_SIZE = 1 << 20;
+	
 	/**
 	 * Composes a String from {@link XMLDocument}
 	 * 
@@ -41,62 +72,231 @@ public class XMLParser {
 	 * @return The composed string
 	 */
 	public static String compose(XMLDocument document) {
+		StringWriter xml = new StringWriter();
+		
+		try {
+			compose(document, xml);
+			
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		return xml.toString();
+	}
+	
+	/**
+	 * Composes an {@link XMLDocument} to a Writer
+	 * 
+	 * <p>
+	 * The document is written incrementally, and the writer is flushed but not closed.
+	 * The bytes written are not counted for the metrics listener of the document.
+	 * 
+	 * @param document The document to compose from
+	 * 
+	 * @param writer The writer to compose to
+	 * 
+	 * @throws IOException
+	 */
+	public static void compose(XMLDocument document, Writer writer) throws IOException {
 		if (document == null)
 			throw new IllegalArgumentException();
 		
-		StringBuilder xml = new StringBuilder();
+		if (writer == null)
+			throw new IllegalArgumentException("Writer cannot be null");
 		
-		String encoding = document.getEncoding();
-		String version = document.getVersion();
-		String standalone = (document.isStandalone()) ? "yes" : "no";
+		XMLMetricsListener listener = document.getMetricsListener();
+		XMLMetricsCounter counter = (listener != null) ? new XMLMetricsCounter() : null;
 		
-		xml.append("<?xml");
-		xml.append(' ').append("version").append("=").append('"').append(version).append('"');
-		xml.append(' ').append("encoding").append("=").append('"').append(encoding).append('"');
-		xml.append(' ').append("standalone").append("=").append('"').append(standalone).append('"');
-		xml.append("?>").append('\n');
+		composeMeasured(document, writer, counter, listener);
+	}
+	
+	/**
+	 * Composes an {@link XMLDocument} to an OutputStream in the encoding of the document
+	 * 
+	 * <p>
+	 * The document is written incrementally, and the stream is flushed but not closed.
+	 * 
+	 * @param document The document to compose from
+	 * 
+	 * @param stream The stream to compose to
+	 * 
+	 * @throws IOException
+	 */
+	public static void compose(XMLDocument document, OutputStream stream) throws IOException {
+		if (document == null)
+			throw new IllegalArgumentException();
+		
+		if (stream == null)
+			throw new IllegalArgumentException("Stream cannot be null");
+		
+		XMLMetricsListener listener = document.getMetricsListener();
+		XMLMetricsCounter counter = (listener != null) ? new XMLMetricsCounter() : null;
+		
+		OutputStream sink = (counter != null) ? counter.count(stream) : stream;
+		composeMeasured(document, new BufferedWriter(new OutputStreamWriter(sink, getCharset(document))), counter, listener);
+	}
+	
+	/**
+	 * Composes an {@link XMLDocument} to a WritableByteChannel in the encoding of the document
+	 * 
+	 * <p>
+	 * The document is written incrementally, and the channel is not closed.
+	 * 
+	 * @param document The document to compose from
+	 * 
+	 * @param channel The channel to compose to
+	 * 
+	 * @throws IOException
+	 */
+	public static void compose(XMLDocument document, WritableByteChannel channel) throws IOException {
+		if (document == null)
+			throw new IllegalArgumentException();
+		
+		if (channel == null)
+			throw new IllegalArgumentException("Channel cannot be null");
 		
-		compose(xml, document, 0);
-		return xml.toString().trim();
+		XMLMetricsListener listener = document.getMetricsListener();
+		XMLMetricsCounter counter = (listener != null) ? new XMLMetricsCounter() : null;
+		
+		WritableByteChannel sink = (counter != null) ? counter.count(channel) : channel;
+		composeMeasured(document, new BufferedWriter(Channels.newWriter(sink, getCharset(document).newEncoder(), -1)), counter, listener);
 	}
 	
-	private static void compose(StringBuilder xml, XMLHierarchical parent, int layer) {
+	private static int compose(Writer xml, XMLHierarchical parent, int layer, XMLMetricsCounter counter) throws IOException {
+		XMLFragmentWriter fragments = (xml instanceof XMLFragmentWriter) ? (XMLFragmentWriter) xml : null;
 		XMLElement previous = null;
+		int height = 0;
 		
 		for (XMLElement element : parent.getElements()) {
 			if (previous != null && !previous.getName().equals(element.getName()))
 				xml.append('\n');
 			
+			xml.append('\n');
+			
 			for (int indent = 0; indent < layer; indent++)
 				xml.append("    ");
 			
-			xml.append('<').append(element.getName());
+			previous = element;
 			
-			for (XMLAttribute attribute : element.getAttributes())
-				xml.append(' ').append(attribute.toString());
+			if (fragments == null) {
+				height = Math.max(height, composeElement(xml, element, layer, counter));
+				continue;
+			}
 			
-			xml.append('>');
+			String fragment = element.getFragment(layer);
+			XMLMetrics metrics = element.getFragmentMetrics();
 			
-			if (element.getElements().size() > 0) {
-				xml.append('\n');
-				
-				compose(xml, element, ++layer);
+			if (fragment != null && counter == null) {
+				xml.append(fragment);
+				continue;
+			}
+			
+			if (fragment != null && metrics != null) {
+				xml.append(fragment);
+				counter.count(metrics, layer);
+				height = Math.max(height, metrics.getMaxDepth());
+				continue;
+			}
+			
+			long position = fragments.getPosition();
+			
+			if (counter == null) {
+				composeElement(xml, element, layer, null);
+				fragment = fragments.capture(position);
 				
-				for (int indent = 0; indent < layer; indent++)
-					xml.append("    ");
+				if (fragment != null)
+					element.setFragment(fragment, layer, null);
 				
-			} else {
-				xml.append(element.getValue());
+				continue;
 			}
 			
-			xml.append("</").append(element.getName()).append('>');
+			int elements = counter.getElementCount();
+			int attributes = counter.getAttributeCount();
+			long textLength = counter.getTextLength();
+			
+			int elementHeight = composeElement(xml, element, layer, counter);
+			height = Math.max(height, elementHeight);
+			
+			fragment = fragments.capture(position);
+			
+			if (fragment != null) {
+				metrics = new XMLMetrics(-1, counter.getElementCount() - elements, counter.getAttributeCount() - attributes, elementHeight, counter.getTextLength() - textLength, 0, true);
+				element.setFragment(fragment, layer, metrics);
+			}
+		}
+		
+		return height;
+	}
+	
+	private static void composeDocument(XMLDocument document, Writer writer, XMLMetricsCounter counter) throws IOException {
+		String encoding = document.getEncoding();
+		String version = document.getVersion();
+		String standalone = (document.isStandalone()) ? "yes" : "no";
+		
+		writer.append("<?xml");
+		writer.append(' ').append("version").append("=").append('"').append(version).append('"');
+		writer.append(' ').append("encoding").append("=").append('"').append(encoding).append('"');
+		writer.append(' ').append("standalone").append("=").append('"').append(standalone).append('"');
+		writer.append("?>");
+		
+		if (document.isIncrementalCompose() && !document.isConcurrent())
+			writer = new XMLFragmentWriter(writer);
+		
+		compose(writer, document, 0, counter);
+		writer.flush();
+	}
+	
+	private static int composeElement(Writer xml, XMLElement element, int layer, XMLMetricsCounter counter) throws IOException {
+		if (counter != null)
+			counter.count(element, layer + 1);
+		
+		xml.append('<').append(element.getName());
+		
+		for (XMLAttribute attribute : element.getAttributes())
+			xml.append(' ').append(attribute.getName()).append("=\"").append(attribute.getValue()).append('"');
+		
+		xml.append('>');
+		
+		int height = 0;
+		
+		if (element.hasElements()) {
+			height = compose(xml, element, layer + 1, counter);
 			
 			xml.append('\n');
 			
-			previous = element;
+			for (int indent = 0; indent < layer; indent++)
+				xml.append("    ");
+			
+		} else if (element.getValue() != null) {
+			xml.append(element.getValue());
+		}
+		
+		xml.append("</").append(element.getName()).append('>');
+		return height + 1;
+	}
+	
+	private static void composeMeasured(XMLDocument document, Writer writer, XMLMetricsCounter counter, XMLMetricsListener listener) throws IOException {
+		if (counter == null) {
+			composeDocument(document, writer, null);
+			return;
+		}
+		
+		boolean successful = false;
+		
+		try {
+			composeDocument(document, writer, counter);
+			successful = true;
+			
+		} finally {
+			listener.composed(counter.finish(successful));
 		}
 	}
 	
+	private static Charset getCharset(XMLDocument document) {
+		String encoding = document.getEncoding();
+		return (encoding != null && !encoding.isEmpty()) ? Charset.forName(encoding) : Charset.forName("UTF-8");
+	}
+	
 	/**
 	 * Parses an {@link XMLDocument} from an InputStream
 	 * 
@@ -105,106 +305,636 @@ public class XMLParser {
 	 * @return The parsed document
 	 */
 	public static XMLDocument parse(InputStream stream) {
+		return parse(stream, DEFAULT_CONFIG);
+	}
+	
+	/**
+	 * Parses an {@link XMLDocument} from a file
+	 * 
+	 * @param file The file to parse from
+	 * 
+	 * @return The parsed document
+	 * 
+	 * @throws IOException
+	 */
+	public static XMLDocument parse(Path file) throws IOException {
+		return parse(file, DEFAULT_CONFIG);
+	}
+	
+	/**
+	 * Parses an {@link XMLDocument} from a file with the given {@link XMLParserConfig}
+	 * 
+	 * @param file The file to parse from
+	 * 
+	 * @param config The parser options
+	 * 
+	 * @return The parsed document
+	 * 
+	 * @throws IOException
+	 */
+	public static XMLDocument parse(Path file, XMLParserConfig config) throws IOException {
+		if (file == null)
+			throw new IllegalArgumentException("File cannot be null");
+		
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		
+		try {
+			return parse(channel, config);
+			
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Parses an {@link XMLDocument} from a FileChannel, from its position to its end
+	 * 
+	 * <p>
+	 * Large files are read through memory-mapped windows, and the channel is not closed.
+	 * 
+	 * @param channel The channel to parse from
+	 * 
+	 * @return The parsed document
+	 * 
+	 * @throws IOException
+	 */
+	public static XMLDocument parse(FileChannel channel) throws IOException {
+		return parse(channel, DEFAULT_CONFIG);
+	}
+	
+	/**
+	 * Parses an {@link XMLDocument} from a FileChannel with the given {@link XMLParserConfig}
+	 * 
+	 * @param channel The channel to parse from
+	 * 
+	 * @param config The parser options
+	 * 
+	 * @return The parsed document
+	 * 
+	 * @throws IOException
+	 * 
+	 * @see #parse(FileChannel)
+	 */
+	public static XMLDocument parse(FileChannel channel, XMLParserConfig config) throws IOException {
+		if (channel == null)
+			throw new IllegalArgumentException("Channel cannot be null");
+		
+		XMLChannelInputStream stream = new XMLChannelInputStream(channel, channel.position(), channel.size());
+		
+		try {
+			return parse(stream, config);
+			
+		} finally {
+			stream.close();
+		}
+	}
+	
+	/**
+	 * Parses an {@link XMLDocument} from an InputStream with the given {@link XMLParserConfig}
+	 * 
+	 * @param stream The stream to parse from
+	 * 
+	 * @param config The parser options
+	 * 
+	 * @return The parsed document
+	 */
+	public static XMLDocument parse(InputStream stream, XMLParserConfig config) {
+		if (stream == null)
+			throw new IllegalArgumentException();
+		
+		if (config == null)
+			throw new IllegalArgumentException("Config cannot be null");
+		
+		XMLTreeBuilder builder = new XMLTreeBuilder();
+		
+		try {
+			parseMeasured(stream, builder, config);
+			
+		} catch (Exception e) {}
+		
+		return builder.getDocument().setMetricsListener(config.getMetricsListener());
+	}
+	
+	/**
+	 * Parses an {@link XMLDocument} from an InputStream, failing on malformed input
+	 * 
+	 * @param stream The stream to parse from
+	 * 
+	 * @param config The parser options
+	 * 
+	 * @return The parsed document
+	 * 
+	 * @throws XMLStreamException
+	 */
+	static XMLDocument parseStrictly(InputStream stream, XMLParserConfig config) throws XMLStreamException {
+		XMLTreeBuilder builder = new XMLTreeBuilder();
+		
+		parseMeasured(stream, builder, config);
+		return builder.getDocument().setMetricsListener(config.getMetricsListener());
+	}
+	
+	/**
+	 * Parses an InputStream into the given {@link XMLHandler}, without building {@link XMLElement}s
+	 * 
+	 * @param stream The stream to parse from
+	 * 
+	 * @param handler The handler to receive the document
+	 */
+	public static void parse(InputStream stream, XMLHandler handler) {
+		parse(stream, handler, DEFAULT_CONFIG);
+	}
+	
+	/**
+	 * Parses an InputStream into the given {@link XMLHandler} with the given {@link XMLParserConfig}
+	 * 
+	 * @param stream The stream to parse from
+	 * 
+	 * @param handler The handler to receive the document
+	 * 
+	 * @param config The parser options
+	 */
+	public static void parse(InputStream stream, XMLHandler handler, XMLParserConfig config) {
 		if (stream == null)
 			throw new IllegalArgumentException();
 		
-		XMLDocument document = new XMLDocument();
+		if (handler == null)
+			throw new IllegalArgumentException("Handler cannot be null");
+		
+		if (config == null)
+			throw new IllegalArgumentException("Config cannot be null");
+		
+		try {
+			parseMeasured(stream, handler, config);
+			
+		} catch (XMLStreamException e) {
+			throw new IllegalStateException("Cannot parse stream", e);
+		}
+	}
+	
+	/**
+	 * Parses {@link XMLDocument}s from files concurrently
+	 * 
+	 * @param files The files to parse from
+	 * 
+	 * @return The results, in the order of the files
+	 * 
+	 * @see #parseAll(Collection, XMLBatchConfig)
+	 */
+	public static List<XMLParseResult> parseAll(Collection<Path> files) {
+		return parseAll(files, new XMLBatchConfig());
+	}
+	
+	/**
+	 * Parses {@link XMLDocument}s from files concurrently with the given {@link XMLBatchConfig}
+	 * 
+	 * <p>
+	 * A file that cannot be read or parsed does not stop the batch, but is reported by its result.
+	 * 
+	 * @param files The files to parse from
+	 * 
+	 * @param config The batch options
+	 * 
+	 * @return The results, in the order of the files
+	 */
+	public static List<XMLParseResult> parseAll(Collection<Path> files, XMLBatchConfig config) {
+		if (files == null)
+			throw new IllegalArgumentException("Files cannot be null");
+		
+		if (config == null)
+			throw new IllegalArgumentException("Config cannot be null");
+		
+		XMLBatch batch = new XMLBatch(new ArrayList<Path>(files), config);
+		XMLParseResult[] results = new XMLParseResult[files.size()];
 		
 		try {
-			XMLEventReader reader = XMLInputFactory.newFactory().createXMLEventReader(stream);
+			while (batch.hasNext()) {
+				XMLParseResult result = batch.next();
+				results[batch.getLastIndex()] = result;
+			}
 			
-			if (!reader.hasNext())
-				return document;
+		} finally {
+			batch.close();
+		}
+		
+		return Arrays.asList(results);
+	}
+	
+	/**
+	 * Parses {@link XMLDocument}s from files concurrently with the given {@link XMLBatchConfig},
+	 * handing out each result as soon as it finishes
+	 * 
+	 * <p>
+	 * Parsing only runs ahead of the consumer by the limits of the config. Closing the stream
+	 * stops the batch.
+	 * 
+	 * @param files The files to parse from
+	 * 
+	 * @param config The batch options
+	 * 
+	 * @return The stream of results, in the order they finish
+	 */
+	public static Stream<XMLParseResult> parseAllAsCompleted(Collection<Path> files, XMLBatchConfig config) {
+		if (files == null)
+			throw new IllegalArgumentException("Files cannot be null");
+		
+		if (config == null)
+			throw new IllegalArgumentException("Config cannot be null");
+		
+		final XMLBatch batch = new XMLBatch(new ArrayList<Path>(files), config);
+		Stream<XMLParseResult> stream = StreamSupport.stream(Spliterators.spliterator(batch, files.size(), Spliterator.NONNULL), false);
+		
+		return stream.onClose(new Runnable() {
 			
-			XMLEvent firstEvent = reader.peek();
+			@Override
+			public void run() {
+				batch.close();
+			}
+		});
+	}
+	
+	/**
+	 * Parses part of a document built by an {@link XMLStructure}, without telling the metrics listener
+	 * 
+	 * @param stream The stream to parse from
+	 * 
+	 * @param config The parser options
+	 * 
+	 * @return The parsed document
+	 * 
+	 * @throws XMLStreamException
+	 */
+	static XMLDocument parseFragment(InputStream stream, XMLParserConfig config) throws XMLStreamException {
+		XMLTreeBuilder builder = new XMLTreeBuilder();
+		
+		config.getEngine().parse(stream, builder, config);
+		return builder.getDocument();
+	}
+	
+	/**
+	 * Parses an {@link XMLDocument} from a file, building each {@link XMLElement} only when first used
+	 * 
+	 * @param file The file to parse from
+	 * 
+	 * @return The parsed document
+	 * 
+	 * @throws IOException
+	 * 
+	 * @see #parseLazily(Path, XMLParserConfig)
+	 */
+	public static XMLDocument parseLazily(Path file) throws IOException {
+		return parseLazily(file, DEFAULT_CONFIG);
+	}
+	
+	/**
+	 * Parses an {@link XMLDocument} from a file with the given {@link XMLParserConfig},
+	 * building each {@link XMLElement} only when first used
+	 * 
+	 * <p>
+	 * The file is memory-mapped and one pass records where every element starts and ends. The children
+	 * of an element, with their attributes and values, are then parsed together the first time any of
+	 * the element is read or changed, so the cost follows what is used rather than the size of the file. The file must not change while
+	 * the document is in use. Documents that cannot be scanned safely, such as those with a document
+	 * type declaration, are parsed in full.
+	 * 
+	 * @param file The file to parse from
+	 * 
+	 * @param config The parser options
+	 * 
+	 * @return The parsed document
+	 * 
+	 * @throws IOException
+	 */
+	public static XMLDocument parseLazily(Path file, XMLParserConfig config) throws IOException {
+		if (file == null)
+			throw new IllegalArgumentException("File cannot be null");
+		
+		if (config == null)
+			throw new IllegalArgumentException("Config cannot be null");
+		
+		XMLMetricsListener listener = config.getMetricsListener();
+		XMLMetricsCounter counter = (listener != null) ? new XMLMetricsCounter() : null;
+		
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		
+		try {
+			long size = channel.size();
 			
-			if (firstEvent.isStartDocument()) {
-				StartDocument startDoc = (StartDocument) firstEvent;
-				
-				String encoding = startDoc.getCharacterEncodingScheme();
-				String version = startDoc.getVersion();
-				String systemId = startDoc.getSystemId();
-				boolean standalone = startDoc.isStandalone();
+			if (size > 0 && size <= Integer.MAX_VALUE) {
+				XMLStructure structure = XMLStructure.scan(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), config);
 				
-				document = new XMLDocument(encoding, version, systemId, standalone);
-				reader.next();
+				if (structure != null) {
+					try {
+						XMLDocument document = structure.createDocument();
+						
+						if (counter != null)
+							listener.parsed(counter.finishBytes(size, true));
+						
+						return document.setMetricsListener(listener);
+						
+					} catch (XMLStreamException e) {}
+				}
 			}
 			
-			parse(document, reader);
-			reader.close();
+			return parse(new XMLChannelInputStream(channel, 0, size), config);
 			
-		} catch (Exception e) {}
-		
-		return document;
+		} finally {
+			channel.close();
+		}
 	}
 	
-	private static void parse(XMLHierarchical parent, XMLEventReader reader) throws XMLStreamException {
-		XMLEvent previous = null;
-		XMLEvent event = null;
-		XMLEvent next = null;
+	private static void parseMeasured(InputStream stream, XMLHandler handler, XMLParserConfig config) throws XMLStreamException {
+		XMLMetricsListener listener = config.getMetricsListener();
+		
+		if (listener == null) {
+			config.getEngine().parse(stream, handler, config);
+			return;
+		}
 		
-		while (reader.hasNext()) {
-			event = reader.nextEvent();
-			next = reader.peek();
+		XMLMetricsCounter counter = new XMLMetricsCounter(handler);
+		boolean successful = false;
+		
+		try {
+			config.getEngine().parse(counter.count(stream), counter, config);
+			successful = true;
 			
-			switch (event.getEventType()) {
+		} finally {
+			listener.parsed(counter.finish(successful));
+		}
+	}
+	
+	/**
+	 * Parses an {@link XMLDocument} from a file, parsing the children of the root element in parallel
+	 * 
+	 * @param file The file to parse from
+	 * 
+	 * @return The parsed document
+	 * 
+	 * @throws IOException
+	 * 
+	 * @see #parseParallel(Path, XMLParserConfig, ForkJoinPool)
+	 */
+	public static XMLDocument parseParallel(Path file) throws IOException {
+		return parseParallel(file, DEFAULT_CONFIG, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Parses an {@link XMLDocument} from a file with the given {@link XMLParserConfig},
+	 * parsing the children of the root element in parallel on the given pool
+	 * 
+	 * <p>
+	 * The file is first scanned for the boundaries between the children of the root element,
+	 * and each run of children is then parsed on its own under a copy of the root start tag.
+	 * The result is the same as that of {@link #parse(InputStream, XMLParserConfig)}. Files too
+	 * small to gain from splitting, or that the scan finds cannot be split safely, are parsed
+	 * sequentially. Reads from the file are made as managed blocks of the pool, so waiting on the
+	 * disk does not take away from the parallelism of the pool.
+	 * 
+	 * <p>
+	 * Unlike a sequential parse, a run of children that fails to parse is not skipped: the failure
+	 * is thrown, as an IllegalStateException if the content is malformed.
+	 * 
+	 * @param file The file to parse from
+	 * 
+	 * @param config The parser options
+	 * 
+	 * @param pool The pool to parse on
+	 * 
+	 * @return The parsed document
+	 * 
+	 * @throws IOException
+	 */
+	public static XMLDocument parseParallel(Path file, XMLParserConfig config, ForkJoinPool pool) throws IOException {
+		if (file == null)
+			throw new IllegalArgumentException("File cannot be null");
+		
+		if (config == null)
+			throw new IllegalArgumentException("Config cannot be null");
+		
+		if (pool == null)
+			throw new IllegalArgumentException("Pool cannot be null");
+		
+		XMLMetricsListener listener = config.getMetricsListener();
+		XMLMetricsCounter counter = (listener != null) ? new XMLMetricsCounter() : null;
+		
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		
+		try {
+			long size = channel.size();
 			
-			case XMLEvent.END_ELEMENT:
-				if (previous != null && previous.isEndElement())
-					return;
-				
-				break;
+			if (size >= PARALLEL_CHUNK_SIZE * 2) {
+				XMLBoundaryScanner scanner = new XMLBoundaryScanner(channel, Math.max(PARALLEL_CHUNK_SIZE, size / (pool.getParallelism() * 4)));
 				
-			case XMLEvent.START_ELEMENT:
-				StringBuilder characters = new StringBuilder();
-				
-				if (next.isCharacters()) {
-					while (reader.hasNext()) {
-						if (!next.isCharacters())
-							break;
-						
-						characters.append(reader.nextEvent().asCharacters().getData());
-						next = reader.peek();
+				if (scanner.scan() && !scanner.getBoundaries().isEmpty()) {
+					XMLDocument document = parseParallel(channel, scanner, config, pool);
+					
+					if (counter != null) {
+						counter.setBytes(size);
+						counter.count(document);
+						listener.parsed(counter.finish(true));
 					}
+					
+					return document.setMetricsListener(listener);
 				}
+			}
+			
+			return parse(new XMLChannelInputStream(channel, 0, size), config);
+			
+		} finally {
+			channel.close();
+		}
+	}
+	
+	private static XMLDocument parseParallel(final FileChannel channel, XMLBoundaryScanner scanner, final XMLParserConfig config, ForkJoinPool pool) throws IOException {
+		final byte[] head = read(channel, 0, scanner.getRootContentStart());
+		byte[] name = read(channel, scanner.getRootNameStart(), scanner.getRootNameEnd());
+		
+		final byte[] tail = new byte[name.length + 3];
+		
+		tail[0] = '<';
+		tail[1] = '/';
+		System.arraycopy(name, 0, tail, 2, name.length);
+		tail[tail.length - 1] = '>';
+		
+		List<Long> boundaries = scanner.getBoundaries();
+		List<Callable<XMLTreeBuilder>> chunks = new ArrayList<Callable<XMLTreeBuilder>>(boundaries.size() + 1);
+		
+		for (int chunk = 0; chunk <= boundaries.size(); chunk++) {
+			final long start = (chunk > 0) ? boundaries.get(chunk - 1) : scanner.getRootContentStart();
+			final long end = (chunk < boundaries.size()) ? boundaries.get(chunk) : scanner.getRootEnd();
+			
+			chunks.add(new Callable<XMLTreeBuilder>() {
 				
-				StartElement startElement = event.asStartElement();
-				
-				XMLElement element = new XMLElement(startElement.getName().getLocalPart());
-				
-				switch (next.getEventType()) {
-				
-				case XMLEvent.END_ELEMENT:
-					element.setValue(characters.toString());
-					break;
+				@Override
+				public XMLTreeBuilder call() throws Exception {
+					InputStream stream = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+							new ByteArrayInputStream(head),
+							new XMLBlockingInputStream(new XMLChannelInputStream(channel, start, end)),
+							new ByteArrayInputStream(tail))));
 					
-				case XMLEvent.START_ELEMENT:
-					parse(element, reader);
-					break;
+					XMLTreeBuilder builder = new XMLTreeBuilder();
+					
+					try {
+						config.getEngine().parse(stream, builder, config);
+						
+					} catch (XMLStreamException e) {
+						if (e.getNestedException() instanceof IOException)
+							throw new UncheckedIOException((IOException) e.getNestedException());
+						
+						throw new IllegalStateException("Cannot parse file", e);
+						
+					} finally {
+						stream.close();
+					}
 					
-				default:
-					element = null;
-					break;
+					return builder;
 				}
+			});
+		}
+		
+		List<Future<XMLTreeBuilder>> results = pool.invokeAll(chunks);
+		
+		XMLDocument document = null;
+		XMLElement root = null;
+		
+		for (Future<XMLTreeBuilder> result : results) {
+			XMLTreeBuilder builder;
+			
+			try {
+				builder = result.get();
 				
-				if (element == null)
-					break;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
 				
-				Iterator<?> attributes = startElement.getAttributes();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
 				
-				while (attributes.hasNext()) {
-					Attribute attribute = (Attribute) attributes.next();
-					element.setAttribute(attribute.getName().getLocalPart(), attribute.getValue());
-				}
+				if (cause instanceof UncheckedIOException)
+					throw ((UncheckedIOException) cause).getCause();
+				
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
 				
-				parent.appendElement(element);
-				break;
+				if (cause instanceof Error)
+					throw (Error) cause;
 				
-			default:
+				throw new IllegalStateException("Cannot parse file", cause);
+			}
+			
+			if (root == null) {
+				document = builder.getDocument();
+				root = builder.getRoot();
 				continue;
 			}
 			
-			previous = event;
+			XMLElement part = builder.getRoot();
+			List<XMLElement> children = part.copyElements();
+			
+			part.removeElements();
+			
+			for (XMLElement child : children)
+				root.appendElement(child);
+		}
+		
+		return document;
+	}
+	
+	private static byte[] read(FileChannel channel, long start, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+		
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, start + buffer.position()) < 0)
+				throw new EOFException();
+		}
+		
+		return buffer.array();
+	}
+	
+	/**
+	 * Reads an {@link XMLDocument} written by {@link XMLDocument#writeBinary(OutputStream)} from an InputStream
+	 * 
+	 * @param stream The stream to read from
+	 * 
+	 * @return The read document
+	 * 
+	 * @throws IOException If the stream cannot be read, or does not hold a supported binary document
+	 */
+	public static XMLDocument readBinary(InputStream stream) throws IOException {
+		return readBinary(stream, DEFAULT_CONFIG);
+	}
+	
+	/**
+	 * Reads an {@link XMLDocument} written by {@link XMLDocument#writeBinary(OutputStream)} from an InputStream
+	 * 
+	 * @param stream The stream to read from
+	 * 
+	 * @param config The parser options, whose symbol table the names are shared through
+	 * 
+	 * @return The read document
+	 * 
+	 * @throws IOException If the stream cannot be read, or does not hold a supported binary document
+	 */
+	public static XMLDocument readBinary(InputStream stream, XMLParserConfig config) throws IOException {
+		if (stream == null)
+			throw new IllegalArgumentException("Stream cannot be null");
+		
+		if (config == null)
+			throw new IllegalArgumentException("Config cannot be null");
+		
+		return XMLBinary.read(stream, config.getSymbolTable()).setMetricsListener(config.getMetricsListener());
+	}
+	
+	/**
+	 * Streams the {@link XMLElement}s at the given path from an InputStream, one at a time
+	 * 
+	 * <p>
+	 * The path is a list of element names separated by '/', starting at the root element,
+	 * where '*' matches any name. Each element is built with its subtree, but without a parent,
+	 * so only the element being handled is held in memory.
+	 * 
+	 * @param stream The stream to parse from
+	 * 
+	 * @param path The path of the elements to stream
+	 * 
+	 * @return The iterator of the elements found
+	 */
+	public static XMLRecordIterator stream(InputStream stream, String path) {
+		return stream(stream, path, DEFAULT_CONFIG);
+	}
+	
+	/**
+	 * Streams the {@link XMLElement}s at the given path from an InputStream with the given {@link XMLParserConfig}
+	 * 
+	 * <p>
+	 * Streaming always reads through StAX, because the iterator pulls one element at a time and the
+	 * tokenizer only pushes a whole document to an {@link XMLHandler}. The engine of the config is
+	 * ignored, but its StAX options and symbol table apply.
+	 * 
+	 * @param stream The stream to parse from
+	 * 
+	 * @param path The path of the elements to stream
+	 * 
+	 * @param config The parser options
+	 * 
+	 * @return The iterator of the elements found
+	 * 
+	 * @see #stream(InputStream, String)
+	 */
+	public static XMLRecordIterator stream(InputStream stream, String path, XMLParserConfig config) {
+		if (stream == null)
+			throw new IllegalArgumentException();
+		
+		if (path == null || path.isEmpty())
+			throw new IllegalArgumentException("Path cannot be empty");
+		
+		if (config == null)
+			throw new IllegalArgumentException("Config cannot be null");
+		
+		try {
+			return new XMLRecordIterator(config.getFactory().createXMLStreamReader(stream), path.split("/"), config.getSymbolTable());
+			
+		} catch (XMLStreamException e) {
+			throw new IllegalStateException("Cannot read stream", e);
 		}
 	}
 }
\ No newline at end of file
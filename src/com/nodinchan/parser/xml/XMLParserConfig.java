@@ -0,0 +1,261 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import javax.xml.stream.XMLInputFactory;
+
+/**
+ * Represents the options used by the {@link XMLParser}
+ * 
+ * <p>
+ * The configured factory is created once and reused by every parse, so a config
+ * can be shared between threads and kept for the lifetime of an application.
+ * Reading an option never locks.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLParserConfig {
+	
+	private volatile boolean coalescing;
+	private volatile boolean namespaceAware;
+	private volatile boolean supportingDTD;
+	private volatile boolean supportingExternalEntities;
+	
+	private volatile XMLParserEngine engine;
+	
+	private volatile XMLMetricsListener metricsListener;
+	
+	private volatile XMLInputFactory factory;
+	
+	private volatile XMLSymbolTable symbols;
+	
+	private final XMLBufferPool buffers;
+	
+	/**
+	 * Constructs an {@link XMLParserConfig} with the default options of the StAX implementation
+	 */
+	public XMLParserConfig() {
+		this.coalescing = false;
+		this.namespaceAware = true;
+		this.supportingDTD = true;
+		this.supportingExternalEntities = true;
+		this.engine = XMLParserEngine.STAX;
+		this.symbols = new XMLSymbolTable(1024);
+		this.buffers = new XMLBufferPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+	}
+	
+	/**
+	 * Returns the pool of buffers reused by parses with the options
+	 * 
+	 * @return The buffer pool
+	 */
+	XMLBufferPool getBufferPool() {
+		return this.buffers;
+	}
+	
+	/**
+	 * Returns the engine used to parse
+	 * 
+	 * @return The parser engine
+	 */
+	public XMLParserEngine getEngine() {
+		return this.engine;
+	}
+	
+	/**
+	 * Returns the factory configured with the options, creating it if needed
+	 * 
+	 * @return The input factory
+	 */
+	XMLInputFactory getFactory() {
+		XMLInputFactory factory = this.factory;
+		
+		if (factory != null)
+			return factory;
+		
+		synchronized (this) {
+			if (this.factory == null) {
+				factory = XMLInputFactory.newFactory();
+				
+				factory.setProperty(XMLInputFactory.IS_COALESCING, this.coalescing);
+				factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, this.namespaceAware);
+				factory.setProperty(XMLInputFactory.SUPPORT_DTD, this.supportingDTD);
+				factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, this.supportingExternalEntities);
+				
+				this.factory = factory;
+			}
+			
+			return this.factory;
+		}
+	}
+	
+	/**
+	 * Returns the listener told of each parse with the options
+	 * 
+	 * @return The metrics listener, or null if none
+	 */
+	public XMLMetricsListener getMetricsListener() {
+		return this.metricsListener;
+	}
+	
+	/**
+	 * Returns the table of names shared by parses with the options
+	 * 
+	 * @return The symbol table
+	 */
+	XMLSymbolTable getSymbolTable() {
+		return this.symbols;
+	}
+	
+	/**
+	 * Returns the number of distinct names kept for sharing between parses
+	 * 
+	 * @return The symbol table size
+	 */
+	public int getSymbolTableSize() {
+		return this.symbols.getSize();
+	}
+	
+	/**
+	 * Indicates whether adjacent text is reported as one run
+	 * 
+	 * @return True if coalescing, otherwise false
+	 */
+	public boolean isCoalescing() {
+		return this.coalescing;
+	}
+	
+	/**
+	 * Indicates whether element and attribute names are namespace aware
+	 * 
+	 * @return True if namespace aware, otherwise false
+	 */
+	public boolean isNamespaceAware() {
+		return this.namespaceAware;
+	}
+	
+	/**
+	 * Indicates whether document type declarations are processed
+	 * 
+	 * @return True if supported, otherwise false
+	 */
+	public boolean isSupportingDTD() {
+		return this.supportingDTD;
+	}
+	
+	/**
+	 * Indicates whether external entities are resolved
+	 * 
+	 * @return True if supported, otherwise false
+	 */
+	public boolean isSupportingExternalEntities() {
+		return this.supportingExternalEntities;
+	}
+	
+	/**
+	 * Sets whether adjacent text is reported as one run
+	 * 
+	 * @param coalescing True to coalesce text
+	 * 
+	 * @return The config
+	 */
+	public synchronized XMLParserConfig setCoalescing(boolean coalescing) {
+		this.coalescing = coalescing;
+		this.factory = null;
+		return this;
+	}
+	
+	/**
+	 * Sets the engine used to parse
+	 * 
+	 * @param engine The parser engine, such as {@link XMLParserEngine#TOKENIZER}
+	 * 
+	 * @return The config
+	 */
+	public XMLParserConfig setEngine(XMLParserEngine engine) {
+		if (engine == null)
+			throw new IllegalArgumentException("Engine cannot be null");
+		
+		this.engine = engine;
+		return this;
+	}
+	
+	/**
+	 * Sets the listener told of each parse with the options
+	 * 
+	 * @param metricsListener The metrics listener, or null to measure nothing
+	 * 
+	 * @return The config
+	 */
+	public XMLParserConfig setMetricsListener(XMLMetricsListener metricsListener) {
+		this.metricsListener = metricsListener;
+		return this;
+	}
+	
+	/**
+	 * Sets whether element and attribute names are namespace aware
+	 * 
+	 * @param namespaceAware True to be namespace aware
+	 * 
+	 * @return The config
+	 */
+	public synchronized XMLParserConfig setNamespaceAware(boolean namespaceAware) {
+		this.namespaceAware = namespaceAware;
+		this.factory = null;
+		return this;
+	}
+	
+	/**
+	 * Sets whether document type declarations are processed
+	 * 
+	 * @param supportingDTD True to process document type declarations
+	 * 
+	 * @return The config
+	 */
+	public synchronized XMLParserConfig setSupportingDTD(boolean supportingDTD) {
+		this.supportingDTD = supportingDTD;
+		this.factory = null;
+		return this;
+	}
+	
+	/**
+	 * Sets whether external entities are resolved
+	 * 
+	 * @param supportingExternalEntities True to resolve external entities
+	 * 
+	 * @return The config
+	 */
+	public synchronized XMLParserConfig setSupportingExternalEntities(boolean supportingExternalEntities) {
+		this.supportingExternalEntities = supportingExternalEntities;
+		this.factory = null;
+		return this;
+	}
+	
+	/**
+	 * Sets the number of distinct names kept for sharing between parses
+	 * 
+	 * @param size The symbol table size, rounded up to a power of two of at most 2^30
+	 * 
+	 * @return The config
+	 */
+	public XMLParserConfig setSymbolTableSize(int size) {
+		this.symbols = new XMLSymbolTable(size);
+		return this;
+	}
+}
\ No newline at end of file
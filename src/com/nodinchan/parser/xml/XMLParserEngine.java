@@ -0,0 +1,60 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Reads an XML document from a stream and reports its parts to an {@link XMLHandler}
+ * 
+ * @author NodinChan
+ * 
+ */
+public interface XMLParserEngine {
+	
+	/**
+	 * The engine built on the StAX cursor API of the JDK, supporting the full XML standard
+	 */
+	XMLParserEngine STAX = new XMLStAXEngine();
+	
+	/**
+	 * The engine that tokenizes the characters of the document itself
+	 * 
+	 * <p>
+	 * It covers the parts of XML this library models: elements, attributes, text, CDATA sections and
+	 * the predefined and character references. Comments and processing instructions are skipped, a
+	 * document type declaration is skipped without being processed, and other entity references are
+	 * rejected. In return it avoids much of the work of the StAX engine.
+	 */
+	XMLParserEngine TOKENIZER = new XMLTokenizerEngine();
+	
+	/**
+	 * Parses the stream into the given {@link XMLHandler}
+	 * 
+	 * @param stream The stream to parse from
+	 * 
+	 * @param handler The handler to receive the document
+	 * 
+	 * @param config The parser options
+	 * 
+	 * @throws XMLStreamException If the stream cannot be read or is not well-formed
+	 */
+	void parse(InputStream stream, XMLHandler handler, XMLParserConfig config) throws XMLStreamException;
+}
\ No newline at end of file
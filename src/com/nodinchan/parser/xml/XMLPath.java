@@ -0,0 +1,562 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Represents a compiled path that selects {@link XMLElement}s
+ * 
+ * <p>
+ * A path is a series of steps separated by {@code /} for children or {@code //} for descendants,
+ * and starts from the top of the tree if it begins with either. A step is an element name, {@code *}
+ * for any element, {@code .} for the current node or {@code ..} for its parent, and may be followed
+ * by predicates: {@code [@name]} for elements with an attribute, {@code [@name='value']} for elements
+ * with an attribute value, and {@code [n]} for the n-th element, from 1, among the children of one
+ * parent that match the step so far. For example, {@code //section[@id='net']/entry[2]}.
+ * 
+ * <p>
+ * Elements are visited in document order without building intermediate lists, unless a step follows
+ * a {@code //} step. Such a step can reach elements out of order, such as the parents in {@code //b/..},
+ * so those elements are gathered first and then visited in document order. Compiled paths
+ * are kept in a bounded cache shared by all threads. Looking up a cached path never locks, and the
+ * cache evicts paths not used since the clock last passed them.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLPath {
+	
+	private static final int CACHE_SIZE = 256;
+	
+	private static final ConcurrentMap<String, XMLPath> CACHE = new ConcurrentHashMap<String, XMLPath>();
+	
+	private static final XMLPath[] CLOCK = new XMLPath[CACHE_SIZE];
+	
+	private static int hand;
+	
+	private static final int CHILD = 0;
+	private static final int DESCENDANT = 1;
+	private static final int SELF = 2;
+	private static final int PARENT = 3;
+	
+	private final String expression;
+	
+	private final boolean absolute;
+	private final boolean distinct;
+	private final boolean ordered;
+	
+	private final Step[] steps;
+	
+	private volatile boolean referenced;
+	
+	private XMLPath(String expression, boolean absolute, List<Step> steps) {
+		this.expression = expression;
+		this.absolute = absolute;
+		this.steps = steps.toArray(new Step[steps.size()]);
+		
+		boolean distinct = false;
+		
+		for (int step = 1; step < this.steps.length; step++)
+			distinct |= this.steps[step].axis == DESCENDANT || this.steps[step].axis == PARENT;
+		
+		this.distinct = distinct;
+		
+		boolean ordered = true;
+		
+		for (int step = 0; step < this.steps.length - 1; step++)
+			ordered &= this.steps[step].axis != DESCENDANT;
+		
+		this.ordered = ordered;
+	}
+	
+	/**
+	 * Returns the compiled form of the given path, from the cache if it has been compiled before
+	 * 
+	 * @param expression The path
+	 * 
+	 * @return The compiled path
+	 */
+	public static XMLPath compile(String expression) {
+		if (expression == null || expression.isEmpty())
+			throw new IllegalArgumentException("Path cannot be empty");
+		
+		XMLPath path = CACHE.get(expression);
+		
+		if (path != null) {
+			if (!path.referenced)
+				path.referenced = true;
+			
+			return path;
+		}
+		
+		path = parse(expression);
+		
+		synchronized (CLOCK) {
+			XMLPath existing = CACHE.get(expression);
+			
+			if (existing != null)
+				return existing;
+			
+			while (CLOCK[hand] != null && CLOCK[hand].referenced) {
+				CLOCK[hand].referenced = false;
+				hand = (hand + 1) % CACHE_SIZE;
+			}
+			
+			if (CLOCK[hand] != null)
+				CACHE.remove(CLOCK[hand].expression);
+			
+			CLOCK[hand] = path;
+			hand = (hand + 1) % CACHE_SIZE;
+			
+			CACHE.put(expression, path);
+			return path;
+		}
+	}
+	
+	private boolean descend(XMLHierarchical node, int step, Visitor visitor) {
+		Step current = this.steps[step];
+		int[] counters = current.createCounters();
+		
+		for (XMLElement child : node.getElements()) {
+			if (current.matches(child, counters) && !evaluate(child, step + 1, visitor))
+				return false;
+			
+			if (!descend(child, step, visitor))
+				return false;
+		}
+		
+		return true;
+	}
+	
+	private boolean evaluate(XMLHierarchical node, int step, Visitor visitor) {
+		if (step == this.steps.length)
+			return !(node instanceof XMLElement) || visitor.visit((XMLElement) node);
+		
+		Step current = this.steps[step];
+		
+		switch (current.axis) {
+		
+		case SELF:
+			if (!(node instanceof XMLElement) && current.predicates.length == 0)
+				return evaluate(node, step + 1, visitor);
+			
+			if (node instanceof XMLElement && current.matches((XMLElement) node, current.createCounters()))
+				return evaluate(node, step + 1, visitor);
+			
+			return true;
+		
+		case PARENT:
+			XMLHierarchical parent = (node instanceof XMLElement) ? ((XMLElement) node).getParent() : null;
+			
+			if (parent instanceof XMLElement && current.matches((XMLElement) parent, current.createCounters()))
+				return evaluate(parent, step + 1, visitor);
+			
+			return true;
+		
+		case DESCENDANT:
+			return descend(node, step, visitor);
+		
+		default:
+			List<XMLElement> children = (current.name != null) ? node.getIndexedElements(current.name) : null;
+			int[] counters = current.createCounters();
+			
+			for (XMLElement child : (children != null) ? children : node.getElements()) {
+				if (current.matches(child, counters) && !evaluate(child, step + 1, visitor))
+					return false;
+			}
+			
+			return true;
+		}
+	}
+	
+	/**
+	 * Performs the given action for each {@link XMLElement} selected from the given node, in document order
+	 * 
+	 * @param node The node to select from
+	 * 
+	 * @param action The action to perform
+	 */
+	public void forEach(XMLHierarchical node, final Consumer<? super XMLElement> action) {
+		if (action == null)
+			throw new IllegalArgumentException("Action cannot be null");
+		
+		visit(node, new Visitor() {
+			
+			@Override
+			public boolean visit(XMLElement element) {
+				action.accept(element);
+				return true;
+			}
+		});
+	}
+	
+	private static boolean isNameCharacter(char c) {
+		return c != '/' && c != '[' && c != ']' && c != '@' && c != '=' && c != '\'' && c != '"' && !Character.isWhitespace(c);
+	}
+	
+	private static String name(String expression, int index, String name) {
+		name = name.trim();
+		
+		if (name.isEmpty())
+			throw syntax(expression, index);
+		
+		for (int position = 0; position < name.length(); position++) {
+			if (!isNameCharacter(name.charAt(position)))
+				throw syntax(expression, index);
+		}
+		
+		return name;
+	}
+	
+	private static XMLPath parse(String expression) {
+		List<Step> steps = new ArrayList<Step>();
+		
+		int length = expression.length();
+		int index = 0;
+		int axis = CHILD;
+		
+		boolean absolute = expression.charAt(0) == '/';
+		
+		if (expression.startsWith("//")) {
+			axis = DESCENDANT;
+			index = 2;
+			
+		} else if (absolute) {
+			index = 1;
+		}
+		
+		while (true) {
+			String name = null;
+			
+			if (expression.startsWith("..", index)) {
+				if (axis == DESCENDANT)
+					throw syntax(expression, index);
+				
+				axis = PARENT;
+				index += 2;
+				
+			} else if (expression.startsWith(".", index)) {
+				if (axis == DESCENDANT)
+					throw syntax(expression, index);
+				
+				axis = SELF;
+				index++;
+				
+			} else if (expression.startsWith("*", index)) {
+				index++;
+				
+			} else {
+				int start = index;
+				
+				while (index < length && isNameCharacter(expression.charAt(index)))
+					index++;
+				
+				if (index == start)
+					throw syntax(expression, index);
+				
+				name = expression.substring(start, index);
+			}
+			
+			List<Predicate> predicates = new ArrayList<Predicate>();
+			
+			while (index < length && expression.charAt(index) == '[') {
+				int end = index + 1;
+				char quote = 0;
+				
+				for (; end < length; end++) {
+					char c = expression.charAt(end);
+					
+					if (quote != 0) {
+						if (c == quote)
+							quote = 0;
+						
+					} else if (c == '\'' || c == '"') {
+						quote = c;
+						
+					} else if (c == ']') {
+						break;
+					}
+				}
+				
+				if (end == length)
+					throw syntax(expression, index);
+				
+				predicates.add(parsePredicate(expression, index + 1, end));
+				index = end + 1;
+			}
+			
+			steps.add(new Step(axis, name, predicates));
+			
+			if (index == length)
+				return new XMLPath(expression, absolute, steps);
+			
+			if (expression.startsWith("//", index)) {
+				axis = DESCENDANT;
+				index += 2;
+				
+			} else if (expression.charAt(index) == '/') {
+				axis = CHILD;
+				index++;
+				
+			} else {
+				throw syntax(expression, index);
+			}
+			
+			if (index == length)
+				throw syntax(expression, index);
+		}
+	}
+	
+	private static Predicate parsePredicate(String expression, int start, int end) {
+		String predicate = expression.substring(start, end).trim();
+		
+		if (predicate.isEmpty())
+			throw syntax(expression, start);
+		
+		if (predicate.charAt(0) != '@') {
+			int position;
+			
+			try {
+				position = Integer.parseInt(predicate);
+				
+			} catch (NumberFormatException e) {
+				throw syntax(expression, start);
+			}
+			
+			if (position < 1)
+				throw syntax(expression, start);
+			
+			return new Predicate(position, null, null);
+		}
+		
+		int equals = predicate.indexOf('=');
+		
+		if (equals < 0)
+			return new Predicate(0, name(expression, start, predicate.substring(1)), null);
+		
+		String value = predicate.substring(equals + 1).trim();
+		
+		if (value.length() < 2 || (value.charAt(0) != '\'' && value.charAt(0) != '"') || value.charAt(value.length() - 1) != value.charAt(0))
+			throw syntax(expression, start);
+		
+		return new Predicate(0, name(expression, start, predicate.substring(1, equals)), value.substring(1, value.length() - 1));
+	}
+	
+	/**
+	 * Returns the {@link XMLElement}s selected from the given node, in document order
+	 * 
+	 * @param node The node to select from
+	 * 
+	 * @return The list of elements selected
+	 */
+	public List<XMLElement> select(XMLHierarchical node) {
+		final List<XMLElement> elements = new ArrayList<XMLElement>();
+		
+		visit(node, new Visitor() {
+			
+			@Override
+			public boolean visit(XMLElement element) {
+				elements.add(element);
+				return true;
+			}
+		});
+		
+		return elements;
+	}
+	
+	/**
+	 * Returns the first {@link XMLElement} selected from the given node, in document order
+	 * 
+	 * @param node The node to select from
+	 * 
+	 * @return The element if found, otherwise null
+	 */
+	public XMLElement selectFirst(XMLHierarchical node) {
+		final XMLElement[] first = new XMLElement[1];
+		
+		visit(node, new Visitor() {
+			
+			@Override
+			public boolean visit(XMLElement element) {
+				first[0] = element;
+				return false;
+			}
+		});
+		
+		return first[0];
+	}
+	
+	private static IllegalArgumentException syntax(String expression, int index) {
+		return new IllegalArgumentException("Path cannot be parsed at " + index + ": " + expression);
+	}
+	
+	@Override
+	public String toString() {
+		return this.expression;
+	}
+	
+	private void visit(XMLHierarchical node, final Visitor visitor) {
+		if (node == null)
+			throw new IllegalArgumentException("Node cannot be null");
+		
+		if (this.absolute) {
+			while (node instanceof XMLElement && ((XMLElement) node).getParent() != null)
+				node = ((XMLElement) node).getParent();
+		}
+		
+		if (this.ordered && !this.distinct) {
+			evaluate(node, 0, visitor);
+			return;
+		}
+		
+		final Set<XMLElement> visited = Collections.newSetFromMap(new IdentityHashMap<XMLElement, Boolean>());
+		
+		if (this.ordered) {
+			evaluate(node, 0, new Visitor() {
+				
+				@Override
+				public boolean visit(XMLElement element) {
+					return !visited.add(element) || visitor.visit(element);
+				}
+			});
+			
+			return;
+		}
+		
+		evaluate(node, 0, new Visitor() {
+			
+			@Override
+			public boolean visit(XMLElement element) {
+				visited.add(element);
+				return true;
+			}
+		});
+		
+		while (node instanceof XMLElement && ((XMLElement) node).getParent() != null)
+			node = ((XMLElement) node).getParent();
+		
+		int[] remaining = { visited.size() };
+		
+		if (node instanceof XMLElement && visited.contains(node)) {
+			remaining[0]--;
+			
+			if (!visitor.visit((XMLElement) node))
+				return;
+		}
+		
+		visitInOrder(node, visited, remaining, visitor);
+	}
+	
+	private static boolean visitInOrder(XMLHierarchical node, Set<XMLElement> selected, int[] remaining, Visitor visitor) {
+		for (XMLElement child : node.getElements()) {
+			if (remaining[0] == 0)
+				return false;
+			
+			if (selected.contains(child)) {
+				remaining[0]--;
+				
+				if (!visitor.visit(child))
+					return false;
+			}
+			
+			if (!visitInOrder(child, selected, remaining, visitor))
+				return false;
+		}
+		
+		return true;
+	}
+	
+	private static final class Predicate {
+		
+		private final int position;
+		
+		private final String attribute;
+		private final String value;
+		
+		Predicate(int position, String attribute, String value) {
+			this.position = position;
+			this.attribute = attribute;
+			this.value = value;
+		}
+		
+		boolean matches(XMLElement element) {
+			String value = element.getAttributeValue(this.attribute);
+			return (this.value != null) ? this.value.equals(value) : value != null;
+		}
+	}
+	
+	private static final class Step {
+		
+		private final int axis;
+		
+		private final String name;
+		
+		private final Predicate[] predicates;
+		
+		private final boolean positional;
+		
+		Step(int axis, String name, List<Predicate> predicates) {
+			this.axis = axis;
+			this.name = name;
+			this.predicates = predicates.toArray(new Predicate[predicates.size()]);
+			
+			boolean positional = false;
+			
+			for (Predicate predicate : predicates)
+				positional |= predicate.position > 0;
+			
+			this.positional = positional;
+		}
+		
+		int[] createCounters() {
+			return this.positional ? new int[this.predicates.length] : null;
+		}
+		
+		boolean matches(XMLElement element, int[] counters) {
+			if (this.name != null && !this.name.equals(element.getName()))
+				return false;
+			
+			for (int index = 0; index < this.predicates.length; index++) {
+				Predicate predicate = this.predicates[index];
+				
+				if (predicate.position > 0) {
+					if (++counters[index] != predicate.position)
+						return false;
+					
+				} else if (!predicate.matches(element)) {
+					return false;
+				}
+			}
+			
+			return true;
+		}
+	}
+	
+	private interface Visitor {
+		
+		boolean visit(XMLElement element);
+	}
+}
\ No newline at end of file
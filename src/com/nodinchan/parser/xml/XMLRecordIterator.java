@@ -0,0 +1,162 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Iterates over the {@link XMLElement}s at a path of a document as they are parsed
+ * 
+ * <p>
+ * The document is read with StAX whatever {@link XMLParserEngine} is configured.
+ * 
+ * @author NodinChan
+ * 
+ */
+public final class XMLRecordIterator implements Iterator<XMLElement>, Closeable {
+	
+	private final XMLStreamReader reader;
+	
+	private final String[] path;
+	
+	private final XMLSymbolTable symbols;
+	
+	private int depth;
+	private int matched;
+	
+	private XMLElement next;
+	
+	private boolean closed;
+	
+	XMLRecordIterator(XMLStreamReader reader, String[] path, XMLSymbolTable symbols) {
+		this.reader = reader;
+		this.path = path;
+		this.symbols = symbols;
+	}
+	
+	/**
+	 * Stops parsing and closes the reader
+	 */
+	@Override
+	public void close() {
+		if (this.closed)
+			return;
+		
+		this.closed = true;
+		this.next = null;
+		
+		try {
+			this.reader.close();
+			
+		} catch (XMLStreamException e) {}
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (this.next != null)
+			return true;
+		
+		if (this.closed)
+			return false;
+		
+		try {
+			this.next = find();
+			
+		} catch (XMLStreamException e) {
+			close();
+			throw new IllegalStateException("Cannot parse stream", e);
+		}
+		
+		if (this.next == null)
+			close();
+		
+		return this.next != null;
+	}
+	
+	private XMLElement find() throws XMLStreamException {
+		while (this.reader.hasNext()) {
+			switch (this.reader.next()) {
+			
+			case XMLStreamConstants.START_ELEMENT:
+				if (this.depth++ != this.matched || !matches(this.path[this.matched], this.reader.getLocalName()))
+					break;
+				
+				if (++this.matched < this.path.length)
+					break;
+				
+				XMLElement element = XMLStAXEngine.parseElement(this.reader, this.symbols);
+				
+				this.depth--;
+				this.matched--;
+				return element;
+			
+			case XMLStreamConstants.END_ELEMENT:
+				if (this.depth-- == this.matched)
+					this.matched--;
+				
+				break;
+			
+			default:
+				continue;
+			}
+		}
+		
+		return null;
+	}
+	
+	private static boolean matches(String step, String name) {
+		return step.equals("*") || step.equals(name);
+	}
+	
+	@Override
+	public XMLElement next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		
+		XMLElement element = this.next;
+		this.next = null;
+		return element;
+	}
+	
+	/**
+	 * Returns a sequential Stream of the remaining {@link XMLElement}s, which closes the iterator when closed
+	 * 
+	 * @return The stream of elements
+	 */
+	public Stream<XMLElement> toStream() {
+		Stream<XMLElement> stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+		
+		return stream.onClose(new Runnable() {
+			
+			@Override
+			public void run() {
+				close();
+			}
+		});
+	}
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Parses with the XMLStreamReader of the configured XMLInputFactory
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLStAXEngine implements XMLParserEngine {
+	
+	@Override
+	public void parse(InputStream stream, XMLHandler handler, XMLParserConfig config) throws XMLStreamException {
+		XMLStreamReader reader = config.getFactory().createXMLStreamReader(stream);
+		XMLSymbolTable symbols = config.getSymbolTable();
+		
+		if (reader.getEventType() == XMLStreamConstants.START_DOCUMENT) {
+			String encoding = reader.getCharacterEncodingScheme();
+			String version = reader.getVersion();
+			String systemId = reader.getLocation().getSystemId();
+			boolean standalone = reader.isStandalone();
+			
+			if (encoding == null)
+				encoding = (reader.getEncoding() != null) ? reader.getEncoding() : "UTF-8";
+			
+			if (version == null)
+				version = "1.0";
+			
+			handler.startDocument(encoding, version, systemId, standalone);
+		}
+		
+		XMLAttributes attributes = new XMLStreamAttributes(reader, symbols);
+		
+		while (reader.hasNext())
+			parse(reader.next(), reader, handler, attributes, symbols);
+		
+		handler.endDocument();
+		reader.close();
+	}
+	
+	private static void parse(int event, XMLStreamReader reader, XMLHandler handler, XMLAttributes attributes, XMLSymbolTable symbols) {
+		switch (event) {
+		
+		case XMLStreamConstants.START_ELEMENT:
+			handler.startElement(symbols.intern(reader.getLocalName()), attributes);
+			break;
+		
+		case XMLStreamConstants.CHARACTERS:
+		case XMLStreamConstants.CDATA:
+		case XMLStreamConstants.SPACE:
+			handler.text(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+			break;
+		
+		case XMLStreamConstants.END_ELEMENT:
+			handler.endElement(symbols.intern(reader.getLocalName()));
+			break;
+		
+		default:
+			break;
+		}
+	}
+	
+	/**
+	 * Parses the {@link XMLElement} at the start element the reader is on, up to its end element
+	 * 
+	 * @param reader The reader positioned on a start element
+	 * 
+	 * @param symbols The table to share names through
+	 * 
+	 * @return The parsed element
+	 * 
+	 * @throws XMLStreamException
+	 */
+	static XMLElement parseElement(XMLStreamReader reader, XMLSymbolTable symbols) throws XMLStreamException {
+		XMLTreeBuilder builder = new XMLTreeBuilder();
+		XMLAttributes attributes = new XMLStreamAttributes(reader, symbols);
+		
+		int event = reader.getEventType();
+		int depth = 0;
+		
+		while (true) {
+			parse(event, reader, builder, attributes, symbols);
+			
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT && --depth == 0)
+				return builder.getRoot();
+			
+			event = reader.next();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the {@link XMLAttributes} of the start element an XMLStreamReader is on
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLStreamAttributes implements XMLAttributes {
+	
+	private final XMLStreamReader reader;
+	
+	private final XMLSymbolTable symbols;
+	
+	XMLStreamAttributes(XMLStreamReader reader, XMLSymbolTable symbols) {
+		this.reader = reader;
+		this.symbols = symbols;
+	}
+	
+	@Override
+	public int getCount() {
+		return this.reader.getAttributeCount();
+	}
+	
+	@Override
+	public String getName(int index) {
+		return this.symbols.intern(this.reader.getAttributeLocalName(index));
+	}
+	
+	@Override
+	public String getValue(int index) {
+		return this.reader.getAttributeValue(index);
+	}
+	
+	@Override
+	public String getValue(String name) {
+		if (name == null || name.isEmpty())
+			throw new IllegalArgumentException("Name cannot be empty");
+		
+		for (int index = 0; index < this.reader.getAttributeCount(); index++) {
+			if (name.equals(this.reader.getAttributeLocalName(index)))
+				return this.reader.getAttributeValue(index);
+		}
+		
+		return null;
+	}
+}
\ No newline at end of file
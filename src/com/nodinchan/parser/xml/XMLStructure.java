@@ -0,0 +1,309 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Holds the byte offsets of every element in a document, so {@link XMLElement}s can be built on demand
+ * 
+ * <p>
+ * One pass over the bytes records where each element starts, where its start tag ends, where it ends,
+ * its parent and the number of elements in its subtree. The children of an element are built together
+ * by parsing only their own tags wrapped in the tags of their ancestors, with the content too of each
+ * child that has no child elements.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLStructure {
+	
+	private final ByteBuffer buffer;
+	
+	private final XMLParserConfig config;
+	
+	private byte[] prolog;
+	
+	private int[] starts;
+	private int[] tagEnds;
+	private int[] ends;
+	private int[] parents;
+	private int[] sizes;
+	private int count;
+	
+	private XMLStructure(ByteBuffer buffer, XMLParserConfig config) {
+		this.buffer = buffer;
+		this.config = config;
+		this.starts = new int[64];
+		this.tagEnds = new int[64];
+		this.ends = new int[64];
+		this.parents = new int[64];
+		this.sizes = new int[64];
+	}
+	
+	private int add(int start, int parent) {
+		if (this.count == this.starts.length) {
+			int length = this.count * 2;
+			
+			this.starts = Arrays.copyOf(this.starts, length);
+			this.tagEnds = Arrays.copyOf(this.tagEnds, length);
+			this.ends = Arrays.copyOf(this.ends, length);
+			this.parents = Arrays.copyOf(this.parents, length);
+			this.sizes = Arrays.copyOf(this.sizes, length);
+		}
+		
+		this.starts[this.count] = start;
+		this.parents[this.count] = parent;
+		return this.count++;
+	}
+	
+	/**
+	 * Parses the document metadata and the root {@link XMLElement}, leaving its children unbuilt
+	 * 
+	 * @return The document
+	 * 
+	 * @throws XMLStreamException
+	 */
+	XMLDocument createDocument() throws XMLStreamException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		
+		write(bytes, this.prolog);
+		writeElement(bytes, 0);
+		
+		XMLDocument document = XMLParser.parseFragment(new ByteArrayInputStream(bytes.toByteArray()), this.config);
+		
+		if (this.sizes[0] > 1)
+			document.getRoot().defer(this, 0);
+		
+		return document;
+	}
+	
+	private XMLStructure finish() {
+		this.prolog = read(0, this.starts[0]);
+		return this;
+	}
+	
+	/**
+	 * Builds the children of the {@link XMLElement} at the given index, leaving their own children unbuilt
+	 * 
+	 * <p>
+	 * Every child is parsed in one pass, from its start tag, or from all of its bytes if it has no child
+	 * elements, wrapped in the tags of its ancestors. The element holds its own lock while it is filled in,
+	 * and lets go of the structure only afterwards, so other threads never see it half built.
+	 * 
+	 * @param element The element to build
+	 * 
+	 * @param index The index of the element
+	 */
+	void materialize(XMLElement element, int index) {
+		int depth = 0;
+		
+		for (int parent = this.parents[index]; parent >= 0; parent = this.parents[parent])
+			depth++;
+		
+		int[] ancestors = new int[depth];
+		
+		for (int parent = this.parents[index], position = depth - 1; parent >= 0; parent = this.parents[parent])
+			ancestors[position--] = parent;
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		
+		write(bytes, this.prolog);
+		
+		for (int ancestor : ancestors)
+			write(bytes, read(this.starts[ancestor], this.tagEnds[ancestor]));
+		
+		int end = index + this.sizes[index];
+		
+		write(bytes, read(this.starts[index], this.tagEnds[index]));
+		
+		for (int child = index + 1; child < end; child += this.sizes[child])
+			writeElement(bytes, child);
+		
+		write(bytes, readEndTag(index));
+		
+		for (int position = depth - 1; position >= 0; position--)
+			write(bytes, readEndTag(ancestors[position]));
+		
+		XMLElement parsed;
+		
+		try {
+			parsed = XMLParser.parseFragment(new ByteArrayInputStream(bytes.toByteArray()), this.config).getRoot();
+			
+		} catch (XMLStreamException e) {
+			throw new IllegalStateException("Cannot parse element", e);
+		}
+		
+		for (int level = 0; level < depth; level++)
+			parsed = parsed.getElement(0);
+		
+		List<XMLElement> children = parsed.copyElements();
+		
+		parsed.removeElements();
+		
+		int child = index + 1;
+		
+		for (XMLElement built : children) {
+			if (this.sizes[child] > 1)
+				built.defer(this, child);
+			
+			element.appendElement(built);
+			child += this.sizes[child];
+		}
+	}
+	
+	private byte[] read(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		
+		ByteBuffer buffer = this.buffer.duplicate();
+		buffer.position(start);
+		buffer.get(bytes);
+		
+		return bytes;
+	}
+	
+	private byte[] readEndTag(int index) {
+		int start = this.ends[index] - 1;
+		
+		while (this.buffer.get(start) != '<')
+			start--;
+		
+		return read(start, this.ends[index]);
+	}
+	
+	/**
+	 * Records the offsets of every element in the bytes of a document
+	 * 
+	 * @param buffer The bytes of the document
+	 * 
+	 * @param config The parser options
+	 * 
+	 * @return The structure, or null if the document cannot be scanned safely
+	 */
+	static XMLStructure scan(ByteBuffer buffer, XMLParserConfig config) {
+		Charset charset = XMLBoundaryScanner.getCharset(buffer, Math.min(buffer.limit(), 256));
+		
+		if (charset == null)
+			return null;
+		
+		Scan scan = new Scan(new XMLStructure(buffer, config));
+		XMLMarkupScanner scanner = new XMLMarkupScanner(scan);
+		
+		byte[] chunk = new byte[1 << 16];
+		ByteBuffer source = buffer.duplicate();
+		
+		for (int offset = 0; source.hasRemaining(); offset += chunk.length) {
+			int length = Math.min(chunk.length, source.remaining());
+			source.get(chunk, 0, length);
+			
+			if (!scanner.scan(chunk, 0, length, offset))
+				break;
+		}
+		
+		return (scan.complete) ? scan.structure.finish() : null;
+	}
+	
+	private static void write(ByteArrayOutputStream stream, byte[] bytes) {
+		stream.write(bytes, 0, bytes.length);
+	}
+	
+	private void writeElement(ByteArrayOutputStream stream, int index) {
+		if (this.sizes[index] == 1) {
+			write(stream, read(this.starts[index], this.ends[index]));
+			
+		} else {
+			write(stream, read(this.starts[index], this.tagEnds[index]));
+			write(stream, readEndTag(index));
+		}
+	}
+	
+	/**
+	 * Records the elements told of by an {@link XMLMarkupScanner}, until the root element ends
+	 * 
+	 * @author NodinChan
+	 * 
+	 */
+	private static final class Scan implements XMLMarkupScanner.Handler {
+		
+		private final XMLStructure structure;
+		
+		private int[] open;
+		private int depth;
+		private int current;
+		
+		private boolean complete;
+		
+		private Scan(XMLStructure structure) {
+			this.structure = structure;
+			this.open = new int[16];
+			this.current = -1;
+		}
+		
+		@Override
+		public boolean endTag(long start, long end) {
+			if (this.depth == 0)
+				return false;
+			
+			int closed = this.open[--this.depth];
+			
+			this.structure.ends[closed] = (int) end;
+			this.structure.sizes[closed] = this.structure.count - closed;
+			
+			this.complete = this.depth == 0;
+			return !this.complete;
+		}
+		
+		@Override
+		public boolean startTag(long start) {
+			if (this.depth == 0 && this.structure.count > 0)
+				return false;
+			
+			this.current = this.structure.add((int) start, (this.depth > 0) ? this.open[this.depth - 1] : -1);
+			return true;
+		}
+		
+		@Override
+		public boolean startTagEnd(long end, boolean empty) {
+			this.structure.tagEnds[this.current] = (int) end;
+			
+			if (empty) {
+				this.structure.ends[this.current] = (int) end;
+				this.structure.sizes[this.current] = 1;
+				
+				this.complete = this.depth == 0;
+				return !this.complete;
+			}
+			
+			if (this.depth == this.open.length)
+				this.open = Arrays.copyOf(this.open, this.depth * 2);
+			
+			this.open[this.depth++] = this.current;
+			return true;
+		}
+		
+		@Override
+		public void startTagName(long end) {}
+	}
+}
\ No newline at end of file
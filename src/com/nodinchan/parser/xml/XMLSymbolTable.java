@@ -0,0 +1,126 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+/**
+ * A bounded table of element and attribute names shared by parses
+ * 
+ * <p>
+ * Each slot holds one name, so the table never grows beyond its size. A name that
+ * collides with another simply takes over the slot, and the next occurrence of the
+ * evicted name is stored again. Slots are written without locking, which at worst
+ * leaves two equal names in use, so one table can be shared by concurrent parses.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLSymbolTable {
+	
+	private static final int MAX_SIZE = 1 << 30;
+	
+	private final String[] symbols;
+	
+	private final int mask;
+	
+	/**
+	 * Constructs an {@link XMLSymbolTable} holding up to the given number of names
+	 * 
+	 * @param size The table size, rounded up to a power of two of at most 2^30
+	 */
+	XMLSymbolTable(int size) {
+		if (size < 1)
+			throw new IllegalArgumentException("Size must be positive");
+		
+		if (size > MAX_SIZE)
+			throw new IllegalArgumentException("Size cannot exceed " + MAX_SIZE);
+		
+		int capacity = Integer.highestOneBit(size);
+		
+		if (capacity < size)
+			capacity <<= 1;
+		
+		this.symbols = new String[capacity];
+		this.mask = capacity - 1;
+	}
+	
+	/**
+	 * Returns the number of names the table can hold
+	 * 
+	 * @return The table size
+	 */
+	int getSize() {
+		return this.symbols.length;
+	}
+	
+	/**
+	 * Returns the shared instance of the given name
+	 * 
+	 * @param name The name to look up
+	 * 
+	 * @return The shared name
+	 */
+	String intern(String name) {
+		int hash = name.hashCode();
+		int slot = (hash ^ (hash >>> 16)) & this.mask;
+		
+		String symbol = this.symbols[slot];
+		
+		if (symbol != null && symbol.equals(name))
+			return symbol;
+		
+		this.symbols[slot] = name;
+		return name;
+	}
+	
+	/**
+	 * Returns the shared instance of the name in the given range of characters
+	 * 
+	 * @param characters The buffer holding the name
+	 * 
+	 * @param start The index of the first character
+	 * 
+	 * @param length The number of characters
+	 * 
+	 * @return The shared name
+	 */
+	String intern(char[] characters, int start, int length) {
+		int hash = 0;
+		
+		for (int index = start; index < start + length; index++)
+			hash = 31 * hash + characters[index];
+		
+		int slot = (hash ^ (hash >>> 16)) & this.mask;
+		
+		String symbol = this.symbols[slot];
+		
+		if (symbol != null && symbol.length() == length) {
+			int index = 0;
+			
+			while (index < length && symbol.charAt(index) == characters[start + index])
+				index++;
+			
+			if (index == length)
+				return symbol;
+		}
+		
+		symbol = new String(characters, start, length);
+		
+		this.symbols[slot] = symbol;
+		return symbol;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,954 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Tokenizes the characters of a document straight into an {@link XMLHandler}
+ * 
+ * <p>
+ * Characters are read into one buffer, and text is reported as ranges of that buffer without
+ * being copied. A start or end tag is always held whole in the buffer before it is read, so only
+ * text, comments and CDATA sections need to cope with running past the end of the buffer.
+ * 
+ * <p>
+ * The encoding is detected from the first bytes, by the byte order mark, the byte pattern of
+ * {@code <?} or the declaration. UTF-8, US-ASCII and ISO-8859-1 are decoded by the tokenizer
+ * straight from its byte buffer into its character buffer, and other encodings through a Reader.
+ * Both buffers come from the {@link XMLBufferPool} of the config.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLTokenizer {
+	
+	private static final char[] NEWLINE = { '\n' };
+	
+	private static final int SNIFF_SIZE = 1024;
+	
+	private static final int UTF_8 = 0;
+	private static final int US_ASCII = 1;
+	private static final int ISO_8859_1 = 2;
+	private static final int READER = 3;
+	
+	private static final Pattern ENCODING = Pattern.compile("^<\\?xml[^>]*?\\sencoding\\s*=\\s*[\"']([A-Za-z][A-Za-z0-9._-]*)[\"']");
+	
+	private static final Pattern PSEUDO_ATTRIBUTE = Pattern.compile("(version|encoding|standalone)\\s*=\\s*([\"'])(.*?)\\2");
+	
+	private final InputStream stream;
+	
+	private final XMLBufferPool.Buffers buffers;
+	
+	private Reader reader;
+	private int decoding;
+	
+	private byte[] bytes;
+	private int bytePosition;
+	private int byteLimit;
+	
+	private final XMLHandler handler;
+	
+	private final XMLSymbolTable symbols;
+	
+	private final boolean namespaceAware;
+	
+	private final XMLTokenizerAttributes attributes;
+	
+	private String encoding;
+	
+	private char[] buffer;
+	private int position;
+	private int limit;
+	private int mark;
+	
+	private char[] scratch;
+	private int scratchLength;
+	
+	private String[] names;
+	private String[] localNames;
+	private int depth;
+	
+	private boolean rootClosed;
+	private boolean carriageReturn;
+	
+	XMLTokenizer(InputStream stream, XMLBufferPool.Buffers buffers, XMLHandler handler, XMLParserConfig config) {
+		this.stream = stream;
+		this.buffers = buffers;
+		this.handler = handler;
+		this.symbols = config.getSymbolTable();
+		this.namespaceAware = config.isNamespaceAware();
+		this.attributes = new XMLTokenizerAttributes();
+		this.bytes = buffers.bytes;
+		this.buffer = buffers.characters;
+		this.scratch = new char[64];
+		this.names = new String[16];
+		this.localNames = new String[16];
+	}
+	
+	private void appendScratch(char c) {
+		if (this.scratchLength == this.scratch.length)
+			this.scratch = Arrays.copyOf(this.scratch, this.scratchLength * 2);
+		
+		this.scratch[this.scratchLength++] = c;
+	}
+	
+	/**
+	 * Decodes bytes straight into the buffer, reading more from the stream when needed
+	 * 
+	 * @param start The index to decode to
+	 * 
+	 * @param end The index to stop before, at least two after the start
+	 * 
+	 * @return The number of characters decoded, or -1 at the end of the stream
+	 * 
+	 * @throws IOException
+	 */
+	private int decode(int start, int end) throws IOException {
+		if (this.bytePosition == this.byteLimit && !readBytes())
+			return -1;
+		
+		byte[] bytes = this.bytes;
+		char[] buffer = this.buffer;
+		
+		int in = this.bytePosition;
+		int limit = this.byteLimit;
+		int out = start;
+		
+		if (this.decoding == ISO_8859_1) {
+			int count = Math.min(end - start, limit - in);
+			
+			while (out < start + count)
+				buffer[out++] = (char) (bytes[in++] & 0xFF);
+			
+			this.bytePosition = in;
+			return count;
+		}
+		
+		while (out < end && in < limit) {
+			int b = bytes[in];
+			
+			if (b >= 0) {
+				buffer[out++] = (char) b;
+				in++;
+				continue;
+			}
+			
+			int length = ((b & 0xE0) == 0xC0) ? 2 : ((b & 0xF0) == 0xE0) ? 3 : ((b & 0xF8) == 0xF0) ? 4 : 0;
+			
+			if (length == 0 || this.decoding == US_ASCII)
+				throw new MalformedInputException(1);
+			
+			if (in + length > limit || (length == 4 && out + 1 == end))
+				break;
+			
+			int codePoint = b & (0x7F >> length);
+			
+			for (int index = in + 1; index < in + length; index++) {
+				if ((bytes[index] & 0xC0) != 0x80)
+					throw new MalformedInputException(index - in);
+				
+				codePoint = (codePoint << 6) | (bytes[index] & 0x3F);
+			}
+			
+			if (codePoint < ((length == 2) ? 0x80 : (length == 3) ? 0x800 : 0x10000) || codePoint > 0x10FFFF || (codePoint >= 0xD800 && codePoint <= 0xDFFF))
+				throw new MalformedInputException(length);
+			
+			if (length == 4) {
+				buffer[out++] = Character.highSurrogate(codePoint);
+				buffer[out++] = Character.lowSurrogate(codePoint);
+				
+			} else {
+				buffer[out++] = (char) codePoint;
+			}
+			
+			in += length;
+		}
+		
+		this.bytePosition = in;
+		
+		if (out > start)
+			return out - start;
+		
+		if (!readBytes())
+			throw new MalformedInputException(limit - in);
+		
+		return decode(start, end);
+	}
+	
+	private int decodeReference(int start, int end) throws XMLStreamException {
+		int length = end - start;
+		
+		if (length > 1 && this.buffer[start] == '#') {
+			int codePoint = 0;
+			int radix = 10;
+			int index = start + 1;
+			
+			if (this.buffer[index] == 'x') {
+				radix = 16;
+				index++;
+			}
+			
+			if (index == end)
+				throw error("Malformed character reference");
+			
+			for (; index < end; index++) {
+				int digit = Character.digit(this.buffer[index], radix);
+				
+				if (digit < 0 || codePoint > 0x10FFFF)
+					throw error("Malformed character reference");
+				
+				codePoint = codePoint * radix + digit;
+			}
+			
+			if (codePoint == 0 || codePoint > 0x10FFFF)
+				throw error("Invalid character reference");
+			
+			return codePoint;
+		}
+		
+		if (matches(start, length, "lt"))
+			return '<';
+		
+		if (matches(start, length, "gt"))
+			return '>';
+		
+		if (matches(start, length, "amp"))
+			return '&';
+		
+		if (matches(start, length, "apos"))
+			return '\'';
+		
+		if (matches(start, length, "quot"))
+			return '"';
+		
+		throw error("Undeclared entity " + new String(this.buffer, start, length));
+	}
+	
+	private String decodeValue(int start, int end) throws XMLStreamException {
+		this.scratchLength = 0;
+		
+		for (int index = start; index < end; index++) {
+			char c = this.buffer[index];
+			
+			switch (c) {
+			
+			case '<':
+				throw error("Attribute value cannot contain '<'");
+			
+			case '&':
+				int semicolon = index + 1;
+				
+				while (semicolon < end && this.buffer[semicolon] != ';')
+					semicolon++;
+				
+				if (semicolon == end)
+					throw error("Unterminated reference");
+				
+				int codePoint = decodeReference(index + 1, semicolon);
+				
+				if (Character.isSupplementaryCodePoint(codePoint)) {
+					appendScratch(Character.highSurrogate(codePoint));
+					appendScratch(Character.lowSurrogate(codePoint));
+					
+				} else {
+					appendScratch((char) codePoint);
+				}
+				
+				index = semicolon;
+				break;
+			
+			case '\r':
+				if (index + 1 < end && this.buffer[index + 1] == '\n')
+					index++;
+				
+				appendScratch(' ');
+				break;
+			
+			case '\t':
+			case '\n':
+				appendScratch(' ');
+				break;
+			
+			default:
+				appendScratch(c);
+				break;
+			}
+		}
+		
+		return new String(this.scratch, 0, this.scratchLength);
+	}
+	
+	/**
+	 * Detects the encoding from the first bytes of the stream, and chooses how to decode the rest
+	 * 
+	 * @throws IOException
+	 * 
+	 * @throws XMLStreamException If the declared encoding is not supported
+	 */
+	private void detectEncoding() throws IOException, XMLStreamException {
+		byte[] bytes = this.bytes;
+		int count;
+		
+		while (this.byteLimit < SNIFF_SIZE && (count = this.stream.read(bytes, this.byteLimit, bytes.length - this.byteLimit)) > 0)
+			this.byteLimit += count;
+		
+		int length = this.byteLimit;
+		
+		Charset charset = StandardCharsets.UTF_8;
+		this.encoding = "UTF-8";
+		
+		if (length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF) {
+			this.bytePosition = 3;
+			
+		} else if (length >= 2 && (((bytes[0] & 0xFF) == 0xFE && (bytes[1] & 0xFF) == 0xFF) || ((bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xFE))) {
+			charset = StandardCharsets.UTF_16;
+			this.encoding = "UTF-16";
+			
+		} else if (length >= 4 && bytes[0] == 0 && bytes[1] == '<' && bytes[2] == 0 && bytes[3] == '?') {
+			charset = StandardCharsets.UTF_16BE;
+			this.encoding = findEncoding(new String(bytes, 0, length & ~1, charset), "UTF-16BE");
+			
+		} else if (length >= 4 && bytes[0] == '<' && bytes[1] == 0 && bytes[2] == '?' && bytes[3] == 0) {
+			charset = StandardCharsets.UTF_16LE;
+			this.encoding = findEncoding(new String(bytes, 0, length & ~1, charset), "UTF-16LE");
+			
+		} else if (length >= 5 && bytes[0] == '<' && bytes[1] == '?' && bytes[2] == 'x' && bytes[3] == 'm' && bytes[4] == 'l') {
+			int end = 5;
+			
+			while (end < length && bytes[end] != '>')
+				end++;
+			
+			this.encoding = findEncoding(new String(bytes, 0, end, StandardCharsets.ISO_8859_1), "UTF-8");
+			
+			try {
+				charset = Charset.forName(this.encoding);
+				
+			} catch (IllegalArgumentException e) {
+				throw new XMLStreamException("Unsupported encoding " + this.encoding);
+			}
+		}
+		
+		if (charset.equals(StandardCharsets.UTF_8)) {
+			this.decoding = UTF_8;
+			
+		} else if (charset.equals(StandardCharsets.US_ASCII)) {
+			this.decoding = US_ASCII;
+			
+		} else if (charset.equals(StandardCharsets.ISO_8859_1)) {
+			this.decoding = ISO_8859_1;
+			
+		} else {
+			InputStream head = new ByteArrayInputStream(bytes, this.bytePosition, length - this.bytePosition);
+			
+			this.decoding = READER;
+			this.reader = new InputStreamReader(new SequenceInputStream(head, this.stream), charset.newDecoder());
+		}
+	}
+	
+	private XMLStreamException error(String message) {
+		return new XMLStreamException(message);
+	}
+	
+	/**
+	 * Reads more characters into the buffer, discarding those before the mark
+	 * 
+	 * @return True if any were read, otherwise false
+	 * 
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		if (this.mark > 0) {
+			System.arraycopy(this.buffer, this.mark, this.buffer, 0, this.limit - this.mark);
+			
+			this.position -= this.mark;
+			this.limit -= this.mark;
+			this.mark = 0;
+		}
+		
+		if (this.buffer.length - this.limit < 2)
+			this.buffer = this.buffers.characters = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+		
+		int count = (this.decoding == READER) ? this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit) : decode(this.limit, this.buffer.length);
+		
+		if (count <= 0)
+			return false;
+		
+		this.limit += count;
+		return true;
+	}
+	
+	private static String findEncoding(String declaration, String fallback) {
+		Matcher matcher = ENCODING.matcher(declaration);
+		return (matcher.find()) ? matcher.group(1) : fallback;
+	}
+	
+	private int findTagEnd() throws IOException, XMLStreamException {
+		int index = this.position;
+		char quote = 0;
+		
+		while (true) {
+			for (; index < this.limit; index++) {
+				char c = this.buffer[index];
+				
+				if (quote != 0) {
+					if (c == quote)
+						quote = 0;
+					
+				} else if (c == '"' || c == '\'') {
+					quote = c;
+					
+				} else if (c == '>') {
+					return index;
+				}
+			}
+			
+			int offset = index - this.mark;
+			
+			if (!fill())
+				throw error("Unexpected end of document in tag");
+			
+			index = this.mark + offset;
+		}
+	}
+	
+	private boolean isPlainValue(int start, int end) {
+		for (int index = start; index < end; index++) {
+			char c = this.buffer[index];
+			
+			if (c == '&' || c == '<' || c == '\t' || c == '\n' || c == '\r')
+				return false;
+		}
+		
+		return true;
+	}
+	
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+	}
+	
+	private boolean matches(int start, int length, String text) {
+		if (length != text.length())
+			return false;
+		
+		for (int index = 0; index < length; index++) {
+			if (this.buffer[start + index] != text.charAt(index))
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Tokenizes the whole document
+	 * 
+	 * @throws IOException
+	 * 
+	 * @throws XMLStreamException
+	 */
+	void parse() throws IOException, XMLStreamException {
+		String version = "1.0";
+		boolean standalone = false;
+		
+		detectEncoding();
+		
+		if (startsWith("<?xml") && this.limit - this.position > 5 && isWhitespace(this.buffer[this.position + 5])) {
+			int end = skipPast("?>");
+			
+			Matcher matcher = PSEUDO_ATTRIBUTE.matcher(new String(this.buffer, this.mark, end - this.mark));
+			
+			while (matcher.find()) {
+				if (matcher.group(1).equals("version"))
+					version = matcher.group(3);
+				else if (matcher.group(1).equals("encoding"))
+					this.encoding = matcher.group(3);
+				else
+					standalone = matcher.group(3).equals("yes");
+			}
+		}
+		
+		this.handler.startDocument(this.encoding, version, null, standalone);
+		
+		while (true) {
+			this.mark = this.position;
+			
+			if (this.position == this.limit && !fill())
+				break;
+			
+			char c = this.buffer[this.position];
+			
+			if (c == '<') {
+				this.carriageReturn = false;
+				parseMarkup();
+				
+			} else if (this.depth > 0) {
+				parseText();
+				
+			} else if (isWhitespace(c)) {
+				this.position++;
+				
+			} else {
+				throw error("Content is not allowed outside the root element");
+			}
+		}
+		
+		if (this.depth > 0 || !this.rootClosed)
+			throw error("Unexpected end of document");
+		
+		this.handler.endDocument();
+	}
+	
+	private void parseEndTag() throws IOException, XMLStreamException {
+		int end = findTagEnd();
+		int start = this.position + 2;
+		int nameEnd = start;
+		
+		while (nameEnd < end && !isWhitespace(this.buffer[nameEnd]))
+			nameEnd++;
+		
+		for (int index = nameEnd; index < end; index++) {
+			if (!isWhitespace(this.buffer[index]))
+				throw error("Malformed end tag");
+		}
+		
+		if (this.depth == 0 || !matches(start, nameEnd - start, this.names[this.depth - 1]))
+			throw error("End tag " + new String(this.buffer, start, nameEnd - start) + " does not match the start tag");
+		
+		this.position = end + 1;
+		
+		String name = this.localNames[--this.depth];
+		
+		this.names[this.depth] = null;
+		this.localNames[this.depth] = null;
+		
+		if (this.depth == 0)
+			this.rootClosed = true;
+		
+		this.handler.endElement(name);
+	}
+	
+	private void parseMarkup() throws IOException, XMLStreamException {
+		if (this.position + 1 >= this.limit && !fill())
+			throw error("Unexpected end of document");
+		
+		switch (this.buffer[this.position + 1]) {
+		
+		case '/':
+			parseEndTag();
+			break;
+		
+		case '?':
+			skipPast("?>");
+			break;
+		
+		case '!':
+			if (startsWith("<!--")) {
+				this.position += 4;
+				this.mark = this.position;
+				skipPast("-->");
+				
+			} else if (startsWith("<![CDATA[")) {
+				if (this.depth == 0)
+					throw error("CDATA is not allowed outside the root element");
+				
+				this.position += 9;
+				parseCData();
+				
+			} else if (startsWith("<!DOCTYPE")) {
+				if (this.depth > 0 || this.rootClosed)
+					throw error("Misplaced document type declaration");
+				
+				skipDoctype();
+				
+			} else {
+				throw error("Malformed markup");
+			}
+			
+			break;
+		
+		default:
+			parseStartTag();
+			break;
+		}
+	}
+	
+	private void parseCData() throws IOException, XMLStreamException {
+		this.mark = this.position;
+		
+		while (true) {
+			for (int index = this.position; index < this.limit; index++) {
+				if (this.buffer[index] != '>' || index - this.mark < 2 || this.buffer[index - 1] != ']' || this.buffer[index - 2] != ']')
+					continue;
+				
+				text(this.mark, index - 2);
+				
+				this.position = index + 1;
+				this.carriageReturn = false;
+				return;
+			}
+			
+			int keep = Math.max(this.mark, this.limit - 2);
+			
+			text(this.mark, keep);
+			
+			this.position = this.limit;
+			this.mark = keep;
+			
+			if (!fill())
+				throw error("Unexpected end of document in CDATA");
+			
+			this.position = this.mark;
+		}
+	}
+	
+	private void parseReference() throws IOException, XMLStreamException {
+		this.mark = this.position;
+		
+		int index = this.position + 1;
+		
+		while (true) {
+			for (; index < this.limit; index++) {
+				if (this.buffer[index] != ';')
+					continue;
+				
+				int codePoint = decodeReference(this.mark + 1, index);
+				
+				this.scratchLength = 0;
+				
+				if (Character.isSupplementaryCodePoint(codePoint)) {
+					appendScratch(Character.highSurrogate(codePoint));
+					appendScratch(Character.lowSurrogate(codePoint));
+					
+				} else {
+					appendScratch((char) codePoint);
+				}
+				
+				this.position = index + 1;
+				this.carriageReturn = false;
+				this.handler.text(this.scratch, 0, this.scratchLength);
+				return;
+			}
+			
+			if (index - this.mark > 32)
+				throw error("Unterminated reference");
+			
+			int offset = index - this.mark;
+			
+			if (!fill())
+				throw error("Unexpected end of document in reference");
+			
+			index = this.mark + offset;
+		}
+	}
+	
+	private void parseStartTag() throws IOException, XMLStreamException {
+		if (this.rootClosed)
+			throw error("Content is not allowed after the root element");
+		
+		int end = findTagEnd();
+		int start = this.position + 1;
+		int index = start;
+		
+		while (index < end && !isWhitespace(this.buffer[index]) && this.buffer[index] != '/')
+			index++;
+		
+		if (index == start)
+			throw error("Malformed start tag");
+		
+		String name = this.symbols.intern(this.buffer, start, index - start);
+		String localName = localName(name, start, index);
+		
+		boolean empty = this.buffer[end - 1] == '/';
+		int attributesEnd = (empty) ? end - 1 : end;
+		
+		this.attributes.clear();
+		
+		while (true) {
+			while (index < attributesEnd && isWhitespace(this.buffer[index]))
+				index++;
+			
+			if (index >= attributesEnd)
+				break;
+			
+			int attributeStart = index;
+			
+			while (index < attributesEnd && this.buffer[index] != '=' && !isWhitespace(this.buffer[index]))
+				index++;
+			
+			int attributeEnd = index;
+			
+			while (index < attributesEnd && isWhitespace(this.buffer[index]))
+				index++;
+			
+			if (attributeEnd == attributeStart || index >= attributesEnd || this.buffer[index++] != '=')
+				throw error("Malformed attribute in start tag " + name);
+			
+			while (index < attributesEnd && isWhitespace(this.buffer[index]))
+				index++;
+			
+			if (index >= attributesEnd || (this.buffer[index] != '"' && this.buffer[index] != '\''))
+				throw error("Unquoted attribute value in start tag " + name);
+			
+			char quote = this.buffer[index++];
+			int valueStart = index;
+			
+			while (index < attributesEnd && this.buffer[index] != quote)
+				index++;
+			
+			if (index >= attributesEnd)
+				throw error("Unterminated attribute value in start tag " + name);
+			
+			int valueEnd = index++;
+			boolean plain = isPlainValue(valueStart, valueEnd);
+			String value = (plain) ? null : decodeValue(valueStart, valueEnd);
+			
+			if (this.namespaceAware && this.buffer[attributeStart] == 'x' && isNamespaceDeclaration(attributeStart, attributeEnd))
+				continue;
+			
+			String attribute = localName(this.symbols.intern(this.buffer, attributeStart, attributeEnd - attributeStart), attributeStart, attributeEnd);
+			
+			if (plain)
+				this.attributes.add(attribute, this.buffer, valueStart, valueEnd - valueStart);
+			else
+				this.attributes.add(attribute, value);
+		}
+		
+		this.position = end + 1;
+		
+		this.handler.startElement(localName, this.attributes);
+		
+		if (empty) {
+			if (this.depth == 0)
+				this.rootClosed = true;
+			
+			this.handler.endElement(localName);
+			return;
+		}
+		
+		if (this.depth == this.names.length) {
+			this.names = Arrays.copyOf(this.names, this.depth * 2);
+			this.localNames = Arrays.copyOf(this.localNames, this.depth * 2);
+		}
+		
+		this.names[this.depth] = name;
+		this.localNames[this.depth++] = localName;
+	}
+	
+	private void parseText() throws IOException, XMLStreamException {
+		while (true) {
+			int index = this.position;
+			
+			while (index < this.limit) {
+				char c = this.buffer[index];
+				
+				if (c == '<' || c == '&')
+					break;
+				
+				index++;
+			}
+			
+			if (index > this.position)
+				text(this.position, index);
+			
+			this.position = index;
+			this.mark = index;
+			
+			if (index < this.limit) {
+				if (this.buffer[index] == '<')
+					return;
+				
+				parseReference();
+				continue;
+			}
+			
+			if (!fill())
+				return;
+		}
+	}
+	
+	private boolean isNamespaceDeclaration(int start, int end) {
+		int length = end - start;
+		return (length == 5 && matches(start, 5, "xmlns")) || (length > 6 && matches(start, 6, "xmlns:"));
+	}
+	
+	private String localName(String name, int start, int end) {
+		if (!this.namespaceAware)
+			return name;
+		
+		for (int index = start; index < end; index++) {
+			if (this.buffer[index] == ':')
+				return this.symbols.intern(this.buffer, index + 1, end - index - 1);
+		}
+		
+		return name;
+	}
+	
+	/**
+	 * Reads more bytes from the stream, keeping those not yet decoded
+	 * 
+	 * @return True if any were read, otherwise false
+	 * 
+	 * @throws IOException
+	 */
+	private boolean readBytes() throws IOException {
+		int remaining = this.byteLimit - this.bytePosition;
+		
+		System.arraycopy(this.bytes, this.bytePosition, this.bytes, 0, remaining);
+		
+		this.bytePosition = 0;
+		this.byteLimit = remaining;
+		
+		int count = this.stream.read(this.bytes, remaining, this.bytes.length - remaining);
+		
+		if (count <= 0)
+			return false;
+		
+		this.byteLimit += count;
+		return true;
+	}
+	
+	private void skipDoctype() throws IOException, XMLStreamException {
+		int index = this.position + 9;
+		int brackets = 0;
+		char quote = 0;
+		
+		while (true) {
+			for (; index < this.limit; index++) {
+				char c = this.buffer[index];
+				
+				if (quote != 0) {
+					if (c == quote)
+						quote = 0;
+					
+				} else if (c == '"' || c == '\'') {
+					quote = c;
+					
+				} else if (c == '[') {
+					brackets++;
+					
+				} else if (c == ']') {
+					brackets--;
+					
+				} else if (c == '>' && brackets == 0) {
+					this.position = index + 1;
+					return;
+				}
+			}
+			
+			this.position = index;
+			this.mark = index;
+			
+			if (!fill())
+				throw error("Unexpected end of document in document type declaration");
+			
+			index = this.position;
+		}
+	}
+	
+	/**
+	 * Moves past the next occurrence of the given terminator, keeping the characters after the mark
+	 * 
+	 * @param terminator The terminator to find
+	 * 
+	 * @return The index at which the terminator starts
+	 */
+	private int skipPast(String terminator) throws IOException, XMLStreamException {
+		int length = terminator.length();
+		char last = terminator.charAt(length - 1);
+		
+		int index = this.position;
+		
+		while (true) {
+			for (; index < this.limit; index++) {
+				if (this.buffer[index] != last || index + 1 - this.mark < length || !matches(index + 1 - length, length, terminator))
+					continue;
+				
+				this.position = index + 1;
+				return index + 1 - length;
+			}
+			
+			int offset = index - this.mark;
+			
+			if (!fill())
+				throw error("Unexpected end of document");
+			
+			index = this.mark + offset;
+		}
+	}
+	
+	private boolean startsWith(String text) throws IOException {
+		while (this.limit - this.position < text.length()) {
+			if (!fill())
+				return false;
+		}
+		
+		return matches(this.position, text.length(), text);
+	}
+	
+	/**
+	 * Reports a range of raw text, normalizing line ends to a single line feed
+	 * 
+	 * @param start The index of the first character
+	 * 
+	 * @param end The index after the last character
+	 */
+	private void text(int start, int end) {
+		int run = start;
+		
+		if (this.carriageReturn && run < end && this.buffer[run] == '\n')
+			run++;
+		
+		this.carriageReturn = false;
+		
+		for (int index = run; index < end; index++) {
+			if (this.buffer[index] != '\r')
+				continue;
+			
+			if (index > run)
+				this.handler.text(this.buffer, run, index - run);
+			
+			this.handler.text(NEWLINE, 0, 1);
+			
+			if (index + 1 < end) {
+				if (this.buffer[index + 1] == '\n')
+					index++;
+				
+			} else {
+				this.carriageReturn = true;
+			}
+			
+			run = index + 1;
+		}
+		
+		if (run < end)
+			this.handler.text(this.buffer, run, end - run);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.util.Arrays;
+
+/**
+ * Holds the {@link XMLAttributes} of the start tag being tokenized, reused from one tag to the next
+ * 
+ * <p>
+ * Values without references or whitespace to normalize are kept as ranges of the tokenizer buffer,
+ * and only made into Strings when read, so a handler that ignores them allocates nothing for them.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLTokenizerAttributes implements XMLAttributes {
+	
+	private String[] names;
+	private String[] values;
+	
+	private char[] characters;
+	private int[] starts;
+	private int[] lengths;
+	
+	private int count;
+	
+	XMLTokenizerAttributes() {
+		this.names = new String[8];
+		this.values = new String[8];
+		this.starts = new int[8];
+		this.lengths = new int[8];
+	}
+	
+	/**
+	 * Adds an attribute to the current start tag
+	 * 
+	 * @param name The attribute name
+	 * 
+	 * @param value The attribute value
+	 */
+	void add(String name, String value) {
+		grow();
+		
+		this.names[this.count] = name;
+		this.values[this.count++] = value;
+	}
+	
+	/**
+	 * Adds an attribute to the current start tag, with a value to be read from the given characters
+	 * 
+	 * @param name The attribute name
+	 * 
+	 * @param characters The buffer holding the value, unchanged until the next start tag
+	 * 
+	 * @param start The index of the first character of the value
+	 * 
+	 * @param length The number of characters in the value
+	 */
+	void add(String name, char[] characters, int start, int length) {
+		grow();
+		
+		this.characters = characters;
+		this.starts[this.count] = start;
+		this.lengths[this.count] = length;
+		this.names[this.count++] = name;
+	}
+	
+	/**
+	 * Removes the attributes of the previous start tag
+	 */
+	void clear() {
+		Arrays.fill(this.values, 0, this.count, null);
+		this.characters = null;
+		this.count = 0;
+	}
+	
+	@Override
+	public int getCount() {
+		return this.count;
+	}
+	
+	@Override
+	public String getName(int index) {
+		if (index < 0 || index >= this.count)
+			throw new IndexOutOfBoundsException("Index cannot be beyond 0 to " + (this.count - 1));
+		
+		return this.names[index];
+	}
+	
+	@Override
+	public String getValue(int index) {
+		if (index < 0 || index >= this.count)
+			throw new IndexOutOfBoundsException("Index cannot be beyond 0 to " + (this.count - 1));
+		
+		if (this.values[index] == null)
+			this.values[index] = new String(this.characters, this.starts[index], this.lengths[index]);
+		
+		return this.values[index];
+	}
+	
+	@Override
+	public String getValue(String name) {
+		if (name == null || name.isEmpty())
+			throw new IllegalArgumentException("Name cannot be empty");
+		
+		for (int index = 0; index < this.count; index++) {
+			if (name.equals(this.names[index]))
+				return getValue(index);
+		}
+		
+		return null;
+	}
+	
+	private void grow() {
+		if (this.count < this.names.length)
+			return;
+		
+		this.names = Arrays.copyOf(this.names, this.count * 2);
+		this.values = Arrays.copyOf(this.values, this.count * 2);
+		this.starts = Arrays.copyOf(this.starts, this.count * 2);
+		this.lengths = Arrays.copyOf(this.lengths, this.count * 2);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Parses with an {@link XMLTokenizer}, using buffers from the {@link XMLBufferPool} of the config
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLTokenizerEngine implements XMLParserEngine {
+	
+	@Override
+	public void parse(InputStream stream, XMLHandler handler, XMLParserConfig config) throws XMLStreamException {
+		XMLBufferPool pool = config.getBufferPool();
+		XMLBufferPool.Buffers buffers = pool.acquire();
+		
+		try {
+			new XMLTokenizer(stream, buffers, handler, config).parse();
+			
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+			
+		} finally {
+			pool.release(buffers);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import java.util.Arrays;
+
+/**
+ * Builds {@link XMLElement}s from the parts of a document
+ * 
+ * <p>
+ * An element with child elements has no value, and an element without any takes all
+ * of its text as its value.
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLTreeBuilder implements XMLHandler {
+	
+	private XMLDocument document;
+	
+	private XMLElement root;
+	
+	private XMLElement[] open;
+	private int[] marks;
+	private int depth;
+	
+	private final StringBuilder characters;
+	
+	XMLTreeBuilder() {
+		this.open = new XMLElement[16];
+		this.marks = new int[16];
+		this.characters = new StringBuilder();
+	}
+	
+	/**
+	 * Returns the document built, if the document was started
+	 * 
+	 * @return The document
+	 */
+	XMLDocument getDocument() {
+		return (this.document != null) ? this.document : new XMLDocument();
+	}
+	
+	/**
+	 * Returns the first top-level element built
+	 * 
+	 * @return The element if any, otherwise null
+	 */
+	XMLElement getRoot() {
+		return this.root;
+	}
+	
+	@Override
+	public void startDocument(String encoding, String version, String systemId, boolean standalone) {
+		this.document = new XMLDocument(encoding, version, systemId, standalone);
+	}
+	
+	@Override
+	public void startElement(String name, XMLAttributes attributes) {
+		XMLElement element = new XMLElement(name);
+		
+		for (int index = 0; index < attributes.getCount(); index++)
+			element.setAttribute(attributes.getName(index), attributes.getValue(index));
+		
+		if (this.depth > 0) {
+			this.open[this.depth - 1].appendElement(element);
+			
+		} else {
+			if (this.root == null)
+				this.root = element;
+			
+			if (this.document != null)
+				this.document.appendElement(element);
+		}
+		
+		if (this.depth == this.open.length) {
+			this.open = Arrays.copyOf(this.open, this.depth * 2);
+			this.marks = Arrays.copyOf(this.marks, this.depth * 2);
+		}
+		
+		this.open[this.depth] = element;
+		this.marks[this.depth++] = this.characters.length();
+	}
+	
+	@Override
+	public void text(char[] characters, int start, int length) {
+		if (this.depth > 0)
+			this.characters.append(characters, start, length);
+	}
+	
+	@Override
+	public void endElement(String name) {
+		XMLElement element = this.open[--this.depth];
+		int mark = this.marks[this.depth];
+		
+		this.open[this.depth] = null;
+		
+		if (!element.hasElements())
+			element.setValue(this.characters.substring(mark));
+		
+		this.characters.setLength(mark);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link XMLAttributeIndex} against a walk of the tree after random edits
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLAttributeIndexTest {
+	
+	private static final int EDITS = 5000;
+	
+	private static Map<String, Set<XMLElement>> index(XMLDocument document) {
+		Map<String, Set<XMLElement>> expected = new HashMap<String, Set<XMLElement>>();
+		
+		for (XMLElement element : XMLTestTrees.collect(document)) {
+			String value = element.getAttributeValue("id");
+			
+			if (value == null)
+				continue;
+			
+			if (!expected.containsKey(value))
+				expected.put(value, Collections.newSetFromMap(new IdentityHashMap<XMLElement, Boolean>()));
+			
+			expected.get(value).add(element);
+		}
+		
+		return expected;
+	}
+	
+	private static void randomEdits(boolean concurrent) {
+		Random random = new Random(5);
+		
+		XMLDocument document = XMLTestTrees.parse(XMLTestTrees.records(30));
+		
+		if (concurrent)
+			document.makeConcurrent();
+		
+		XMLAttributeIndex index = document.indexBy("id");
+		XMLElement detached = new XMLElement("detached");
+		
+		for (int edit = 0; edit < EDITS; edit++) {
+			XMLTestTrees.edit(document, detached, random);
+			
+			Map<String, Set<XMLElement>> expected = index(document);
+			
+			assertEquals("Values after edit " + edit, expected.size(), index.size());
+			
+			for (Map.Entry<String, Set<XMLElement>> entry : expected.entrySet()) {
+				List<XMLElement> found = index.getAll(entry.getKey());
+				
+				assertEquals("Elements of " + entry.getKey() + " after edit " + edit, entry.getValue().size(), found.size());
+				assertTrue("Elements of " + entry.getKey() + " after edit " + edit, entry.getValue().containsAll(found));
+			}
+		}
+	}
+	
+	@Test
+	public void testDuplicateValuesKeepOrder() {
+		XMLDocument document = new XMLDocument();
+		XMLElement root = new XMLElement("r");
+		document.setRoot(root);
+		
+		XMLAttributeIndex index = document.indexBy("id");
+		List<XMLElement> elements = new ArrayList<XMLElement>();
+		
+		for (int count = 0; count < 1000; count++) {
+			XMLElement element = new XMLElement("e").setAttribute("id", "same");
+			
+			root.appendElement(element);
+			elements.add(element);
+		}
+		
+		List<XMLElement> before = index.getAll("same");
+		
+		root.removeElement(elements.remove(500));
+		
+		assertEquals(elements, index.getAll("same"));
+		assertEquals(1000, before.size());
+		assertSame(elements.get(0), index.get("same"));
+	}
+	
+	@Test
+	public void testRandomEdits() {
+		randomEdits(false);
+	}
+	
+	@Test
+	public void testRandomEditsConcurrent() {
+		randomEdits(true);
+	}
+	
+	@Test
+	public void testSetValueReindexes() {
+		XMLDocument document = new XMLDocument();
+		XMLElement element = new XMLElement("e").setAttribute("id", "1");
+		document.setRoot(new XMLElement("r").appendElement(element));
+		
+		XMLAttributeIndex index = document.indexBy("id");
+		XMLAttribute attribute = element.getAttribute("id");
+		
+		attribute.setValue("2");
+		
+		assertFalse(index.contains("1"));
+		assertSame(element, index.get("2"));
+		
+		element.removeAttribute("id");
+		attribute.setValue("3");
+		
+		assertFalse(index.contains("3"));
+		assertEquals(0, index.size());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the parsing of a batch of files by {@link XMLParser#parseAll(java.util.Collection, XMLBatchConfig)}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLBatchTest {
+	
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	private Path write(String name, String content) throws IOException {
+		return Files.write(folder.getRoot().toPath().resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void testClose() throws IOException {
+		List<Path> files = Arrays.asList(write("a.xml", "<r/>"), write("b.xml", "<r/>"), write("c.xml", "<r/>"));
+		HeldExecutor executor = new HeldExecutor();
+		Listener listener = new Listener();
+		
+		XMLBatchConfig config = new XMLBatchConfig().setExecutor(executor).setMaxConcurrency(2).setParserConfig(new XMLParserConfig().setMetricsListener(listener));
+		Stream<XMLParseResult> stream = XMLParser.parseAllAsCompleted(files, config);
+		Iterator<XMLParseResult> results = stream.iterator();
+		
+		assertNotNull(results.next().getDocument());
+		assertEquals(1, executor.held.size());
+		assertEquals(1, listener.parsed);
+		
+		stream.close();
+		executor.held.get(0).run();
+		
+		assertEquals(1, listener.parsed);
+	}
+	
+	@Test
+	public void testDefaultConfig() {
+		assertSame(XMLParser.DEFAULT_CONFIG, new XMLBatchConfig().getParserConfig());
+	}
+	
+	@Test
+	public void testParseAll() throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		
+		for (int file = 0; file < 8; file++)
+			files.add(write(file + ".xml", XMLTestTrees.records(file * 10)));
+		
+		files.add(3, write("bad.xml", "<r><a></r>"));
+		
+		List<XMLParseResult> results = XMLParser.parseAll(files, new XMLBatchConfig().setMaxConcurrency(3).setMaxInFlightBytes(100));
+		
+		assertEquals(files.size(), results.size());
+		assertNull(results.get(3).getDocument());
+		assertNotNull(results.get(3).getError());
+		
+		for (int index = 0; index < files.size(); index++) {
+			XMLParseResult result = results.get(index);
+			
+			assertSame(files.get(index), result.getFile());
+			
+			if (index != 3)
+				assertEquals(XMLParser.compose(XMLTestTrees.parse(new String(Files.readAllBytes(files.get(index)), StandardCharsets.UTF_8))), XMLParser.compose(result.getDocument()));
+		}
+	}
+	
+	/**
+	 * Runs the first task at once, and holds back the rest
+	 */
+	private static final class HeldExecutor implements Executor {
+		
+		private final List<Runnable> held = new ArrayList<Runnable>();
+		
+		private boolean started;
+		
+		@Override
+		public void execute(Runnable task) {
+			if (this.started) {
+				this.held.add(task);
+				
+			} else {
+				this.started = true;
+				task.run();
+			}
+		}
+	}
+	
+	private static final class Listener implements XMLMetricsListener {
+		
+		private int parsed;
+		
+		@Override
+		public void parsed(XMLMetrics metrics) {
+			this.parsed++;
+		}
+	}
+}
\ No newline at end of file
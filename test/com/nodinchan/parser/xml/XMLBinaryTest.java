@@ -0,0 +1,168 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests writing {@link XMLDocument}s in binary form and reading them back with {@link XMLParser#readBinary(java.io.InputStream)}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLBinaryTest {
+	
+	private static byte[] write(XMLDocument document) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		document.writeBinary(bytes);
+		return bytes.toByteArray();
+	}
+	
+	private static XMLDocument roundTrip(XMLDocument document) throws IOException {
+		return XMLParser.readBinary(new ByteArrayInputStream(write(document)));
+	}
+	
+	@Test
+	public void testDeepDocument() throws IOException {
+		XMLDocument document = new XMLDocument();
+		XMLElement element = new XMLElement("e0");
+		
+		document.setRoot(element);
+		
+		for (int depth = 1; depth < 100000; depth++) {
+			XMLElement child = new XMLElement("e" + (depth % 7)).setAttribute("d", String.valueOf(depth));
+			element.appendElement(child);
+			element = child;
+		}
+		
+		element.setValue("bottom");
+		
+		XMLElement read = roundTrip(document).getRoot();
+		
+		for (int depth = 1; depth < 100000; depth++) {
+			assertEquals(1, read.getElementCount());
+			
+			read = read.getElement(0);
+			
+			assertEquals("e" + (depth % 7), read.getName());
+			assertEquals(String.valueOf(depth), read.getAttributeValue("d"));
+		}
+		
+		assertFalse(read.hasElements());
+		assertEquals("bottom", read.getValue());
+	}
+	
+	@Test
+	public void testEmptyDocument() throws IOException {
+		XMLDocument read = roundTrip(new XMLDocument("ISO-8859-1", "1.1", "urn:doc", true));
+		
+		assertFalse(read.hasElements());
+		assertEquals("ISO-8859-1", read.getEncoding());
+		assertEquals("1.1", read.getVersion());
+		assertEquals("urn:doc", read.getSystemId());
+		assertTrue(read.isStandalone());
+	}
+	
+	@Test
+	public void testLongValue() throws IOException {
+		StringBuilder value = new StringBuilder();
+		
+		for (int index = 0; index < 100000; index++)
+			value.append((char) ('a' + index % 26)).append((index % 1000 == 0) ? "\u00E9\u4E2D" : "");
+		
+		XMLDocument document = new XMLDocument();
+		document.setRoot(new XMLElement("r").setAttribute("k", value.toString()).appendElement(new XMLElement("v").setValue(value.toString())));
+		
+		XMLElement read = roundTrip(document).getRoot();
+		
+		assertEquals(value.toString(), read.getAttributeValue("k"));
+		assertEquals(value.toString(), read.getElement(0).getValue());
+	}
+	
+	@Test
+	public void testMalformed() throws IOException {
+		byte[] bytes = write(XMLTestTrees.parse(XMLTestTrees.records(10)));
+		
+		byte[] magic = bytes.clone();
+		magic[0] = 'Y';
+		
+		byte[] trailing = Arrays.copyOf(bytes, bytes.length + 1);
+		
+		for (byte[] malformed : new byte[][] { new byte[0], magic, Arrays.copyOf(bytes, bytes.length - 3), trailing }) {
+			try {
+				XMLParser.readBinary(new ByteArrayInputStream(malformed));
+				fail("Malformed binary document was read");
+				
+			} catch (IOException e) {}
+		}
+	}
+	
+	@Test
+	public void testNullSystemId() throws IOException {
+		XMLDocument document = new XMLDocument("UTF-8", "1.0", null, false);
+		document.setRoot(new XMLElement("r"));
+		
+		XMLDocument read = roundTrip(document);
+		
+		assertNull(read.getSystemId());
+		assertEquals("UTF-8", read.getEncoding());
+		assertFalse(read.isStandalone());
+	}
+	
+	@Test
+	public void testRandomEdits() throws IOException {
+		Random random = new Random(20);
+		XMLDocument document = XMLTestTrees.parse(XMLTestTrees.records(20));
+		XMLElement detached = new XMLElement("detached");
+		
+		for (int edit = 0; edit < 500; edit++) {
+			XMLTestTrees.edit(document, detached, random);
+			
+			if (edit % 25 == 0) {
+				XMLDocument read = roundTrip(document);
+				
+				assertEquals(XMLParser.compose(document), XMLParser.compose(read));
+				assertEquals(document.getRoot().getStructuralHash(), read.getRoot().getStructuralHash());
+			}
+		}
+	}
+	
+	@Test
+	public void testRoundTrip() throws IOException {
+		XMLDocument document = XMLTestTrees.parse("<?xml version='1.0' encoding='UTF-8' standalone='yes'?>" + XMLTestTrees.records(300).replace("<r>", "<r a='1' b=''>"));
+		byte[] bytes = write(document);
+		XMLDocument read = XMLParser.readBinary(new ByteArrayInputStream(bytes));
+		
+		assertEquals(XMLParser.compose(document), XMLParser.compose(read));
+		assertTrue(read.isStandalone());
+		assertArrayEquals(bytes, write(read));
+	}
+}
\ No newline at end of file
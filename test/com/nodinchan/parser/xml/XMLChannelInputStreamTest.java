@@ -0,0 +1,149 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the reading of ranges of a file by {@link XMLChannelInputStream}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLChannelInputStreamTest {
+	
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	private byte[] content;
+	
+	private FileChannel open() throws IOException {
+		this.content = new byte[3 << 20];
+		new Random(7).nextBytes(this.content);
+		
+		Path file = Files.write(folder.getRoot().toPath().resolve("a.bin"), this.content);
+		return FileChannel.open(file, StandardOpenOption.READ);
+	}
+	
+	private static byte[] readAll(InputStream stream, boolean single) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8191];
+		
+		if (single) {
+			for (int read = stream.read(); read >= 0; read = stream.read())
+				bytes.write(read);
+			
+		} else {
+			for (int count = stream.read(buffer, 0, buffer.length); count >= 0; count = stream.read(buffer, 0, buffer.length))
+				bytes.write(buffer, 0, count);
+		}
+		
+		return bytes.toByteArray();
+	}
+	
+	@Test
+	public void testClose() throws IOException {
+		FileChannel channel = open();
+		
+		try {
+			XMLChannelInputStream stream = new XMLChannelInputStream(channel, 0, this.content.length);
+			
+			assertEquals(this.content[0] & 0xFF, stream.read());
+			
+			stream.close();
+			
+			assertEquals(0, stream.available());
+			assertTrue(channel.isOpen());
+			
+			try {
+				stream.read();
+				fail("Read from a closed stream");
+				
+			} catch (IOException e) {}
+			
+		} finally {
+			channel.close();
+		}
+	}
+	
+	@Test
+	public void testMappedRange() throws IOException {
+		FileChannel channel = open();
+		
+		try {
+			int start = 12345;
+			int end = this.content.length - 678;
+			
+			assertArrayEquals(Arrays.copyOfRange(this.content, start, end), readAll(new XMLChannelInputStream(channel, start, end), false));
+			assertArrayEquals(Arrays.copyOfRange(this.content, start, end), readAll(new XMLChannelInputStream(channel, start, end), true));
+			
+		} finally {
+			channel.close();
+		}
+	}
+	
+	@Test
+	public void testSkip() throws IOException {
+		FileChannel channel = open();
+		
+		try {
+			XMLChannelInputStream stream = new XMLChannelInputStream(channel, 100, this.content.length);
+			
+			assertEquals(2 << 20, stream.skip(2 << 20));
+			assertEquals(this.content[100 + (2 << 20)] & 0xFF, stream.read());
+			assertEquals(this.content.length - 101 - (2 << 20), stream.skip(Long.MAX_VALUE));
+			assertEquals(-1, stream.read());
+			
+		} finally {
+			channel.close();
+		}
+	}
+	
+	@Test
+	public void testUnmappedRange() throws IOException {
+		FileChannel channel = open();
+		
+		try {
+			int start = 1 << 20;
+			int end = start + 50000;
+			
+			assertArrayEquals(Arrays.copyOfRange(this.content, start, end), readAll(new XMLChannelInputStream(channel, start, end), false));
+			assertArrayEquals(Arrays.copyOfRange(this.content, start, end), readAll(new XMLChannelInputStream(channel, start, end), true));
+			
+		} finally {
+			channel.close();
+		}
+	}
+}
\ No newline at end of file
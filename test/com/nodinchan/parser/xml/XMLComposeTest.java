@@ -0,0 +1,115 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests composing {@link XMLDocument}s to Writers, OutputStreams and channels
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLComposeTest {
+	
+	@Test
+	public void testEncoding() throws IOException {
+		XMLDocument document = new XMLDocument("ISO-8859-1");
+		document.setRoot(new XMLElement("r").setAttribute("a", "é").setValue("café"));
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		XMLParser.compose(document, bytes);
+		
+		assertArrayEquals(XMLParser.compose(document).getBytes(StandardCharsets.ISO_8859_1), bytes.toByteArray());
+		
+		XMLDocument parsed = XMLParser.parse(new ByteArrayInputStream(bytes.toByteArray()));
+		
+		assertEquals("ISO-8859-1", parsed.getEncoding());
+		assertEquals("café", parsed.getRoot().getValue());
+		assertEquals("é", parsed.getRoot().getAttributeValue("a"));
+	}
+	
+	@Test
+	public void testMetrics() throws IOException {
+		XMLDocument document = XMLTestTrees.parse(XMLTestTrees.records(10));
+		Listener listener = new Listener();
+		document.setMetricsListener(listener);
+		
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		XMLParser.compose(document, stream);
+		
+		assertEquals(stream.size(), listener.metrics.getBytes());
+		assertEquals(41, listener.metrics.getElementCount());
+		assertEquals(10, listener.metrics.getAttributeCount());
+		assertEquals(4, listener.metrics.getMaxDepth());
+		assertTrue(listener.metrics.isSuccessful());
+		
+		ByteArrayOutputStream channel = new ByteArrayOutputStream();
+		XMLParser.compose(document, Channels.newChannel(channel));
+		
+		assertEquals(channel.size(), listener.metrics.getBytes());
+		
+		XMLParser.compose(document, new StringWriter());
+		
+		assertEquals(-1, listener.metrics.getBytes());
+		assertEquals(41, listener.metrics.getElementCount());
+	}
+	
+	@Test
+	public void testSinksMatch() throws IOException {
+		XMLDocument document = XMLTestTrees.parse(XMLTestTrees.records(50));
+		String composed = XMLParser.compose(document);
+		
+		StringWriter writer = new StringWriter();
+		XMLParser.compose(document, writer);
+		
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		XMLParser.compose(document, stream);
+		
+		ByteArrayOutputStream channel = new ByteArrayOutputStream();
+		XMLParser.compose(document, Channels.newChannel(channel));
+		
+		assertEquals(composed, writer.toString());
+		assertEquals(composed, new String(stream.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(composed, new String(channel.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(composed, XMLParser.compose(XMLTestTrees.parse(composed)));
+	}
+	
+	/**
+	 * Keeps the metrics of the last compose
+	 */
+	private static final class Listener implements XMLMetricsListener {
+		
+		private XMLMetrics metrics;
+		
+		@Override
+		public void composed(XMLMetrics metrics) {
+			this.metrics = metrics;
+		}
+	}
+}
\ No newline at end of file
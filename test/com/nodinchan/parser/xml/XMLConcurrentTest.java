@@ -0,0 +1,251 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests reading and changing a concurrent {@link XMLDocument} from many threads at once
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLConcurrentTest {
+	
+	private static XMLDocument build(int parents, int children) {
+		XMLDocument document = new XMLDocument();
+		XMLElement root = new XMLElement("r");
+		
+		document.setRoot(root);
+		
+		for (int parent = 0; parent < parents; parent++) {
+			XMLElement element = new XMLElement("p" + parent).setAttribute("v", "0");
+			
+			for (int child = 0; child < children; child++)
+				element.appendElement(new XMLElement("k" + child).setValue("0"));
+			
+			root.appendElement(element);
+		}
+		
+		return document;
+	}
+	
+	private static void run(List<Thread> threads, List<Throwable> errors) throws InterruptedException {
+		for (Thread thread : threads)
+			thread.start();
+		
+		for (Thread thread : threads)
+			thread.join();
+		
+		if (!errors.isEmpty())
+			throw new AssertionError(errors.get(0));
+	}
+	
+	@Test
+	public void testMoves() throws InterruptedException {
+		final XMLDocument document = build(6, 30).makeConcurrent();
+		final XMLElement root = document.getRoot();
+		final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+		
+		List<Thread> threads = new ArrayList<Thread>();
+		
+		for (int thread = 0; thread < 6; thread++) {
+			final Random random = new Random(thread);
+			
+			threads.add(new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						for (int move = 0; move < 5000; move++) {
+							XMLElement from = root.getElement(random.nextInt(6));
+							XMLElement to = root.getElement(random.nextInt(6));
+							
+							List<XMLElement> children = from.getElements();
+							
+							if (children.isEmpty())
+								continue;
+							
+							XMLElement child;
+							
+							try {
+								child = children.get(random.nextInt(children.size()));
+								
+							} catch (IndexOutOfBoundsException e) {
+								continue;
+							}
+							
+							to.appendElement(child);
+						}
+						
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			});
+		}
+		
+		run(threads, errors);
+		
+		Set<XMLElement> seen = Collections.newSetFromMap(new IdentityHashMap<XMLElement, Boolean>());
+		
+		for (XMLElement parent : root.getElements()) {
+			for (XMLElement child : parent.getElements()) {
+				assertSame(parent, child.getParent());
+				assertTrue(seen.add(child));
+			}
+		}
+		
+		assertEquals(6 * 30, seen.size());
+	}
+	
+	@Test
+	public void testPublication() throws InterruptedException {
+		for (int round = 0; round < 100; round++) {
+			final XMLDocument document = build(2, 2);
+			final CountDownLatch made = new CountDownLatch(1);
+			final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+			
+			List<Thread> threads = new ArrayList<Thread>();
+			
+			threads.add(new Thread() {
+				
+				@Override
+				public void run() {
+					document.makeConcurrent();
+					made.countDown();
+				}
+			});
+			
+			threads.add(new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						made.await();
+						
+						for (XMLElement element : XMLTestTrees.collect(document))
+							assertTrue(element.isConcurrent());
+						
+						assertTrue(document.isConcurrent());
+						
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			});
+			
+			run(threads, errors);
+		}
+	}
+	
+	@Test
+	public void testReadsDuringWrites() throws InterruptedException {
+		final XMLDocument document = build(8, 20).makeConcurrent();
+		final XMLElement root = document.getRoot();
+		final AtomicBoolean stopped = new AtomicBoolean();
+		final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+		
+		List<Thread> readers = new ArrayList<Thread>();
+		List<Thread> writers = new ArrayList<Thread>();
+		
+		for (int thread = 0; thread < 4; thread++) {
+			final Random random = new Random(thread);
+			
+			readers.add(new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						while (!stopped.get()) {
+							XMLElement parent = root.getElement("p" + random.nextInt(8));
+							
+							for (XMLElement child : parent.getElements()) {
+								if (child.getValue() == null)
+									throw new AssertionError("Value of " + child.getName() + " is null");
+							}
+							
+							if (parent.getAttributeValue("v") == null)
+								throw new AssertionError("Attribute of " + parent.getName() + " is missing");
+						}
+						
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			});
+			
+			final int first = thread * 2;
+			
+			writers.add(new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						for (int write = 0; write < 5000; write++) {
+							XMLElement parent = root.getElement("p" + (first + random.nextInt(2)));
+							
+							parent.setAttribute("v", String.valueOf(write));
+							parent.setAttribute("x" + random.nextInt(12), "y");
+							parent.removeAttribute("x" + random.nextInt(12));
+							parent.getElement(random.nextInt(parent.getElementCount())).setValue(String.valueOf(write));
+							
+							if (random.nextInt(10) == 0) {
+								parent.removeElement(parent.getElementCount() - 1);
+								parent.insertElement(new XMLElement("n").setValue("n"), random.nextInt(parent.getElementCount() + 1));
+							}
+						}
+						
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			});
+		}
+		
+		for (Thread reader : readers)
+			reader.start();
+		
+		run(writers, errors);
+		
+		stopped.set(true);
+		
+		for (Thread reader : readers)
+			reader.join();
+		
+		if (!errors.isEmpty())
+			throw new AssertionError(errors.get(0));
+		
+		for (XMLElement parent : root.getElements())
+			assertEquals(20, parent.getElementCount());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that patching with an {@link XMLDiff} reproduces the compared document
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLDiffTest {
+	
+	@Test
+	public void testRandomEdits() {
+		Random random = new Random(11);
+		
+		for (int round = 0; round < 200; round++) {
+			XMLDocument from = XMLTestTrees.parse(XMLTestTrees.records(12));
+			from.getRoot().getStructuralHash();
+			
+			XMLDocument to = from.freeze().thaw();
+			to.getRoot().getStructuralHash();
+			
+			XMLElement detached = new XMLElement("detached");
+			
+			for (int step = random.nextInt(12); step >= 0; step--)
+				XMLTestTrees.edit(to, detached, random);
+			
+			assertEquals("Round " + round, to.freeze().thaw().getRoot().getStructuralHash(), to.getRoot().getStructuralHash());
+			
+			XMLDiff diff = XMLDiff.compare(from, to);
+			from.patch(diff);
+			
+			assertEquals("Round " + round, XMLParser.compose(to), XMLParser.compose(from));
+			assertEquals("Round " + round, to.getRoot().getStructuralHash(), from.getRoot().getStructuralHash());
+			assertTrue("Round " + round, from.diff(to).isEmpty());
+		}
+	}
+	
+	@Test
+	public void testSetValue() {
+		XMLDocument from = XMLTestTrees.parse("<r><e id=\"1\"/></r>");
+		XMLDocument to = from.freeze().thaw();
+		
+		assertTrue(XMLDiff.compare(from, to).isEmpty());
+		
+		to.getRoot().getElement("e").getAttribute("id").setValue("2");
+		
+		assertFalse(XMLDiff.compare(from, to).isEmpty());
+		
+		from.patch(XMLDiff.compare(from, to));
+		
+		assertEquals("2", from.getRoot().getElement("e").getAttributeValue("id"));
+	}
+}
\ No newline at end of file
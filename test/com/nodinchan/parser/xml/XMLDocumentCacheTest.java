@@ -0,0 +1,137 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the loading, invalidation and eviction of {@link XMLDocumentCache}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLDocumentCacheTest {
+	
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	private Path write(String name, String content) throws IOException {
+		return Files.write(folder.getRoot().toPath().resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void testChangedFile() throws IOException {
+		Path file = write("a.xml", "<r><x>1</x></r>");
+		XMLDocumentCache cache = new XMLDocumentCache(1 << 20);
+		
+		XMLFrozenDocument document = cache.get(file);
+		
+		assertSame(document, cache.get(file));
+		assertEquals(1, cache.getHitCount());
+		
+		write("a.xml", "<r><x>22</x></r>");
+		
+		assertNotSame(document, cache.get(file));
+		assertEquals(2, cache.getMissCount());
+	}
+	
+	@Test
+	public void testDefaultConfig() {
+		assertSame(XMLParser.DEFAULT_CONFIG, new XMLDocumentCache(1).getParserConfig());
+	}
+	
+	@Test
+	public void testEvictionWithinBudget() throws IOException {
+		XMLDocumentCache cache = new XMLDocumentCache(1 << 20);
+		Path used = write("used.xml", XMLTestTrees.records(10));
+		XMLFrozenDocument document = cache.get(used);
+		
+		cache.setBudget(cache.getSize() * 4);
+		
+		for (int file = 0; file < 50; file++) {
+			cache.get(write(file + ".xml", XMLTestTrees.records(10)));
+			
+			assertSame(document, cache.get(used));
+			assertTrue(cache.getSize() <= cache.getBudget());
+		}
+		
+		assertEquals(51, cache.getMissCount());
+		assertEquals(51 - cache.getEntryCount(), cache.getEvictionCount());
+		
+		cache.invalidate(used);
+		cache.clear();
+		
+		assertEquals(0, cache.getSize());
+		assertEquals(0, cache.getEntryCount());
+	}
+	
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws IOException {
+		Path first = write("a.xml", "<r><x>1</x></r>");
+		Path second = write("b.xml", "<r><x>2</x></r>");
+		Path third = write("c.xml", "<r><x>3</x></r>");
+		XMLDocumentCache cache = new XMLDocumentCache(1 << 20);
+		
+		XMLFrozenDocument document = cache.get(first);
+		cache.get(second);
+		cache.setBudget(cache.getSize());
+		
+		assertSame(document, cache.get(first));
+		
+		cache.get(third);
+		
+		assertEquals(1, cache.getEvictionCount());
+		assertSame(document, cache.get(first));
+		assertEquals(3, cache.getMissCount());
+		
+		cache.get(second);
+		
+		assertEquals(4, cache.getMissCount());
+	}
+	
+	@Test
+	public void testMalformedFile() throws IOException {
+		Path file = write("bad.xml", "<root><a>1</a><b>");
+		XMLDocumentCache cache = new XMLDocumentCache(1 << 20);
+		
+		for (int attempt = 0; attempt < 2; attempt++) {
+			try {
+				cache.get(file);
+				fail("Malformed file was parsed");
+				
+			} catch (IOException e) {
+				assertEquals(0, cache.getEntryCount());
+			}
+		}
+		
+		assertEquals(2, cache.getMissCount());
+	}
+}
\ No newline at end of file
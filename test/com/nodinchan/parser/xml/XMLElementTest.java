@@ -0,0 +1,124 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the attributes of {@link XMLElement}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLElementTest {
+	
+	private static void randomAttributeEdits(boolean concurrent) {
+		Random random = new Random(2);
+		
+		XMLDocument document = new XMLDocument();
+		XMLElement element = new XMLElement("e");
+		document.setRoot(element);
+		
+		if (concurrent)
+			document.makeConcurrent();
+		
+		Map<String, String> expected = new LinkedHashMap<String, String>();
+		
+		for (int edit = 0; edit < 20000; edit++) {
+			String name = "a" + random.nextInt(20);
+			
+			if (random.nextInt(5) < 3) {
+				element.setAttribute(name, "" + edit);
+				expected.put(name, "" + edit);
+				
+			} else {
+				element.removeAttribute(name);
+				expected.remove(name);
+			}
+			
+			List<String> attributes = new ArrayList<String>();
+			
+			for (XMLAttribute attribute : element.getAttributes())
+				attributes.add(attribute.getName() + "=" + attribute.getValue());
+			
+			List<String> model = new ArrayList<String>();
+			
+			for (Map.Entry<String, String> entry : expected.entrySet())
+				model.add(entry.getKey() + "=" + entry.getValue());
+			
+			assertEquals("Edit " + edit, model, attributes);
+			
+			for (int index = 0; index < 20; index++)
+				assertEquals("Edit " + edit, expected.get("a" + index), element.getAttributeValue("a" + index));
+		}
+	}
+	
+	@Test
+	public void testRandomAttributeEdits() {
+		randomAttributeEdits(false);
+	}
+	
+	@Test
+	public void testRandomAttributeEditsConcurrent() {
+		randomAttributeEdits(true);
+	}
+	
+	@Test
+	public void testReplacedAttributeIsDetached() {
+		XMLDocument document = new XMLDocument();
+		XMLElement element = new XMLElement("e").setAttribute("k", "1").setAttribute("j", "1");
+		document.setRoot(element);
+		
+		XMLAttribute replaced = element.getAttribute("k");
+		element.setAttribute("k", "2");
+		
+		assertNotSame(replaced, element.getAttribute("k"));
+		assertEquals("1", replaced.getValue());
+		assertEquals("k", element.getAttributes().get(0).getName());
+		
+		replaced.setValue("3");
+		
+		assertEquals("3", replaced.getValue());
+		assertEquals("2", element.getAttributeValue("k"));
+		
+		XMLAttribute removed = element.getAttribute("j");
+		element.removeAttribute("j");
+		removed.setValue("4");
+		
+		assertNull(element.getAttribute("j"));
+	}
+	
+	@Test
+	public void testSetAttributeCopies() {
+		XMLAttribute attribute = new XMLAttribute("k", "1");
+		XMLElement element = new XMLElement("e").setAttribute(attribute);
+		
+		attribute.setValue("2");
+		
+		assertEquals("1", element.getAttributeValue("k"));
+	}
+}
\ No newline at end of file
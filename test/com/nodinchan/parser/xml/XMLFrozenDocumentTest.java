@@ -0,0 +1,123 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link XMLDocument#freeze()} keeps the document, and {@link XMLFrozenDocument#thaw()} gives it back
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLFrozenDocumentTest {
+	
+	@Test
+	public void testElements() {
+		XMLFrozenDocument frozen = XMLTestTrees.parse("<r x='1'><a id='v0'><b>1</b></a><c/><a id='v1'>t</a></r>").freeze();
+		XMLFrozenElement root = frozen.getRoot();
+		
+		assertEquals(5, frozen.getElementCount());
+		assertEquals("r", root.getName());
+		assertEquals("1", root.getAttributeValue("x"));
+		assertEquals(3, root.getElementCount());
+		assertEquals(2, root.getElements("a").size());
+		assertEquals("1", root.getElement("a").getElement(0).getValue());
+		assertEquals("t", root.getElement(2).getValue());
+		assertEquals(2, root.getElementIndex(root.getElement(2)));
+		assertSame(frozen, root.getElement(1).getDocument());
+		assertEquals(root, root.getElement(1).getParent());
+		assertNull(root.getParent());
+		assertFalse(root.getElement(1).hasElements());
+		assertFalse(root.getElement(1).hasAttributes());
+		assertTrue(root.hasElement("c"));
+		assertNull(root.getAttribute("y"));
+	}
+	
+	@Test
+	public void testEmptyDocument() {
+		XMLFrozenDocument frozen = new XMLDocument().freeze();
+		
+		assertEquals(0, frozen.getElementCount());
+		assertFalse(frozen.thaw().hasElements());
+	}
+	
+	@Test
+	public void testMetadata() {
+		XMLFrozenDocument frozen = XMLTestTrees.parse("<?xml version='1.0' encoding='UTF-8' standalone='yes'?><r/>").freeze();
+		XMLDocument thawed = frozen.thaw();
+		
+		assertEquals("1.0", thawed.getVersion());
+		assertEquals("UTF-8", thawed.getEncoding());
+		assertTrue(thawed.isStandalone());
+		assertEquals(frozen.getSystemId(), thawed.getSystemId());
+	}
+	
+	@Test
+	public void testRandomEdits() {
+		Random random = new Random(16);
+		XMLDocument document = XMLTestTrees.parse(XMLTestTrees.records(20));
+		XMLElement detached = new XMLElement("detached");
+		
+		for (int edit = 0; edit < 500; edit++) {
+			XMLTestTrees.edit(document, detached, random);
+			
+			if (edit % 25 == 0) {
+				XMLDocument thawed = document.freeze().thaw();
+				
+				assertEquals(XMLParser.compose(document), XMLParser.compose(thawed));
+				assertEquals(document.getRoot().getStructuralHash(), thawed.getRoot().getStructuralHash());
+			}
+		}
+	}
+	
+	@Test
+	public void testRoundTrip() {
+		String xml = XMLTestTrees.records(200);
+		XMLDocument document = XMLTestTrees.parse(xml);
+		XMLFrozenDocument frozen = document.freeze();
+		XMLDocument thawed = frozen.thaw();
+		
+		assertEquals(XMLParser.compose(document), XMLParser.compose(thawed));
+		assertEquals(XMLTestTrees.collect(document).size(), frozen.getElementCount());
+		
+		thawed.getRoot().getElement(0).setAttribute("id", "changed");
+		
+		assertEquals("v0", frozen.getRoot().getElement(0).getAttributeValue("id"));
+		assertEquals(XMLParser.compose(document), XMLParser.compose(frozen.thaw()));
+	}
+	
+	@Test
+	public void testValues() {
+		XMLFrozenElement root = XMLTestTrees.parse("<r><a>x</a><b/></r>").freeze().getRoot();
+		List<XMLAttribute> attributes = root.getAttributes();
+		
+		assertTrue(attributes.isEmpty());
+		assertEquals("x", root.getElement(0).getValue());
+		assertEquals("", root.getElement(1).getValue());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the events an {@link XMLHandler} receives from each {@link XMLParserEngine}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLHandlerTest {
+	
+	private static final XMLParserEngine[] ENGINES = { XMLParserEngine.STAX, XMLParserEngine.TOKENIZER };
+	
+	private static List<String> events(String xml, XMLParserEngine engine) {
+		EventLog log = new EventLog();
+		XMLParser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), log, new XMLParserConfig().setEngine(engine));
+		return log.events;
+	}
+	
+	@Test
+	public void testAttributeValues() {
+		String xml = "<r a=\"1\" b='x &amp; y' c=\"&#x41;&lt;\" d=\"line\nbreak\tand tab\"/>";
+		
+		for (XMLParserEngine engine : ENGINES) {
+			List<String> events = events(xml, engine);
+			
+			assertEquals(Arrays.asList("document UTF-8 1.0", "start r d=line break and tab c=A< b=x & y a=1", "end r", "end document"), events);
+		}
+	}
+	
+	@Test
+	public void testAttributesReadByName() {
+		for (XMLParserEngine engine : ENGINES) {
+			final List<String> values = new ArrayList<String>();
+			
+			XMLHandler handler = new XMLHandler() {
+				
+				@Override
+				public void endElement(String name) {}
+				
+				@Override
+				public void startElement(String name, XMLAttributes attributes) {
+					values.add(attributes.getValue("b"));
+					values.add(attributes.getValue("missing"));
+					assertSame(attributes.getValue(1), attributes.getValue(1));
+				}
+				
+				@Override
+				public void text(char[] characters, int start, int length) {}
+			};
+			
+			XMLParser.parse(new ByteArrayInputStream("<r a='1' b='2'><e a='3' b='4'/></r>".getBytes(StandardCharsets.UTF_8)), handler, new XMLParserConfig().setEngine(engine));
+			
+			assertEquals(Arrays.asList("2", null, "4", null), values);
+		}
+	}
+	
+	@Test
+	public void testEnginesMatch() {
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><r x='1'>\n <a id='v1'>text &amp; more<![CDATA[<raw>]]></a><!--c--><b/>\n</r>";
+		
+		assertEquals(events(xml, XMLParserEngine.STAX), events(xml, XMLParserEngine.TOKENIZER));
+		assertEquals(events(XMLTestTrees.records(20), XMLParserEngine.STAX), events(XMLTestTrees.records(20), XMLParserEngine.TOKENIZER));
+	}
+	
+	/**
+	 * Logs each event, reading attributes last to first and joining the text between tags
+	 */
+	private static final class EventLog implements XMLHandler {
+		
+		private final List<String> events = new ArrayList<String>();
+		
+		private final StringBuilder text = new StringBuilder();
+		
+		@Override
+		public void endDocument() {
+			this.events.add("end document");
+		}
+		
+		@Override
+		public void endElement(String name) {
+			flushText();
+			this.events.add("end " + name);
+		}
+		
+		private void flushText() {
+			if (this.text.length() > 0)
+				this.events.add("text " + this.text);
+			
+			this.text.setLength(0);
+		}
+		
+		@Override
+		public void startDocument(String encoding, String version, String systemId, boolean standalone) {
+			this.events.add("document " + encoding + " " + version);
+		}
+		
+		@Override
+		public void startElement(String name, XMLAttributes attributes) {
+			flushText();
+			
+			StringBuilder event = new StringBuilder("start ").append(name);
+			
+			for (int index = attributes.getCount() - 1; index >= 0; index--)
+				event.append(' ').append(attributes.getName(index)).append('=').append(attributes.getValue(index));
+			
+			this.events.add(event.toString());
+		}
+		
+		@Override
+		public void text(char[] characters, int start, int length) {
+			this.text.append(characters, start, length);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the lookups of children by name of {@link XMLHierarchical}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLHierarchicalTest {
+	
+	private static List<XMLElement> named(XMLElement parent, String name) {
+		List<XMLElement> named = new ArrayList<XMLElement>();
+		
+		for (XMLElement element : parent.getElements()) {
+			if (element.getName().equals(name))
+				named.add(element);
+		}
+		
+		return named;
+	}
+	
+	@Test
+	public void testNameLookupsAfterEdits() {
+		Random random = new Random(17);
+		
+		XMLElement parent = new XMLElement("p");
+		XMLElement other = new XMLElement("o");
+		
+		for (int edit = 0; edit < 5000; edit++) {
+			String name = "e" + random.nextInt(6);
+			int count = parent.getElementCount();
+			
+			switch (random.nextInt(5)) {
+			
+			case 0:
+				parent.appendElement(new XMLElement(name));
+				break;
+			
+			case 1:
+				parent.insertElement(new XMLElement(name), random.nextInt(count + 1));
+				break;
+			
+			case 2:
+				if (count > 0)
+					parent.removeElement(random.nextInt(count));
+				
+				break;
+			
+			case 3:
+				if (count > 0)
+					parent.insertElement(parent.getElement(random.nextInt(count)), random.nextInt(count));
+				
+				break;
+			
+			default:
+				if (count > 0)
+					other.appendElement(parent.getElement(random.nextInt(count)));
+				else if (other.hasElements())
+					parent.appendElement(other.getElement(0));
+				
+				break;
+			}
+			
+			for (int index = 0; index < 6; index++) {
+				List<XMLElement> expected = named(parent, "e" + index);
+				
+				assertEquals("Edit " + edit, expected, parent.getElements("e" + index));
+				assertEquals("Edit " + edit, !expected.isEmpty(), parent.hasElement("e" + index));
+				assertSame("Edit " + edit, expected.isEmpty() ? null : expected.get(0), parent.getElement("e" + index));
+			}
+		}
+	}
+	
+	@Test
+	public void testParsedWideElement() {
+		StringBuilder xml = new StringBuilder("<r>");
+		
+		for (int index = 0; index < 100; index++)
+			xml.append("<e").append(index % 10).append(">").append(index).append("</e").append(index % 10).append(">");
+		
+		XMLElement root = XMLTestTrees.parse(xml.append("</r>").toString()).getRoot();
+		
+		assertEquals("3", root.getElement("e3").getValue());
+		assertEquals(10, root.getElements("e3").size());
+		assertEquals("93", root.getElements("e3").get(9).getValue());
+		
+		root.removeElement(root.getElement("e3"));
+		
+		assertEquals("13", root.getElement("e3").getValue());
+		assertEquals(9, root.getElements("e3").size());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,162 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that incremental composing writes the same output as composing in full
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLIncrementalComposeTest {
+	
+	private static void assertMetrics(String message, XMLMetrics expected, XMLMetrics actual) {
+		assertEquals(message, expected.getElementCount(), actual.getElementCount());
+		assertEquals(message, expected.getAttributeCount(), actual.getAttributeCount());
+		assertEquals(message, expected.getMaxDepth(), actual.getMaxDepth());
+		assertEquals(message, expected.getTextLength(), actual.getTextLength());
+	}
+	
+	private static String full(XMLDocument document) {
+		document.setIncrementalCompose(false);
+		
+		try {
+			return XMLParser.compose(document);
+			
+		} finally {
+			document.setIncrementalCompose(true);
+		}
+	}
+	
+	private static XMLDocument parse(String xml) {
+		return XMLTestTrees.parse(xml).setIncrementalCompose(true);
+	}
+	
+	@Test
+	public void testListenerAttachedLater() {
+		StringBuilder xml = new StringBuilder("<r>");
+		
+		while (xml.length() < XMLFragmentWriter.LIMIT * 2)
+			xml.append("<a id='1'><b>x</b><c><d><e>y</e></d></c></a>");
+		
+		XMLDocument document = parse(xml.append("</r>").toString());
+		XMLElement first = document.getRoot().getElement(0);
+		
+		String composed = XMLParser.compose(document);
+		
+		assertTrue(first.hasFragment());
+		assertNull(first.getFragmentMetrics());
+		
+		LastMetrics listener = new LastMetrics();
+		document.setMetricsListener(listener);
+		
+		XMLMetricsCounter counter = new XMLMetricsCounter();
+		counter.count(document);
+		XMLMetrics expected = counter.finish(true);
+		
+		assertEquals(composed, XMLParser.compose(document));
+		assertMetrics("Attached", expected, listener.metrics);
+		assertNotNull(first.getFragmentMetrics());
+		
+		assertEquals(composed, XMLParser.compose(document));
+		assertMetrics("Cached", expected, listener.metrics);
+	}
+	
+	@Test
+	public void testMetrics() {
+		Random random = new Random(13);
+		
+		StringBuilder xml = new StringBuilder("<r>");
+		
+		while (xml.length() < XMLFragmentWriter.LIMIT * 2)
+			xml.append("<a id='1'><b>x</b><c><d><e>y</e></d></c></a><a><b>z</b></a>");
+		
+		XMLDocument document = parse(xml.append("</r>").toString());
+		XMLElement detached = new XMLElement("detached");
+		LastMetrics listener = new LastMetrics();
+		document.setMetricsListener(listener);
+		
+		for (int step = 0; step < 200; step++) {
+			XMLTestTrees.edit(document, detached, random);
+			
+			XMLMetricsCounter counter = new XMLMetricsCounter();
+			counter.count(document);
+			XMLMetrics expected = counter.finish(true);
+			
+			XMLParser.compose(document);
+			assertMetrics("Step " + step, expected, listener.metrics);
+			
+			if (step % 10 == 0) {
+				full(document);
+				assertMetrics("Step " + step, expected, listener.metrics);
+			}
+		}
+	}
+	
+	@Test
+	public void testRandomEdits() {
+		Random random = new Random(7);
+		
+		for (int round = 0; round < 100; round++) {
+			XMLDocument document = parse(XMLTestTrees.records(30));
+			XMLElement detached = new XMLElement("detached");
+			XMLParser.compose(document);
+			
+			for (int step = 0; step < 40; step++) {
+				XMLTestTrees.edit(document, detached, random);
+				
+				if (random.nextInt(3) == 0)
+					assertEquals("Round " + round + ", step " + step, full(document), XMLParser.compose(document));
+			}
+			
+			assertEquals("Round " + round, full(document), XMLParser.compose(document));
+		}
+	}
+	
+	@Test
+	public void testSetValue() {
+		XMLDocument document = parse("<r><e id=\"1\"/></r>");
+		XMLParser.compose(document);
+		
+		document.getRoot().getElement("e").getAttribute("id").setValue("2");
+		
+		assertEquals(full(document), XMLParser.compose(document));
+	}
+	
+	/**
+	 * Keeps the metrics of the last compose
+	 */
+	private static final class LastMetrics implements XMLMetricsListener {
+		
+		private XMLMetrics metrics;
+		
+		@Override
+		public void composed(XMLMetrics metrics) {
+			this.metrics = metrics;
+		}
+	}
+}
\ No newline at end of file
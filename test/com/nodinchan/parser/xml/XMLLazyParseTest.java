@@ -0,0 +1,114 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that documents parsed by {@link XMLParser#parseLazily(Path)} match those parsed in full
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLLazyParseTest {
+	
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	private Path write(String content) throws IOException {
+		return Files.write(folder.getRoot().toPath().resolve("a.xml"), content.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void testConcurrentAccess() throws IOException, InterruptedException, ExecutionException {
+		String xml = XMLTestTrees.records(2000);
+		final XMLDocument document = XMLParser.parseLazily(write(xml));
+		final String expected = XMLParser.compose(XMLTestTrees.parse(xml));
+		
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			
+			for (int task = 0; task < 8; task++) {
+				results.add(pool.submit(new Callable<String>() {
+					
+					@Override
+					public String call() {
+						return XMLParser.compose(document);
+					}
+				}));
+			}
+			
+			for (Future<String> result : results)
+				assertEquals(expected, result.get());
+			
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void testEdit() throws IOException {
+		String xml = "<r x='1'><a id='v0'><b>1</b><c><d>x</d></c></a><a id='v1'/><e>t</e></r>";
+		XMLDocument lazy = XMLParser.parseLazily(write(xml));
+		XMLDocument eager = XMLTestTrees.parse(xml);
+		
+		for (XMLDocument document : new XMLDocument[] { lazy, eager }) {
+			document.getRoot().getElement(0).setAttribute("k", "v2");
+			document.getRoot().getElement(0).getElement(1).appendElement(new XMLElement("n").setValue("m"));
+			document.getRoot().getElement(2).setValue("u");
+		}
+		
+		assertEquals(XMLParser.compose(eager), XMLParser.compose(lazy));
+	}
+	
+	@Test
+	public void testRoundTrip() throws IOException {
+		String[] documents = {
+				"<?xml version='1.0' encoding='UTF-8'?><r/>",
+				"<r>text</r>",
+				"<r a='1' b='2'><x/><y z='3'>v</y><x><y><z>deep</z></y></x></r>",
+				"<p:r xmlns:p='urn:p'><p:a p:k='1'><p:b>t</p:b></p:a></p:r>",
+				XMLTestTrees.records(500)
+		};
+		
+		for (String xml : documents) {
+			XMLDocument lazy = XMLParser.parseLazily(write(xml));
+			
+			assertEquals(XMLTestTrees.collect(XMLTestTrees.parse(xml)).size(), XMLTestTrees.collect(lazy).size());
+			assertEquals(XMLParser.compose(XMLTestTrees.parse(xml)), XMLParser.compose(lazy));
+		}
+	}
+}
\ No newline at end of file
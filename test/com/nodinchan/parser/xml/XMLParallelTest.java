@@ -0,0 +1,84 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that {@link XMLParser#parseParallel(Path)} matches a sequential parse
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLParallelTest {
+	
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	private Path write(String content) throws IOException {
+		return Files.write(folder.getRoot().toPath().resolve("a.xml"), content.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void testLargeFile() throws IOException {
+		String xml = XMLTestTrees.records(60000);
+		Path file = write(xml);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		
+		try {
+			XMLDocument document = XMLParser.parseParallel(file, new XMLParserConfig(), pool);
+			
+			assertEquals(60000, document.getRoot().getElementCount());
+			assertEquals(XMLParser.compose(XMLTestTrees.parse(xml)), XMLParser.compose(document));
+			
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void testMalformedChunk() throws IOException {
+		String xml = XMLTestTrees.records(60000);
+		int middle = xml.indexOf("<b>", xml.length() / 2);
+		Path file = write(xml.substring(0, middle) + "<b>1</c>" + xml.substring(middle + 8));
+		
+		try {
+			XMLParser.parseParallel(file);
+			fail("Malformed content was parsed");
+			
+		} catch (IllegalStateException e) {}
+	}
+	
+	@Test
+	public void testSmallFile() throws IOException {
+		String xml = XMLTestTrees.records(10);
+		
+		assertEquals(XMLParser.compose(XMLTestTrees.parse(xml)), XMLParser.compose(XMLParser.parseParallel(write(xml))));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+/**
+ * Tests the selection of {@link XMLElement}s by {@link XMLPath}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLPathTest {
+	
+	private static final String[] PATHS = {
+			"//a", "//b", "/r/a/b", "//a/b", "//b/..", "//d/../..", "//c//d", "//a[@id='v1']",
+			"//a[@k]/b", "//*[2]", "/r/*/.", "//a/..", "//n//m/..", "//a//b", "//n"
+	};
+	
+	private static List<String> names(List<XMLElement> elements) {
+		List<String> names = new ArrayList<String>();
+		
+		for (XMLElement element : elements)
+			names.add(element.getName());
+		
+		return names;
+	}
+	
+	@Test
+	public void testDocumentOrder() {
+		XMLDocument document = XMLTestTrees.parse("<r><a><b>1</b><a><b>2</b></a><b>3</b></a></r>");
+		
+		List<XMLElement> selected = XMLPath.compile("//a/b").select(document);
+		List<String> values = new ArrayList<String>();
+		
+		for (XMLElement element : selected)
+			values.add(element.getValue());
+		
+		assertEquals(Arrays.asList("1", "2", "3"), values);
+	}
+	
+	@Test
+	public void testParentOrder() {
+		XMLDocument document = XMLTestTrees.parse("<r><p><q><b/></q><b/></p></r>");
+		
+		assertEquals(Arrays.asList("p", "q"), names(XMLPath.compile("//b/..").select(document)));
+		assertEquals("p", XMLPath.compile("//b/..").selectFirst(document).getName());
+	}
+	
+	@Test
+	public void testPredicates() {
+		XMLDocument document = XMLTestTrees.parse(XMLTestTrees.records(12));
+		
+		assertEquals(3, XMLPath.compile("/r/a[@id='v1']").select(document).size());
+		assertEquals(12, XMLPath.compile("//a[@id]/b").select(document).size());
+		assertEquals("1", XMLPath.compile("/r/a[2]/b").selectFirst(document).getValue());
+		assertEquals("v2", XMLPath.compile("/r/a[@id='v2'][1]").selectFirst(document).getAttributeValue("id"));
+		assertNull(XMLPath.compile("/r/a[13]").selectFirst(document));
+	}
+	
+	@Test
+	public void testRandomTrees() {
+		Random random = new Random(18);
+		XMLDocument document = XMLTestTrees.parse(XMLTestTrees.records(6));
+		XMLElement detached = new XMLElement("detached");
+		
+		for (int edit = 0; edit < 400; edit++) {
+			XMLTestTrees.edit(document, detached, random);
+			
+			if (edit % 20 != 0)
+				continue;
+			
+			List<XMLElement> elements = XMLTestTrees.collect(document);
+			
+			for (String expression : PATHS) {
+				XMLPath path = XMLPath.compile(expression);
+				List<XMLElement> selected = path.select(document);
+				
+				for (int index = 1; index < selected.size(); index++)
+					assertTrue(expression, elements.indexOf(selected.get(index - 1)) < elements.indexOf(selected.get(index)));
+				
+				final List<XMLElement> visited = new ArrayList<XMLElement>();
+				
+				path.forEach(document, new Consumer<XMLElement>() {
+					
+					@Override
+					public void accept(XMLElement element) {
+						visited.add(element);
+					}
+				});
+				
+				assertEquals(expression, selected, visited);
+				assertSame(expression, selected.isEmpty() ? null : selected.get(0), path.selectFirst(document));
+			}
+		}
+	}
+	
+	@Test
+	public void testRelative() {
+		XMLDocument document = XMLTestTrees.parse("<r><p><q><b/></q><b/></p><s/></r>");
+		XMLElement q = document.getRoot().getElement(0).getElement(0);
+		
+		assertEquals(Arrays.asList("p"), names(XMLPath.compile("..").select(q)));
+		assertEquals(Arrays.asList("r", "p"), names(XMLPath.compile("//b/../..").select(document.getRoot())));
+		assertEquals(Arrays.asList("s"), names(XMLPath.compile("/r/s").select(q)));
+	}
+	
+	@Test
+	public void testSyntax() {
+		for (String expression : new String[] { "/", "a/", "a[", "a[0]", "a[@]", "a[@k=v]", "//..", "a b" }) {
+			try {
+				XMLPath.compile(expression);
+				fail(expression + " was compiled");
+				
+			} catch (IllegalArgumentException e) {}
+		}
+	}
+}
\ No newline at end of file
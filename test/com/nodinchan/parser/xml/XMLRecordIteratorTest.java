@@ -0,0 +1,106 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+/**
+ * Tests streaming the {@link XMLElement}s at a path with {@link XMLRecordIterator}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLRecordIteratorTest {
+	
+	private static List<XMLElement> records(String xml, String path) {
+		XMLRecordIterator iterator = stream(xml, path);
+		List<XMLElement> records = new ArrayList<XMLElement>();
+		
+		while (iterator.hasNext())
+			records.add(iterator.next());
+		
+		return records;
+	}
+	
+	private static XMLRecordIterator stream(String xml, String path) {
+		return XMLParser.stream(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), path);
+	}
+	
+	@Test(expected = NoSuchElementException.class)
+	public void testClose() {
+		XMLRecordIterator iterator = stream(XMLTestTrees.records(10), "r/a");
+		
+		iterator.next();
+		iterator.close();
+		
+		assertFalse(iterator.hasNext());
+		iterator.next();
+	}
+	
+	@Test
+	public void testDepth() {
+		List<XMLElement> records = records("<r><x><a>1</a></x><a>2</a><a><a>3</a></a></r>", "r/a");
+		
+		assertEquals(2, records.size());
+		assertEquals("2", records.get(0).getValue());
+		assertEquals("3", records.get(1).getElement("a").getValue());
+	}
+	
+	@Test
+	public void testMatchesParse() {
+		String xml = XMLTestTrees.records(50);
+		List<XMLElement> expected = XMLTestTrees.parse(xml).getRoot().getElements();
+		List<XMLElement> records = records(xml, "r/a");
+		
+		assertEquals(expected.size(), records.size());
+		
+		for (int index = 0; index < records.size(); index++) {
+			assertNull(records.get(index).getParent());
+			assertEquals(expected.get(index).getStructuralHash(), records.get(index).getStructuralHash());
+		}
+	}
+	
+	@Test
+	public void testStream() {
+		Stream<XMLElement> stream = stream(XMLTestTrees.records(8), "r/*/b").toStream();
+		
+		try {
+			List<String> values = new ArrayList<String>();
+			
+			for (Iterator<XMLElement> iterator = stream.iterator(); iterator.hasNext();)
+				values.add(iterator.next().getValue());
+			
+			assertEquals(Arrays.asList("0", "1", "2", "0", "1", "2", "0", "1"), values);
+			
+		} finally {
+			stream.close();
+		}
+	}
+}
\ No newline at end of file
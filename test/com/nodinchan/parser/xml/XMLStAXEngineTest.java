@@ -0,0 +1,80 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests parsing with the {@link XMLParserEngine#STAX} engine
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLStAXEngineTest {
+	
+	private static XMLDocument parse(String xml) {
+		XMLParserConfig config = new XMLParserConfig().setEngine(XMLParserEngine.STAX);
+		return XMLParser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), config);
+	}
+	
+	@Test
+	public void testDeclaration() {
+		XMLDocument document = parse("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><r/>");
+		
+		assertEquals("1.0", document.getVersion());
+		assertEquals("UTF-8", document.getEncoding());
+		assertTrue(document.isStandalone());
+		assertEquals("r", document.getRoot().getName());
+		
+		assertEquals("1.1", parse("<?xml version=\"1.1\"?><r/>").getVersion());
+		
+		document = parse("<r/>");
+		
+		assertEquals("1.0", document.getVersion());
+		assertEquals("UTF-8", document.getEncoding());
+		assertFalse(document.isStandalone());
+	}
+	
+	@Test
+	public void testRoundTrip() {
+		XMLDocument document = parse(XMLTestTrees.records(20));
+		String composed = XMLParser.compose(document);
+		
+		assertEquals(composed, XMLParser.compose(parse(composed)));
+		assertEquals(20, document.getRoot().getElementCount());
+		assertEquals("v3", document.getRoot().getElement(3).getAttributeValue("id"));
+		assertEquals("x", document.getRoot().getElement(3).getElement("c").getElement("d").getValue());
+	}
+	
+	@Test
+	public void testText() {
+		XMLElement root = parse("<r>\n  <a k=\"1\" j=\"2\">x<![CDATA[<y>]]>z<!--c--></a>\n  <b/>\n</r>").getRoot();
+		
+		assertEquals(2, root.getElementCount());
+		assertEquals("x<y>z", root.getElement("a").getValue());
+		assertEquals("", root.getElement("b").getValue());
+		assertEquals("k", root.getElement("a").getAttributes().get(0).getName());
+		assertEquals("j", root.getElement("a").getAttributes().get(1).getName());
+	}
+}
\ No newline at end of file
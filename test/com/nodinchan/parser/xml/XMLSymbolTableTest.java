@@ -0,0 +1,82 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests the sharing of names through {@link XMLSymbolTable}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLSymbolTableTest {
+	
+	@Test
+	public void testCharacters() {
+		XMLSymbolTable symbols = new XMLSymbolTable(64);
+		char[] characters = "<name attribute>".toCharArray();
+		
+		String name = symbols.intern(characters, 1, 4);
+		
+		assertEquals("name", name);
+		assertSame(name, symbols.intern(characters, 1, 4));
+		assertSame(name, symbols.intern(new String("name")));
+		assertEquals("attribute", symbols.intern(characters, 6, 9));
+	}
+	
+	@Test
+	public void testCollisions() {
+		XMLSymbolTable symbols = new XMLSymbolTable(1);
+		
+		for (int index = 0; index < 100; index++) {
+			assertEquals("a" + index, symbols.intern("a" + index));
+			assertEquals("b" + index, symbols.intern(("b" + index).toCharArray(), 0, ("b" + index).length()));
+		}
+	}
+	
+	@Test
+	public void testParsesShareNames() {
+		for (XMLParserEngine engine : new XMLParserEngine[] { XMLParserEngine.STAX, XMLParserEngine.TOKENIZER }) {
+			XMLParserConfig config = new XMLParserConfig().setEngine(engine);
+			
+			XMLElement first = XMLParser.parse(new ByteArrayInputStream("<r><record id='1'/></r>".getBytes(StandardCharsets.UTF_8)), config).getRoot();
+			XMLElement second = XMLParser.parse(new ByteArrayInputStream("<r><record id='2'/></r>".getBytes(StandardCharsets.UTF_8)), config).getRoot();
+			
+			assertSame(first.getElement(0).getName(), second.getElement(0).getName());
+			assertSame(first.getElement(0).getAttributes().get(0).getName(), second.getElement(0).getAttributes().get(0).getName());
+		}
+	}
+	
+	@Test
+	public void testSize() {
+		assertEquals(1, new XMLSymbolTable(1).getSize());
+		assertEquals(1024, new XMLSymbolTable(1000).getSize());
+		assertEquals(1024, new XMLParserConfig().setSymbolTableSize(1024).getSymbolTableSize());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testSizeTooLarge() {
+		new XMLSymbolTable((1 << 30) + 1);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,180 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+package com.nodinchan.parser.xml;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds and randomly edits documents for the tests
+ * 
+ * @author NodinChan
+ * 
+ */
+final class XMLTestTrees {
+	
+	/**
+	 * Returns every {@link XMLElement} under the given node, in document order
+	 * 
+	 * @param node The node to collect from
+	 * 
+	 * @return The elements
+	 */
+	static List<XMLElement> collect(XMLHierarchical node) {
+		return collect(node, new ArrayList<XMLElement>());
+	}
+	
+	private static List<XMLElement> collect(XMLHierarchical node, List<XMLElement> elements) {
+		for (XMLElement element : node.getElements()) {
+			elements.add(element);
+			collect(element, elements);
+		}
+		
+		return elements;
+	}
+	
+	/**
+	 * Makes one random edit to the document
+	 * 
+	 * <p>
+	 * Attributes are named id or k, with one of four values, so that values and subtrees repeat.
+	 * Removed elements are moved under the detached element, and may later be put back.
+	 * 
+	 * @param document The document to edit
+	 * 
+	 * @param detached The element holding removed elements
+	 * 
+	 * @param random The source of the edit
+	 */
+	static void edit(XMLDocument document, XMLElement detached, Random random) {
+		List<XMLElement> elements = collect(document);
+		XMLElement element = elements.get(random.nextInt(elements.size()));
+		XMLElement other = elements.get(random.nextInt(elements.size()));
+		boolean root = element == document.getRoot();
+		
+		String name = random.nextBoolean() ? "id" : "k";
+		String value = "v" + random.nextInt(4);
+		
+		switch (random.nextInt(10)) {
+		
+		case 0:
+			element.setAttribute(name, value);
+			break;
+		
+		case 1:
+			element.removeAttribute(name);
+			break;
+		
+		case 2:
+			XMLAttribute attribute = element.getAttribute(name);
+			
+			if (attribute != null)
+				attribute.setValue(value);
+			
+			break;
+		
+		case 3:
+			if (!root)
+				element.setValue(value);
+			
+			break;
+		
+		case 4:
+			XMLElement inserted = new XMLElement("n").setAttribute("id", value).appendElement(new XMLElement("m").setValue(value));
+			element.insertElement(inserted, random.nextInt(element.getElementCount() + 1));
+			break;
+		
+		case 5:
+			if (!root)
+				detached.appendElement(element);
+			
+			break;
+		
+		case 6:
+			if (detached.hasElements())
+				element.insertElement(detached.getElement(0), random.nextInt(element.getElementCount() + 1));
+			
+			break;
+		
+		case 7:
+			if (!root && !isAncestor(element, other))
+				other.insertElement(element, random.nextInt(other.getElementCount() + 1));
+			
+			break;
+		
+		case 8:
+			if (!root)
+				element.getParent().insertElement(element.copy(), 0);
+			
+			break;
+		
+		default:
+			if (!root)
+				element.getParent().prependElement(element);
+			
+			break;
+		}
+	}
+	
+	/**
+	 * Checks if the given element is the node or one of its ancestors
+	 * 
+	 * @param element The element to look for
+	 * 
+	 * @param node The node to look from
+	 * 
+	 * @return True if the element is the node or an ancestor of it, otherwise false
+	 */
+	static boolean isAncestor(XMLElement element, XMLHierarchical node) {
+		for (XMLHierarchical parent = node; parent instanceof XMLElement; parent = ((XMLElement) parent).getParent()) {
+			if (parent == element)
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Parses a document from a String
+	 * 
+	 * @param xml The text to parse
+	 * 
+	 * @return The parsed document
+	 */
+	static XMLDocument parse(String xml) {
+		return XMLParser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	/**
+	 * Returns a document of repeated records, each with an attribute, text and nested elements
+	 * 
+	 * @param count The number of records
+	 * 
+	 * @return The text of the document
+	 */
+	static String records(int count) {
+		StringBuilder xml = new StringBuilder("<r>");
+		
+		for (int record = 0; record < count; record++)
+			xml.append("<a id='v").append(record % 4).append("'><b>").append(record % 3).append("</b><c><d>x</d></c></a>");
+		
+		return xml.append("</r>").toString();
+	}
+}
\ No newline at end of file
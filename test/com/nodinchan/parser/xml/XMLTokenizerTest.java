@@ -0,0 +1,142 @@
+/*
+ *     Copyright (C) 2014  Nodin Chan
+ *     
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *     
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *     
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see {http://www.gnu.org/licenses/}.
+ */
+
+package com.nodinchan.parser.xml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+/**
+ * Tests that the {@link XMLParserEngine#TOKENIZER} engine builds the same documents as {@link XMLParserEngine#STAX}
+ * 
+ * @author NodinChan
+ * 
+ */
+public class XMLTokenizerTest {
+	
+	private static final String[] PIECES = { "a", "é", "€", "😀", "&amp;", "<![CDATA[x<y]]>", "<!--c-->", " ", "\n" };
+	
+	private static void assertEquivalent(String message, byte[] content) throws XMLStreamException {
+		String stax = parse(new ByteArrayInputStream(content), XMLParserEngine.STAX);
+		
+		assertEquals(message, stax, parse(new ByteArrayInputStream(content), XMLParserEngine.TOKENIZER));
+		assertEquals(message, stax, parse(new TrickleInputStream(content), XMLParserEngine.TOKENIZER));
+	}
+	
+	private static String body(Random random, boolean latin) {
+		StringBuilder body = new StringBuilder("<root x=\"1\">");
+		
+		for (int count = random.nextInt(4000); count > 0; count--) {
+			body.append(PIECES[random.nextInt(PIECES.length)]);
+			
+			if (random.nextInt(10) == 0)
+				body.append("<f a=\"").append(PIECES[random.nextInt(2)]).append("\"/>");
+		}
+		
+		String text = body.append("</root>").toString();
+		return latin ? text.replace("€", "e").replace("😀", "s") : text;
+	}
+	
+	private static String parse(InputStream stream, XMLParserEngine engine) throws XMLStreamException {
+		XMLParserConfig config = new XMLParserConfig();
+		config.setEngine(engine);
+		
+		XMLDocument document = XMLParser.parseStrictly(stream, config);
+		return document.getEncoding() + "|" + XMLParser.compose(document);
+	}
+	
+	private static void randomDocuments(String declared, Charset charset) throws XMLStreamException {
+		Random random = new Random(3);
+		
+		String declaration = declared == null ? "" : "<?xml version=\"1.0\" encoding=\"" + declared + "\"?>";
+		
+		for (int round = 0; round < 60; round++)
+			assertEquivalent(charset + " round " + round, (declaration + body(random, charset.equals(StandardCharsets.ISO_8859_1))).getBytes(charset));
+	}
+	
+	@Test
+	public void testIso88591() throws XMLStreamException {
+		randomDocuments("ISO-8859-1", StandardCharsets.ISO_8859_1);
+	}
+	
+	@Test(expected = XMLStreamException.class)
+	public void testMalformedUtf8() throws XMLStreamException {
+		parse(new ByteArrayInputStream(new byte[] { '<', 'r', '>', (byte) 0xC3, '<', '/', 'r', '>' }), XMLParserEngine.TOKENIZER);
+	}
+	
+	@Test
+	public void testUtf16BigEndian() throws XMLStreamException {
+		randomDocuments("UTF-16", StandardCharsets.UTF_16BE);
+	}
+	
+	@Test
+	public void testUtf16LittleEndian() throws XMLStreamException {
+		randomDocuments("UTF-16", StandardCharsets.UTF_16LE);
+	}
+	
+	@Test
+	public void testUtf8() throws XMLStreamException {
+		randomDocuments("UTF-8", StandardCharsets.UTF_8);
+	}
+	
+	@Test
+	public void testUtf8Undeclared() throws XMLStreamException {
+		randomDocuments(null, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Hands out a few bytes per read, splitting characters across reads
+	 */
+	private static final class TrickleInputStream extends InputStream {
+		
+		private final byte[] content;
+		
+		private int position;
+		
+		private final Random random = new Random(1);
+		
+		public TrickleInputStream(byte[] content) {
+			this.content = content;
+		}
+		
+		@Override
+		public int read() {
+			return position < content.length ? content[position++] & 0xFF : -1;
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			if (position >= content.length)
+				return -1;
+			
+			int count = Math.min(Math.min(length, 1 + random.nextInt(7)), content.length - position);
+			
+			System.arraycopy(content, position, buffer, offset, count);
+			position += count;
+			return count;
+		}
+	}
+}
\ No newline at end of file